@@ -0,0 +1,59 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2.bench;
+
+/**
+ * a histogram of latencies with log-linear buckets, 8 per power of two, ie within 12.5%.
+ * cheap enough to record every element of a benchmark, but not thread safe
+ */
+public final class Latencies {
+    static final int SUB_BITS = 3;
+    static final int SUB = 1 << SUB_BITS;
+
+    private final long [] counts = new long[64 * SUB];
+    private long total;
+
+    static int bucket(long nanos) {
+        if (nanos < SUB)
+            return (int) Math.max(nanos, 0);
+        int log = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (log - SUB_BITS)) & (SUB - 1);
+        return (log - SUB_BITS + 1) * SUB + sub;
+    }
+
+    /** the smallest latency in the bucket */
+    static long floor(int bucket) {
+        if (bucket < SUB)
+            return bucket;
+        int log = bucket / SUB + SUB_BITS - 1;
+        long sub = bucket % SUB;
+        return (SUB + sub) << (log - SUB_BITS);
+    }
+
+    public void record(long nanos) {
+        counts[bucket(nanos)]++;
+        total++;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(counts, 0);
+        total = 0;
+    }
+
+    public long count() { return total; }
+
+    /**
+     * @param fraction the percentile as a fraction, eg 0.99 for p99
+     * @return the lower bound of the bucket that holds that percentile, in nanoseconds
+     */
+    public long percentile(double fraction) {
+        long rank = (long) Math.ceil(fraction * total), seen = 0;
+        for (int ii = 0; ii < counts.length; ii++)
+            if ((seen += counts[ii]) >= rank && seen > 0)
+                return floor(ii);
+        return 0;
+    }
+}
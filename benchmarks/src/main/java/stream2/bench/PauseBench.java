@@ -0,0 +1,128 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2.bench;
+
+import kilim.Mailbox;
+import kilim.Pausable;
+import kilim.Scheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import stream2.IntStream;
+import stream2.StreamSupport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the cost of pausing and resuming a pipeline that's fed by a mailbox, by the pause rate and the
+ * number of stages. the score is elements per second, and the p50 and p99 latency from the put
+ * of an element to its arrival at the terminal op are printed at the end of each trial.
+ *
+ * <p>the producer and the pipeline share a single threaded scheduler, so the pause rate is exact:
+ * the producer puts a batch of elements and then waits for the pipeline to ack the last of them,
+ * and the pipeline pauses once it has drained the batch.
+ * a batch of 0 puts all the elements before the pipeline starts, so it never pauses
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PauseBench {
+    static final int SIZE = 10000;
+    static final int EOS = -1;
+
+    /** the number of elements per pause, or 0 for never */
+    @Param({"0", "64", "1"})
+    public int batch;
+
+    /** the number of map stages between the source and the terminal op */
+    @Param({"1", "2", "5", "10", "20"})
+    public int depth;
+
+    Scheduler scheduler;
+    final Latencies latencies = new Latencies();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        scheduler = new Scheduler(1);
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        // only the measured iterations are reported, so the warmup latencies are dropped
+        latencies.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.printf("batch %d, depth %d: latency p50 %d ns, p99 %d ns, of %d elements\n",
+                          batch, depth, latencies.percentile(.50), latencies.percentile(.99), latencies.count());
+        scheduler.shutdown();
+    }
+
+    /** puts the elements, stamping each with the time of its put */
+    static class Producer extends kilim.Task {
+        final Mailbox<Integer> mailbox;
+        final Mailbox<Integer> acks;
+        final long [] stamps;
+        final int batch;
+
+        Producer(Mailbox<Integer> mailbox, Mailbox<Integer> acks, long [] stamps, int batch) {
+            this.mailbox = mailbox;
+            this.acks = acks;
+            this.stamps = stamps;
+            this.batch = batch;
+        }
+
+        public void execute() throws Pausable {
+            for (int ii = 0; ii < stamps.length; ii++) {
+                stamps[ii] = System.nanoTime();
+                mailbox.put(ii);
+                if (batch > 0 && (ii + 1) % batch==0)
+                    acks.get();
+            }
+            mailbox.put(EOS);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long pipeline() {
+        Mailbox<Integer> mailbox = new Mailbox<>(SIZE + 1, SIZE + 1);
+        Mailbox<Integer> acks = new Mailbox<>();
+        long [] stamps = new long[SIZE];
+        Producer producer = new Producer(mailbox, acks, stamps, batch);
+        producer.setScheduler(scheduler);
+        producer.start();
+        if (batch==0)
+            producer.joinb();
+        int every = batch;
+        return Woven.call(scheduler, () -> {
+            IntStream stream = StreamSupport.intStream(mailbox, EOS, false)
+                    .peek(x -> { if (every > 0 && (x + 1) % every==0) acks.putnb(x); });
+            for (int ii = 0; ii < depth; ii++)
+                stream = stream.map(x -> x + 1);
+            int offset = depth;
+            return stream
+                    .peek(x -> latencies.record(System.nanoTime() - stamps[x - offset]))
+                    .asLongStream()
+                    .sum();
+        });
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import stream2.Arrays2;
+import stream2.Collectors;
+import stream2.Stream;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * reference pipelines, each stream2 benchmark paired with the java.util.stream equivalent.
+ * the stream2 pipelines run on a kilim task, see Woven
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefBench {
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    Integer [] data;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        data = new Integer[size];
+        for (int ii = 0; ii < size; ii++)
+            data[ii] = random.nextInt(size);
+    }
+
+    java.util.stream.Stream<Integer> jdk() {
+        java.util.stream.Stream<Integer> stream = Arrays.stream(data);
+        return parallel ? stream.parallel() : stream;
+    }
+
+    Stream<Integer> kilim() {
+        Stream<Integer> stream = Arrays2.stream(data);
+        return parallel ? stream.parallel() : stream;
+    }
+
+
+    @Benchmark
+    public long jdkMapFilterReduce() {
+        return jdk().map(x -> x * 3).filter(x -> (x & 1)==0).reduce(0, Integer::sum);
+    }
+
+    @Benchmark
+    public long kilimMapFilterReduce() {
+        return Woven.call(() -> kilim().map(x -> x * 3).filter(x -> (x & 1)==0).reduce(0, Integer::sum));
+    }
+
+    @Benchmark
+    public Object[] jdkSorted() {
+        return jdk().sorted().toArray();
+    }
+
+    @Benchmark
+    public Object[] kilimSorted() {
+        return Woven.call(() -> kilim().sorted().toArray());
+    }
+
+    @Benchmark
+    public long jdkDistinct() {
+        return jdk().distinct().count();
+    }
+
+    @Benchmark
+    public long kilimDistinct() {
+        return Woven.call(() -> kilim().distinct().count());
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> jdkGroupingBy() {
+        return jdk().collect(java.util.stream.Collectors.groupingBy(x -> x & 63));
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> kilimGroupingBy() {
+        return Woven.call(() -> kilim().collect(Collectors.groupingBy(x -> x & 63)));
+    }
+
+    @Benchmark
+    public long jdkFlatMap() {
+        return jdk().flatMap(x -> java.util.stream.Stream.of(x, x + 1)).count();
+    }
+
+    @Benchmark
+    public long kilimFlatMap() {
+        return Woven.call(() -> kilim().flatMap(x -> java.util.stream.Stream.of(x, x + 1)).count());
+    }
+
+    @Benchmark
+    public Object[] jdkLimit() {
+        return jdk().filter(x -> (x & 1)==0).limit(size / 4).toArray();
+    }
+
+    @Benchmark
+    public Object[] kilimLimit() {
+        return Woven.call(() -> kilim().filter(x -> (x & 1)==0).limit(size / 4).toArray());
+    }
+
+    @Benchmark
+    public Integer[] jdkToArray() {
+        return jdk().map(x -> x + 1).toArray(Integer[]::new);
+    }
+
+    @Benchmark
+    public Integer[] kilimToArray() {
+        return Woven.call(() -> kilim().map(x -> x + 1).toArray(Integer[]::new));
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2.bench;
+
+import kilim.ExitMsg;
+import kilim.Pausable;
+import kilim.Scheduler;
+
+/**
+ * run pausable code from a jmh benchmark method, which isn't woven.
+ * the body runs on a kilim task and the calling thread blocks until it exits,
+ * so the cost of a call includes a task start and join - keep the work per call large
+ */
+public final class Woven {
+    private Woven() { }
+
+    /** the pausable body of a benchmark */
+    public interface Body<T> {
+        T run() throws Pausable;
+    }
+
+    static class Runner<T> extends kilim.Task {
+        final Body<T> body;
+        T result;
+
+        Runner(Body<T> body) { this.body = body; }
+
+        public void execute() throws Pausable {
+            result = body.run();
+        }
+    }
+
+    /** run body on a kilim task, and return its result once it's complete */
+    public static <T> T call(Body<T> body) {
+        return call(null, body);
+    }
+
+    /** run body on a kilim task of the scheduler, or the default scheduler if null, and return its result */
+    public static <T> T call(Scheduler scheduler, Body<T> body) {
+        Runner<T> runner = new Runner<>(body);
+        if (scheduler != null)
+            runner.setScheduler(scheduler);
+        runner.start();
+        ExitMsg msg = runner.joinb();
+        if (msg.result instanceof RuntimeException) throw (RuntimeException) msg.result;
+        if (msg.result instanceof Error) throw (Error) msg.result;
+        if (msg.result instanceof Throwable) throw new RuntimeException((Throwable) msg.result);
+        return runner.result;
+    }
+}
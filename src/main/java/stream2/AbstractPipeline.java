@@ -142,6 +142,18 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
 
     private Runnable sourceCloseAction;
 
+    /**
+     * The name of the operation of this stage, ie the stream method that
+     * created it, for the metrics
+     */
+    private String opName;
+
+    /**
+     * The metrics of the terminal evaluation in progress, or null if the
+     * pipeline isn't instrumented; only valid for the source stage.
+     */
+    private PipelineMetrics metrics;
+
     /**
      * True if pipeline is parallel, otherwise the pipeline is sequential; only
      * valid for the source stage.
@@ -229,9 +241,65 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
-        return isParallel()
+        PipelineMetrics pm = startMetrics();
+        R result = isParallel()
                ? terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))
                : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        if (pm != null)
+            pm.complete();
+        return result;
+    }
+
+    /**
+     * Start collecting metrics for a terminal evaluation of this stage, if
+     * they're enabled.
+     *
+     * @return the metrics, or null if they aren't enabled
+     */
+    private PipelineMetrics startMetrics() {
+        if (!PipelineMetrics.isEnabled())
+            return null;
+        int index = stageIndex();
+        String [] names = new String[index + 2];
+        names[index + 1] = "terminal";
+        for ( @SuppressWarnings("rawtypes") AbstractPipeline p=AbstractPipeline.this; p != null; p=p.previousStage)
+            names[index--] = p.stageName();
+        return sourceStage.metrics = new PipelineMetrics(names, sourceStage.sourceSpliterator);
+    }
+
+    /**
+     * @return the position of this stage in the pipeline, 0 for the source stage
+     */
+    private int stageIndex() {
+        int index = 0;
+        for ( @SuppressWarnings("rawtypes") AbstractPipeline p=previousStage; p != null; p=p.previousStage)
+            index++;
+        return index;
+    }
+
+    /**
+     * Names the operation of this stage, for the metrics.  Set by the method
+     * or factory that constructs the stage.
+     *
+     * @param name the name of the stream method that created this stage
+     * @return this stage
+     */
+    @SuppressWarnings("unchecked")
+    final S named(String name) {
+        opName = name;
+        return (S) this;
+    }
+
+    /**
+     * @return the name of the operation of this stage for the metrics
+     */
+    private String stageName() {
+        if (previousStage==null)
+            return "source";
+        if (opName != null)
+            return opName;
+        String name = getClass().getName();
+        return name.substring(name.lastIndexOf('.') + 1);
     }
 
     /**
@@ -246,14 +314,19 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
+        PipelineMetrics pm = startMetrics();
+        Node<E_OUT> result;
         // If the last intermediate operation is stateful then
         // evaluate directly to avoid an extra collection step
         if (isParallel() && previousStage != null && opIsStateful()) {
-            return opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator);
+            result = opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator);
         }
         else {
-            return evaluate(sourceSpliterator(0), true, generator);
+            result = evaluate(sourceSpliterator(0), true, generator);
         }
+        if (pm != null)
+            pm.complete();
+        return result;
     }
 
     /**
@@ -356,8 +429,8 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             }
         }
         else {
-            if (checkLazy()) this.sequential();
-            return wrap(this, () -> sourceSpliteratorPrep(0), isParallel());
+            // stateful ops of a parallel pipeline are evaluated by the first traversal or split
+            return wrap(this, () -> sourceSpliteratorPrep(0), isParallel(), checkLazy());
         }
     }
 
@@ -472,8 +545,15 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         }
         return spliterator;
     }
-    // throw an exception for stateful parallel tasks since we can't propogate the chain
-    //   without being pausable
+    /**
+     * Returns whether this is a parallel pipeline with stateful operations, ie
+     * whether {@link #doLazy} needs to evaluate those operations before the
+     * source spliterator can be traversed.  The spliterator returned by
+     * {@link #spliterator()} can't evaluate them when it's created since that
+     * isn't pausable, so it defers to the first traversal or split.
+     *
+     * @return {@code true} if there are stateful operations to evaluate
+     */
     public boolean checkLazy() {
         if (isParallel())
             for ( @SuppressWarnings("rawtypes")
@@ -484,6 +564,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
                     return true;
         return false;
     }
+    @Override
     public Spliterator<?> doLazy(Spliterator<?> spliterator) throws Pausable {
         if (isParallel()) {
             // Adapt the source spliterator, evaluating each stateful op
@@ -524,12 +605,16 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     final <P_IN> void copyInto(Sink<P_IN> wrappedSink, Spliterator<P_IN> spliterator) throws Pausable {
         Objects.requireNonNull(wrappedSink);
 
         if (!StreamOpFlag.SHORT_CIRCUIT.isKnown(getStreamAndOpFlags())) {
             wrappedSink.begin(spliterator.getExactSizeIfKnown());
-            spliterator.forEachRemaining(wrappedSink);
+            if (spliterator instanceof Spliterator.NonPausing)
+                ((Spliterator.NonPausing<P_IN>) spliterator).forEachRemainingNow(wrappedSink);
+            else
+                spliterator.forEachRemaining(wrappedSink);
             wrappedSink.end();
         }
         else {
@@ -546,10 +631,21 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             p = p.previousStage;
         }
         wrappedSink.begin(spliterator.getExactSizeIfKnown());
-        p.forEachWithCancel(spliterator, wrappedSink);
+        if (spliterator instanceof Spliterator.NonPausing)
+            forEachWithCancelNow((Spliterator.NonPausing<P_IN>) spliterator, wrappedSink);
+        else
+            p.forEachWithCancel(spliterator, wrappedSink);
         wrappedSink.end();
     }
 
+    /**
+     * the unwoven equivalent of {@link #forEachWithCancel} for a source that never pauses.
+     * a primitive sink is passed to the primitive tryAdvanceNow by the NonPausing defaults
+     */
+    private static <P_IN> void forEachWithCancelNow(Spliterator.NonPausing<P_IN> spliterator, Sink<P_IN> sink) {
+        do { } while (!sink.cancellationRequested() && spliterator.tryAdvanceNow(sink));
+    }
+
     @Override
     final int getStreamAndOpFlags() {
         return combinedFlags;
@@ -564,8 +660,20 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     final <P_IN> Sink<P_IN> wrapSink(Sink<E_OUT> sink) {
         Objects.requireNonNull(sink);
 
+        PipelineMetrics pm = sourceStage.metrics;
+        if (pm == null) {
+            for ( @SuppressWarnings("rawtypes") AbstractPipeline p=AbstractPipeline.this; p.depth > 0; p=p.previousStage) {
+                sink = p.opWrapSink(p.previousStage.combinedFlags, sink);
+            }
+            return (Sink<P_IN>) sink;
+        }
+
+        // the sink accepts the output of this stage, ie the input of the next
+        int index = stageIndex();
+        sink = pm.wrap(index + 1, getOutputShape(), sink);
         for ( @SuppressWarnings("rawtypes") AbstractPipeline p=AbstractPipeline.this; p.depth > 0; p=p.previousStage) {
             sink = p.opWrapSink(p.previousStage.combinedFlags, sink);
+            sink = pm.wrap(index--, p.previousStage.getOutputShape(), sink);
         }
         return (Sink<P_IN>) sink;
     }
@@ -577,7 +685,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             return (Spliterator<E_OUT>) sourceSpliterator;
         }
         else {
-            return wrap(this, () -> sourceSpliterator, isParallel());
+            return wrap(this, () -> sourceSpliterator, isParallel(), false);
         }
     }
 
@@ -632,9 +740,14 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      *
      * @param ph the pipeline helper describing the pipeline stages
      * @param supplier the supplier of a spliterator
+     * @param isParallel true if the spliterator supports splitting
+     * @param lazy true if the stateful operations of the pipeline must be
+     *        evaluated, with {@link PipelineHelper#doLazy}, before the first
+     *        traversal or split
      * @return a wrapping spliterator compatible with this shape
      */
-    abstract <P_IN> Spliterator<E_OUT> wrap(PipelineHelper<E_OUT> ph, Supplier<Spliterator<P_IN>> supplier, boolean isParallel);
+    abstract <P_IN> Spliterator<E_OUT> wrap(PipelineHelper<E_OUT> ph, Supplier<Spliterator<P_IN>> supplier,
+                                            boolean isParallel, boolean lazy);
 
     /**
      * Create a lazy spliterator that wraps and obtains the supplied the
@@ -25,7 +25,6 @@
 package stream2;
 
 import kilim.Pausable;
-import java.util.concurrent.ForkJoinPool;
 
 /**
  * Abstract base class for most fork-join tasks used to implement stream ops.
@@ -90,10 +89,10 @@ abstract class AbstractTask<P_IN, P_OUT, R,
     /**
      * Default target factor of leaf tasks for parallel decomposition.
      * To allow load balancing, we over-partition, currently to approximately
-     * four tasks per processor, which enables others to help out
-     * if leaf tasks are uneven or some processors are otherwise busy.
+     * four tasks per kilim scheduler thread, which enables others to help out
+     * if leaf tasks are uneven or some threads are otherwise busy.
      */
-    static final int LEAF_TARGET = ForkJoinPool.getCommonPoolParallelism() << 2;
+    static final int LEAF_TARGET = ForkPool.PARALLELISM << 2;
 
     /** The pipeline helper, common to all tasks in a computation */
     protected final PipelineHelper<P_OUT> helper;
@@ -194,6 +193,12 @@ abstract class AbstractTask<P_IN, P_OUT, R,
                 (targetSize = suggestTargetSize(sizeEstimate)));
     }
 
+    @Override
+    long forkSize() {
+        Spliterator<P_IN> s = spliterator;
+        return s == null ? 0L : s.estimateSize();
+    }
+
     /**
      * Returns the local result, if any. Subclasses should use
      * {@link #setLocalResult(Object)} and {@link #getLocalResult()} to manage
@@ -69,8 +69,153 @@ import java.util.function.LongConsumer;
  * @since  1.2
  */
 public class Arrays2 {
-    static boolean kludge = true;
-    static void kludge() {}
+
+    /**
+     * The minimum array length below which a parallel sorting
+     * algorithm will not further partition the sorting task. Using
+     * smaller sizes typically results in memory contention across
+     * tasks that makes parallel speedups unlikely.
+     */
+    private static final int MIN_ARRAY_SORT_GRAN = 1 << 13;
+
+    /**
+     * is the sort too small, or the pool unable, to be worth running in parallel
+     */
+    private static boolean sequential(int n) {
+        return n <= MIN_ARRAY_SORT_GRAN || !ForkPool.REAL || ForkPool.PARALLELISM == 1;
+    }
+
+    /**
+     * the granularity of the leaf sorts for an array of length n
+     */
+    private static int gran(int n) {
+        int g = n / (ForkPool.PARALLELISM << 2);
+        return g <= MIN_ARRAY_SORT_GRAN ? MIN_ARRAY_SORT_GRAN : g;
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
+     * array into sub-arrays that are themselves sorted and then merged. When
+     * the sub-array length reaches a minimum granularity, the sub-array is
+     * sorted using the appropriate {@link java.util.Arrays#sort(int[]) Arrays.sort}
+     * method. If the length of the specified array is less than the minimum
+     * granularity, or the classes haven't been woven, then it is sorted
+     * using the sequential Arrays.sort method.
+     * The algorithm requires a working space no greater than the size of
+     * the original array. The subtasks are run on kilim tasks, and the
+     * calling task pauses (rather than blocking a thread) until the sort is complete.
+     *
+     * @param a the array to be sorted
+     */
+    public static void parallelSort(int[] a) throws Pausable {
+        int n = a.length;
+        if (sequential(n))
+            java.util.Arrays.sort(a);
+        else
+            new ArraysParallelSortHelpers.FJInt.Sorter
+                (null, a, new int[n], 0, n, 0, gran(n)).invoke();
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge, as described
+     * in {@link #parallelSort(int[])}.
+     *
+     * @param a the array to be sorted
+     */
+    public static void parallelSort(long[] a) throws Pausable {
+        int n = a.length;
+        if (sequential(n))
+            java.util.Arrays.sort(a);
+        else
+            new ArraysParallelSortHelpers.FJLong.Sorter
+                (null, a, new long[n], 0, n, 0, gran(n)).invoke();
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * <p>The {@code <} relation does not provide a total order on all double
+     * values: {@code -0.0d == 0.0d} is {@code true} and a {@code Double.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself. This method uses the total order imposed by the method
+     * {@link Double#compareTo}: {@code -0.0d} is treated as less than value
+     * {@code 0.0d} and {@code Double.NaN} is considered greater than any
+     * other value and all {@code Double.NaN} values are considered equal.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge, as described
+     * in {@link #parallelSort(int[])}.
+     *
+     * @param a the array to be sorted
+     */
+    public static void parallelSort(double[] a) throws Pausable {
+        int n = a.length;
+        if (sequential(n))
+            java.util.Arrays.sort(a);
+        else
+            new ArraysParallelSortHelpers.FJDouble.Sorter
+                (null, a, new double[n], 0, n, 0, gran(n)).invoke();
+    }
+
+    /**
+     * Sorts the specified array of objects into ascending order, according
+     * to the {@linkplain Comparable natural ordering} of its elements.
+     * All elements in the array must implement the {@link Comparable}
+     * interface.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge, as described
+     * in {@link #parallelSort(int[])}, with leaves sorted by
+     * {@link java.util.Arrays#sort(Object[]) Arrays.sort}.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     *
+     * @throws ClassCastException if the array contains elements that are not
+     *         <i>mutually comparable</i> (for example, strings and integers)
+     */
+    public static <T extends Comparable<? super T>> void parallelSort(T[] a) throws Pausable {
+        parallelSort(a, Comparator.<T>naturalOrder());
+    }
+
+    /**
+     * Sorts the specified array of objects according to the order induced by
+     * the specified comparator.  All elements in the array must be
+     * <i>mutually comparable</i> by the specified comparator.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge, as described
+     * in {@link #parallelSort(int[])}, with leaves sorted by
+     * {@link java.util.Arrays#sort(Object[],Comparator) Arrays.sort}.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param cmp the comparator to determine the order of the array.  A
+     *        {@code null} value indicates that the elements'
+     *        {@linkplain Comparable natural ordering} should be used.
+     * @throws ClassCastException if the array contains elements that are
+     *         not <i>mutually comparable</i> using the specified comparator.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> void parallelSort(T[] a, Comparator<? super T> cmp) throws Pausable {
+        if (cmp == null)
+            cmp = (Comparator) Comparator.naturalOrder();
+        int n = a.length;
+        if (sequential(n))
+            java.util.Arrays.sort(a, cmp);
+        else {
+            T[] w = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), n);
+            new ArraysParallelSortHelpers.FJObject.Sorter<T>
+                (null, a, w, 0, n, 0, gran(n), cmp).invoke();
+        }
+    }
 
     /**
      * Set all elements of the specified array, in parallel, using the
@@ -489,7 +634,7 @@ public class Arrays2 {
 
     
 
-    public static class Proxy <T> implements Spliterator<T>, Iterable<T> {
+    public static class Proxy <T> implements Spliterator<T>, Spliterator.NonPausing<T>, Iterable<T> {
         java.util.Spliterator<T> host;
 
         public Proxy(java.util.Spliterator<T> host) { this.host = host; }
@@ -505,6 +650,8 @@ public class Arrays2 {
         }
         public boolean tryAdvance(Consumer<? super T> action) throws Pausable { return host.tryAdvance( action ); }
         public void forEachRemaining(Consumer<? super T> action) throws Pausable { host.forEachRemaining( action ); }
+        public boolean tryAdvanceNow(Consumer<? super T> action) { return host.tryAdvance( action ); }
+        public void forEachRemainingNow(Consumer<? super T> action) { host.forEachRemaining( action ); }
         public long estimateSize() { return host.estimateSize(); }
         public long getExactSizeIfKnown() { return host.getExactSizeIfKnown(); }
         public int characteristics() { return host.characteristics(); }
@@ -518,82 +665,139 @@ public class Arrays2 {
             return stream().iterator();
         }
     }    
-    public static class P2
-        <T, T_CONS, T_SPLITR extends Spliterator.OfPrimitive<T, T_CONS, T_SPLITR>>
-        extends Proxy<T> implements Spliterator.OfPrimitive<T,T_CONS,T_SPLITR>
-    {
-        java.util.Spliterator.OfPrimitive<T,T_CONS,?> host2;
-    
-        public P2(java.util.Spliterator.OfPrimitive<T, T_CONS, ?> host) { super(host); }
-        
-        public T_SPLITR trySplit() throws Pausable {
-            return (T_SPLITR) super.trySplit();
+    /**
+     * proxy a random access list, eg ArrayList or Arrays.asList, traversing and splitting it by index
+     * instead of through the list's own spliterator.
+     * like the ArrayList spliterator, the size is bound at the first traversal, split or size query,
+     * and a change in size is reported after a bulk traversal
+     */
+    public static class ListProxy<T> extends Proxy<T> {
+        final java.util.List<T> list;
+        private int index;
+        private int fence; // -1 until bound
+        private int size;  // the size of the list when bound
+
+        public ListProxy(java.util.List<T> list) { this(list, 0, -1, -1); }
+
+        ListProxy(java.util.List<T> list, int origin, int fence, int size) {
+            super(null);
+            this.list = list;
+            this.index = origin;
+            this.fence = fence;
+            this.size = size;
         }
-        public boolean tryAdvance(T_CONS action) throws Pausable { return host2.tryAdvance( action ); }
-        public static class OfDouble
-                extends P2<Double, DoubleConsumer, Spliterator.OfDouble>
-                implements Spliterator.OfDouble {
-            OfDouble(java.util.Spliterator.OfDouble supplier) { super(supplier); }
-            protected P2.OfDouble alloc() {
-                return new P2.OfDouble(null);
-            }
+
+        private int getFence() {
+            int hi;
+            if ((hi = fence) < 0)
+                hi = fence = size = list.size();
+            return hi;
         }
-    } 
-    
+
+        public Spliterator<T> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return lo >= mid ? null : new ListProxy<>(list, lo, index = mid, size);
+        }
+        public boolean tryAdvance(Consumer<? super T> action) { return tryAdvanceNow(action); }
+        public void forEachRemaining(Consumer<? super T> action) { forEachRemainingNow(action); }
+        public boolean tryAdvanceNow(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            int hi = getFence(), ii = index;
+            if (ii >= hi)
+                return false;
+            index = ii + 1;
+            action.accept(list.get(ii));
+            return true;
+        }
+        public void forEachRemainingNow(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            java.util.List<T> a = list;
+            int hi = getFence(), ii = index;
+            index = hi;
+            for (; ii < hi; ii++)
+                action.accept(a.get(ii));
+            if (a.size() != size)
+                throw new java.util.ConcurrentModificationException();
+        }
+        public long estimateSize() { return getFence() - index; }
+        public long getExactSizeIfKnown() { return estimateSize(); }
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+        public boolean hasCharacteristics(int characteristics) {
+            return (characteristics() & characteristics)==characteristics;
+        }
+        public Comparator<? super T> getComparator() { throw new IllegalStateException(); }
+    }
+
+    /**
+     * proxy the primitive java.util spliterators, one class per primitive type so that each element
+     * goes from the host to the primitive consumer without boxing.
+     * the boxed Consumer overloads are inherited from the stream2 interfaces, which adapt them
+     * to the primitive consumer (and trip the Tripwire), so the host only ever sees a primitive consumer
+     */
     public abstract static class OfPrimitive2
         <T, T_CONS, T_SPLITR extends Spliterator.OfPrimitive<T, T_CONS, T_SPLITR>>
         implements Spliterator.OfPrimitive<T,T_CONS,T_SPLITR>
     {
-        java.util.Spliterator.OfPrimitive<T,T_CONS,?> host;
+        abstract java.util.Spliterator<T> host();
 
-        public OfPrimitive2(java.util.Spliterator.OfPrimitive<T, T_CONS, ?> host) {
-            this.host = host;
-        }
-
-        protected abstract T_SPLITR alloc();
-        
-        public T_SPLITR trySplit() throws Pausable {
-            OfPrimitive2 sp = (OfPrimitive2) alloc();
-            sp.host = host.trySplit();
-            return (T_SPLITR) sp;
-        }
-        public boolean tryAdvance(T_CONS action) throws Pausable { return host.tryAdvance( action ); }
-        public void forEachRemaining(T_CONS action) throws Pausable { host.forEachRemaining( action ); }
-        public boolean tryAdvance(Consumer<? super T> action) throws Pausable { return host.tryAdvance( action ); }
-        public void forEachRemaining(Consumer<? super T> action) throws Pausable { host.forEachRemaining( action ); }
-        public long estimateSize() { return host.estimateSize(); }
-        public long getExactSizeIfKnown() { return host.getExactSizeIfKnown(); }
-        public int characteristics() { return host.characteristics(); }
-        public boolean hasCharacteristics(int characteristics) { return host.hasCharacteristics( characteristics ); }
-        public Comparator<? super T> getComparator() { return host.getComparator(); }
+        public long estimateSize() { return host().estimateSize(); }
+        public long getExactSizeIfKnown() { return host().getExactSizeIfKnown(); }
+        public int characteristics() { return host().characteristics(); }
+        public boolean hasCharacteristics(int characteristics) { return host().hasCharacteristics( characteristics ); }
+        public Comparator<? super T> getComparator() { return host().getComparator(); }
 
         public static class OfInt
                 extends OfPrimitive2<Integer, IntConsumer, Spliterator.OfInt>
-                implements Spliterator.OfInt {
-            OfInt(java.util.Spliterator.OfInt supplier) { super(supplier); }
-            protected OfPrimitive2.OfInt alloc() {
-                return new OfPrimitive2.OfInt(null);
+                implements Spliterator.OfInt, Spliterator.NonPausing.OfInt {
+            final java.util.Spliterator.OfInt host;
+            OfInt(java.util.Spliterator.OfInt host) { this.host = host; }
+            java.util.Spliterator<Integer> host() { return host; }
+
+            public Spliterator.OfInt trySplit() throws Pausable {
+                java.util.Spliterator.OfInt h2 = host.trySplit();
+                return h2==null ? null : new OfPrimitive2.OfInt(h2);
             }
+            public boolean tryAdvance(IntConsumer action) throws Pausable { return host.tryAdvance( action ); }
+            public void forEachRemaining(IntConsumer action) throws Pausable { host.forEachRemaining( action ); }
+            public boolean tryAdvanceNow(IntConsumer action) { return host.tryAdvance( action ); }
+            public void forEachRemainingNow(IntConsumer action) { host.forEachRemaining( action ); }
         }
         public static class OfLong
                 extends OfPrimitive2<Long, LongConsumer, Spliterator.OfLong>
-                implements Spliterator.OfLong {
-            OfLong(java.util.Spliterator.OfLong supplier) { super(supplier); }
-            protected OfPrimitive2.OfLong alloc() {
-                return new OfPrimitive2.OfLong(null);
+                implements Spliterator.OfLong, Spliterator.NonPausing.OfLong {
+            final java.util.Spliterator.OfLong host;
+            OfLong(java.util.Spliterator.OfLong host) { this.host = host; }
+            java.util.Spliterator<Long> host() { return host; }
+
+            public Spliterator.OfLong trySplit() throws Pausable {
+                java.util.Spliterator.OfLong h2 = host.trySplit();
+                return h2==null ? null : new OfPrimitive2.OfLong(h2);
             }
+            public boolean tryAdvance(LongConsumer action) throws Pausable { return host.tryAdvance( action ); }
+            public void forEachRemaining(LongConsumer action) throws Pausable { host.forEachRemaining( action ); }
+            public boolean tryAdvanceNow(LongConsumer action) { return host.tryAdvance( action ); }
+            public void forEachRemainingNow(LongConsumer action) { host.forEachRemaining( action ); }
         }
         public static class OfDouble
                 extends OfPrimitive2<Double, DoubleConsumer, Spliterator.OfDouble>
-                implements Spliterator.OfDouble {
-            OfDouble(java.util.Spliterator.OfDouble supplier) { super(supplier); }
-            protected OfPrimitive2.OfDouble alloc() {
-                return new OfPrimitive2.OfDouble(null);
+                implements Spliterator.OfDouble, Spliterator.NonPausing.OfDouble {
+            final java.util.Spliterator.OfDouble host;
+            OfDouble(java.util.Spliterator.OfDouble host) { this.host = host; }
+            java.util.Spliterator<Double> host() { return host; }
+
+            public Spliterator.OfDouble trySplit() throws Pausable {
+                java.util.Spliterator.OfDouble h2 = host.trySplit();
+                return h2==null ? null : new OfPrimitive2.OfDouble(h2);
             }
+            public boolean tryAdvance(DoubleConsumer action) throws Pausable { return host.tryAdvance( action ); }
+            public void forEachRemaining(DoubleConsumer action) throws Pausable { host.forEachRemaining( action ); }
+            public boolean tryAdvanceNow(DoubleConsumer action) { return host.tryAdvance( action ); }
+            public void forEachRemainingNow(DoubleConsumer action) { host.forEachRemaining( action ); }
         }
     }
 
-    // fixme - add Collection, etc specializations
     // fixme - pull proxy usage up to top-level (where type info is available)
     
     public static OfPrimitive2.OfInt proxy(java.util.Spliterator.OfInt host) {
@@ -613,8 +817,14 @@ public class Arrays2 {
         return new IteratorProxy(host);
     }
     public static <TT> Proxy<TT> proxy(java.util.Collection<TT> host) {
+        if (host instanceof java.util.List && host instanceof java.util.RandomAccess
+                && !(host instanceof java.util.concurrent.CopyOnWriteArrayList))
+            return new ListProxy<>((java.util.List<TT>) host);
         return new Proxy(host.spliterator());
     }
+    public static <TT> Proxy<TT> proxy(TT [] host) {
+        return new ListProxy<>(java.util.Arrays.asList(host));
+    }
     public static <TT> IterableProxy<TT> proxy(java.lang.Iterable<TT> host) {
         return new IterableProxy(host);
     }
@@ -647,7 +857,7 @@ public class Arrays2 {
         public Stream<TT> parallelStream() { return StreamSupport.stream(spliterator(),true); }
         }
 
-    public static class SpliteratorProxy<TT> implements Spliterator<TT> {
+    public static class SpliteratorProxy<TT> implements Spliterator<TT>, Spliterator.NonPausing<TT> {
         java.util.Spliterator<TT> host;
         public SpliteratorProxy(java.util.Spliterator<TT> host) {
             this.host = host;
@@ -661,6 +871,14 @@ public class Arrays2 {
             host.forEachRemaining( action );
         }
 
+        public boolean tryAdvanceNow(Consumer<? super TT> action) {
+            return host.tryAdvance( action );
+        }
+
+        public void forEachRemainingNow(Consumer<? super TT> action) {
+            host.forEachRemaining( action );
+        }
+
         public Spliterator<TT> trySplit() throws Pausable {
             java.util.Spliterator<TT> h2 = host.trySplit();
             if (h2==null) return null;
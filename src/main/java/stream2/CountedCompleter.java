@@ -30,35 +30,79 @@ or the MIT license at your choice
 
 package stream2;
 
+import kilim.Mailbox;
 import kilim.Pausable;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
- * a fake fork/join task ... best attempt has been made to keep this working
- * for parallel streams, but it's mostly untested
+ * a fork/join task that runs on kilim tasks - each invoked computation gets a work-stealing
+ * {@link ForkPool} with a worker per kilim scheduler thread, and pending counts and status are updated atomically.
+ * when the classes haven't been woven (eg, during testing) or {@link ForkPool#REAL} is disabled,
+ * fork runs the subtask inline, ie the computation is sequential
  */
 abstract class CountedCompleter<TT> {
-    /** fork is fake, ie it's sequential which allows bypassing locks
-     * this method is used as a marker to track places that are dependent on this assumption
-     * in case fork/join is ever "fixed" and multiple threads are implemented
-     */
-    final static void forkIsFake() {}
 
+    /**
+     * Invokes the computation, ie computes this task and then waits for the
+     * completion of any forked subtasks.  Exceptions thrown by forked subtasks
+     * are relayed to the caller.  The pool is closed however the computation
+     * ends, so that a failure of the invoking task doesn't strand the workers.
+     *
+     * @return the computed result
+     */
     public final TT invoke() throws Pausable {
-        compute();
+        if (ForkPool.REAL) {
+            pool = new ForkPool(this);
+            done = new Mailbox<>();
+        }
+        try {
+            compute();
+            if (done != null && status >= 0)
+                done.get();
+        }
+        catch (Throwable ex) {
+            // inline forks have nothing to release, and the exception is already in order
+            if (pool == null)
+                throw ex;
+            completeExceptionally(ex);
+        }
+        finally {
+            if (pool != null)
+                pool.close();
+        }
+        reportException();
         return getRawResult();
     }
     public final void fork() throws Pausable {
-        Arrays2.kludge();
-        if (status >= 0) this.compute(); // from ForkJoinPool.runTask
+        if (status >= 0) {
+            if (pool != null) pool.fork(worker, this);
+            else this.compute(); // from ForkJoinPool.runTask
+        }
     }
     volatile int status; // accessed directly by pool and workers
     static private final int NORMAL      = 0xf0000000;  // must be negative
+    static private final int EXCEPTIONAL = 0x80000000;  // must be < NORMAL
     private static final long serialVersionUID = 5232453752276485070L;
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<CountedCompleter> PENDING =
+            AtomicIntegerFieldUpdater.newUpdater(CountedCompleter.class, "pending");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<CountedCompleter> STATUS =
+            AtomicIntegerFieldUpdater.newUpdater(CountedCompleter.class, "status");
+
     /** This task's completer, or null if none */
     final CountedCompleter<?> completer;
     /** The number of pending tasks until completion */
     volatile int pending;
+    /** signalled on completion of the root of an invoked computation, null if not waiting */
+    private volatile Mailbox<Object> done;
+    /** the first exception thrown by a forked subtask, only set on the root */
+    private volatile Throwable exception;
+    /** the pool running the computation, null if forks are inline */
+    ForkPool pool;
+    /** the worker that is running this task, or null for the invoker */
+    ForkPool.Worker worker;
 
 
     /**
@@ -69,6 +113,23 @@ abstract class CountedCompleter<TT> {
      */
     protected CountedCompleter(CountedCompleter<?> completer) {
         this.completer = completer;
+        if (completer != null) {
+            this.pool = completer.pool;
+            this.worker = completer.worker;
+        }
+    }
+
+    /**
+     * Creates a new CountedCompleter with the given completer
+     * and initial pending count.
+     *
+     * @param completer this task's completer, or {@code null} if none
+     * @param initialPendingCount the initial pending count
+     */
+    protected CountedCompleter(CountedCompleter<?> completer,
+                               int initialPendingCount) {
+        this(completer);
+        this.pending = initialPendingCount;
     }
 
     /**
@@ -134,8 +195,7 @@ abstract class CountedCompleter<TT> {
      * @param delta the value to add
      */
     public final void addToPendingCount(int delta) {
-        Arrays2.kludge();
-        pending += delta;
+        PENDING.addAndGet(this, delta);
     }
 
 
@@ -149,18 +209,16 @@ abstract class CountedCompleter<TT> {
      */
     public final void tryComplete() throws Pausable {
         CountedCompleter<?> a = this, s = a;
-        for (;;) {
-            if (a.pending==0) {
+        for (int c;;) {
+            if ((c = a.pending) == 0) {
                 a.onCompletion(s);
                 if ((a = (s = a).completer) == null) {
                     s.quietlyComplete();
                     return;
                 }
             }
-            else {
-                a.pending--;
+            else if (PENDING.compareAndSet(a, c, c - 1))
                 return;
-            }
         }
     }
 
@@ -175,17 +233,15 @@ abstract class CountedCompleter<TT> {
      */
     public final void propagateCompletion() {
         CountedCompleter<?> a = this, s = a;
-        for (;;) {
-            if (a.pending==0) {
+        for (int c;;) {
+            if ((c = a.pending) == 0) {
                 if ((a = (s = a).completer) == null) {
                     s.quietlyComplete();
                     return;
                 }
             }
-            else {
-                a.pending--;
+            else if (PENDING.compareAndSet(a, c, c - 1))
                 return;
-            }
         }
     }
 
@@ -207,9 +263,75 @@ abstract class CountedCompleter<TT> {
      */
     public TT getRawResult() { return null; }
 
+    /**
+     * Returns an estimate of the amount of work remaining in this task, used
+     * by {@link ForkPool} to steal the largest pending subtask.  By default
+     * returns zero.
+     *
+     * @return the estimated work, eg the size of the task's spliterator
+     */
+    long forkSize() { return 0L; }
 
+
+    /**
+     * Returns the root of the current computation; i.e., this
+     * task if it has no completer, else its completer's root.
+     *
+     * @return the root of the current computation
+     */
+    public final CountedCompleter<?> getRoot() {
+        CountedCompleter<?> a = this, p;
+        while ((p = a.completer) != null)
+            a = p;
+        return a;
+    }
+
+    /**
+     * Completes this task normally without invoking {@link #onCompletion},
+     * waking the invoker if this is the root of an invoked computation.
+     */
     public final void quietlyComplete() {
-        Arrays2.kludge();
-        if (status==0) status |= NORMAL;
+        for (int s; (s = status) >= 0;)
+            if (STATUS.compareAndSet(this, s, s | NORMAL)) {
+                signal();
+                return;
+            }
+    }
+
+    /**
+     * Records an exception thrown by a forked subtask and completes the root
+     * of the computation abnormally, so that {@link #invoke} can rethrow it.
+     * The root is the invoked task, even for a subtask whose chain of completers
+     * doesn't lead to it.
+     *
+     * @param ex the exception
+     */
+    final void completeExceptionally(Throwable ex) {
+        CountedCompleter<?> root = pool==null ? getRoot() : pool.root;
+        if (root.exception == null)
+            root.exception = ex;
+        for (int s; (s = root.status) >= 0;)
+            if (STATUS.compareAndSet(root, s, s | EXCEPTIONAL)) {
+                root.signal();
+                return;
+            }
+    }
+
+    private void signal() {
+        Mailbox<Object> mb = done;
+        if (mb != null) {
+            mb.putnb(this);
+            pool.close();
+        }
+    }
+
+    private void reportException() {
+        Throwable ex = exception;
+        if (ex instanceof RuntimeException)
+            throw (RuntimeException) ex;
+        if (ex instanceof Error)
+            throw (Error) ex;
+        if (ex != null)
+            throw new RuntimeException(ex);
     }
 }
@@ -25,13 +25,15 @@
 package stream2;
 
 import kilim.Pausable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BinaryOperator;
 import java.util.function.IntFunction;
+import java.util.function.ObjDoubleConsumer;
 
 /**
  * Factory methods for transforming streams into duplicate-free streams, using
@@ -76,26 +78,13 @@ final class DistinctOps {
                     return reduce(helper, spliterator);
                 }
                 else {
-                    // Holder of null state since ConcurrentHashMap does not support null values
-                    AtomicBoolean seenNull = new AtomicBoolean(false);
-                    ConcurrentHashMap<T, Boolean> map = new ConcurrentHashMap<>();
-                    TerminalOp<T, Void> forEachOp = ForEachOps.makeRef(t -> {
-                        if (t == null)
-                            seenNull.set(true);
-                        else
-                            map.putIfAbsent(t, Boolean.TRUE);
-                    }, false);
-                    forEachOp.evaluateParallel(helper, spliterator);
-
-                    // If null has been seen then copy the key set into a HashSet that supports null values
-                    // and add null
-                    Set<T> keys = map.keySet();
-                    if (seenNull.get()) {
-                        // TODO Implement a more efficient set-union view, rather than copying
-                        keys = new HashSet<>(keys);
-                        keys.add(null);
-                    }
-                    return Nodes.node(keys);
+                    // Each leaf collects into its own striped set, so there's no shared map to contend on.
+                    // Equal elements share a stripe, so the stripes are merged independently of each other
+                    // and the resulting node is the union of the disjoint stripes, without copying
+                    TerminalOp<T, StripedSet<T>> reduceOp
+                            = ReduceOps.<T, StripedSet<T>>makeRef(StripedSet::new, StripedSet::add,
+                                                                  StripedSet::combine);
+                    return reduceOp.evaluateParallel(helper, spliterator).node();
                 }
             }
 
@@ -180,4 +169,384 @@ final class DistinctOps {
             }
         };
     }
+
+    /**
+     * Appends a "distinct" operation to the provided int stream, and returns the
+     * new stream.
+     *
+     * @param upstream an int stream
+     * @return the new stream
+     */
+    static IntPipeline<Integer> makeInt(AbstractPipeline<?, Integer, ?> upstream) {
+        return new IntPipeline.StatefulOp<Integer>(upstream, StreamShape.INT_VALUE,
+                                                   StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+
+            @Override
+            <P_IN> Node<Integer> opEvaluateParallel(PipelineHelper<Integer> helper,
+                                                    Spliterator<P_IN> spliterator,
+                                                    IntFunction<Integer[]> generator) throws Pausable {
+                int flags = helper.getStreamAndOpFlags();
+                if (StreamOpFlag.DISTINCT.isKnown(flags))
+                    return helper.evaluate(spliterator, false, generator);
+                BinaryOperator<LongSet> combiner = LongSet.combiner(StreamOpFlag.ORDERED.isKnown(flags));
+                return Nodes.node(ReduceOps.makeInt(LongSet::new, LongSet::add, combiner)
+                                          .evaluateParallel(helper, spliterator).intArray());
+            }
+
+            @Override
+            Sink<Integer> opWrapSink(int flags, Sink<Integer> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags)) {
+                    return sink;
+                } else if (StreamOpFlag.SORTED.isKnown(flags)) {
+                    return new Sink.ChainedInt<Integer>(sink) {
+                        boolean seenAny;
+                        int lastSeen;
+
+                        @Override
+                        public void begin(long size) {
+                            seenAny = false;
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void accept(int t) {
+                            if (!seenAny || t != lastSeen) {
+                                seenAny = true;
+                                downstream.accept(lastSeen = t);
+                            }
+                        }
+                    };
+                } else {
+                    return new Sink.ChainedInt<Integer>(sink) {
+                        LongSet seen;
+
+                        @Override
+                        public void begin(long size) {
+                            seen = new LongSet();
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void end() {
+                            seen = null;
+                            downstream.end();
+                        }
+
+                        @Override
+                        public void accept(int t) {
+                            if (seen.add(t))
+                                downstream.accept(t);
+                        }
+                    };
+                }
+            }
+        };
+    }
+
+    /**
+     * Appends a "distinct" operation to the provided long stream, and returns the
+     * new stream.
+     *
+     * @param upstream a long stream
+     * @return the new stream
+     */
+    static LongPipeline<Long> makeLong(AbstractPipeline<?, Long, ?> upstream) {
+        return new LongPipeline.StatefulOp<Long>(upstream, StreamShape.LONG_VALUE,
+                                                 StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+
+            @Override
+            <P_IN> Node<Long> opEvaluateParallel(PipelineHelper<Long> helper,
+                                                 Spliterator<P_IN> spliterator,
+                                                 IntFunction<Long[]> generator) throws Pausable {
+                int flags = helper.getStreamAndOpFlags();
+                if (StreamOpFlag.DISTINCT.isKnown(flags))
+                    return helper.evaluate(spliterator, false, generator);
+                BinaryOperator<LongSet> combiner = LongSet.combiner(StreamOpFlag.ORDERED.isKnown(flags));
+                return Nodes.node(ReduceOps.makeLong(LongSet::new, LongSet::add, combiner)
+                                          .evaluateParallel(helper, spliterator).longArray());
+            }
+
+            @Override
+            Sink<Long> opWrapSink(int flags, Sink<Long> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags)) {
+                    return sink;
+                } else if (StreamOpFlag.SORTED.isKnown(flags)) {
+                    return new Sink.ChainedLong<Long>(sink) {
+                        boolean seenAny;
+                        long lastSeen;
+
+                        @Override
+                        public void begin(long size) {
+                            seenAny = false;
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void accept(long t) {
+                            if (!seenAny || t != lastSeen) {
+                                seenAny = true;
+                                downstream.accept(lastSeen = t);
+                            }
+                        }
+                    };
+                } else {
+                    return new Sink.ChainedLong<Long>(sink) {
+                        LongSet seen;
+
+                        @Override
+                        public void begin(long size) {
+                            seen = new LongSet();
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void end() {
+                            seen = null;
+                            downstream.end();
+                        }
+
+                        @Override
+                        public void accept(long t) {
+                            if (seen.add(t))
+                                downstream.accept(t);
+                        }
+                    };
+                }
+            }
+        };
+    }
+
+    /**
+     * Appends a "distinct" operation to the provided double stream, and returns the
+     * new stream. Values are compared as by {@link Double#equals(Object)}, ie by their
+     * canonical bits, so NaN is distinct once and -0.0 is distinct from 0.0
+     *
+     * @param upstream a double stream
+     * @return the new stream
+     */
+    static DoublePipeline<Double> makeDouble(AbstractPipeline<?, Double, ?> upstream) {
+        return new DoublePipeline.StatefulOp<Double>(upstream, StreamShape.DOUBLE_VALUE,
+                                                     StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+
+            @Override
+            <P_IN> Node<Double> opEvaluateParallel(PipelineHelper<Double> helper,
+                                                   Spliterator<P_IN> spliterator,
+                                                   IntFunction<Double[]> generator) throws Pausable {
+                int flags = helper.getStreamAndOpFlags();
+                if (StreamOpFlag.DISTINCT.isKnown(flags))
+                    return helper.evaluate(spliterator, false, generator);
+                BinaryOperator<LongSet> combiner = LongSet.combiner(StreamOpFlag.ORDERED.isKnown(flags));
+                ObjDoubleConsumer<LongSet> accumulator = (set, t) -> set.add(Double.doubleToLongBits(t));
+                return Nodes.node(ReduceOps.makeDouble(LongSet::new, accumulator, combiner)
+                                          .evaluateParallel(helper, spliterator).doubleArray());
+            }
+
+            @Override
+            Sink<Double> opWrapSink(int flags, Sink<Double> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags)) {
+                    return sink;
+                } else if (StreamOpFlag.SORTED.isKnown(flags)) {
+                    return new Sink.ChainedDouble<Double>(sink) {
+                        boolean seenAny;
+                        long lastSeen;
+
+                        @Override
+                        public void begin(long size) {
+                            seenAny = false;
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void accept(double t) {
+                            long bits = Double.doubleToLongBits(t);
+                            if (!seenAny || bits != lastSeen) {
+                                seenAny = true;
+                                lastSeen = bits;
+                                downstream.accept(t);
+                            }
+                        }
+                    };
+                } else {
+                    return new Sink.ChainedDouble<Double>(sink) {
+                        LongSet seen;
+
+                        @Override
+                        public void begin(long size) {
+                            seen = new LongSet();
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void end() {
+                            seen = null;
+                            downstream.end();
+                        }
+
+                        @Override
+                        public void accept(double t) {
+                            if (seen.add(Double.doubleToLongBits(t)))
+                                downstream.accept(t);
+                        }
+                    };
+                }
+            }
+        };
+    }
+
+    /**
+     * An insertion ordered set of longs, backing the primitive distinct ops without boxing.
+     * Keys are appended to a dense array, and an open addressing table with linear probing
+     * holds the 1-based index of each key, so there's no reserved key value and iteration
+     * is in encounter order. Ints are widened, and doubles are stored as their canonical bits
+     */
+    static final class LongSet {
+        private long[] keys = new long[16];
+        private int[] table = new int[32];
+        private int size;
+
+        static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        /**
+         * add a key to the set
+         * @return true if the key was not already present
+         */
+        boolean add(long key) {
+            int mask = table.length - 1;
+            int ii = hash(key) & mask;
+            for (int index; (index = table[ii]) != 0; ii = (ii+1) & mask)
+                if (keys[index-1]==key)
+                    return false;
+            if (size==keys.length)
+                keys = Arrays.copyOf(keys, 2*size);
+            keys[size++] = key;
+            table[ii] = size;
+            if (2*size > table.length)
+                rehash();
+            return true;
+        }
+
+        private void rehash() {
+            int [] old = table;
+            table = new int[2*old.length];
+            int mask = table.length - 1;
+            for (int index : old)
+                if (index != 0) {
+                    int ii = hash(keys[index-1]) & mask;
+                    while (table[ii] != 0)
+                        ii = (ii+1) & mask;
+                    table[ii] = index;
+                }
+        }
+
+        int size() { return size; }
+
+        /** add the keys of the other set, after the keys of this set */
+        LongSet addAll(LongSet other) {
+            for (int ii = 0; ii < other.size; ii++)
+                add(other.keys[ii]);
+            return this;
+        }
+
+        /**
+         * a combiner for the leaves of a parallel distinct
+         * @param ordered whether the encounter order must be preserved, else the smaller set
+         *        is merged into the larger
+         */
+        static BinaryOperator<LongSet> combiner(boolean ordered) {
+            return ordered
+                    ? LongSet::addAll
+                    : (a, b) -> a.size >= b.size ? a.addAll(b) : b.addAll(a);
+        }
+
+        int[] intArray() {
+            int[] array = new int[size];
+            for (int ii = 0; ii < size; ii++)
+                array[ii] = (int) keys[ii];
+            return array;
+        }
+
+        long[] longArray() {
+            return Arrays.copyOf(keys, size);
+        }
+
+        double[] doubleArray() {
+            double[] array = new double[size];
+            for (int ii = 0; ii < size; ii++)
+                array[ii] = Double.longBitsToDouble(keys[ii]);
+            return array;
+        }
+    }
+
+    /**
+     * The distinct elements seen by a leaf task of an unordered parallel distinct, hashed into
+     * stripes, along with the stripes of the leaves that have been combined with it.
+     * Elements are striped on the high bits of a mixed hash, since the stripe's HashSet buckets
+     * on the low bits. Null is a valid element, and lands in stripe 0
+     *
+     * @param <T> the type of elements
+     */
+    static final class StripedSet<T> {
+        /** log2 of the number of stripes, at least one stripe per leaf and at least 2 */
+        static final int BITS = Math.max(1, 32 - Integer.numberOfLeadingZeros(AbstractTask.LEAF_TARGET - 1));
+
+        final HashSet<T>[] stripes = newStripes(1 << BITS);
+        final ArrayList<HashSet<T>[]> leaves = new ArrayList<>();
+
+        StripedSet() {
+            leaves.add(stripes);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> HashSet<T>[] newStripes(int n) {
+            return (HashSet<T>[]) new HashSet<?>[n];
+        }
+
+        static int stripe(Object t) {
+            return t == null ? 0 : (t.hashCode() * 0x9E3779B9) >>> (32 - BITS);
+        }
+
+        void add(T t) {
+            int i = stripe(t);
+            HashSet<T> set = stripes[i];
+            if (set == null)
+                stripes[i] = set = new HashSet<>();
+            set.add(t);
+        }
+
+        /** defer merging the other leaves until the computation is complete */
+        void combine(StripedSet<T> other) {
+            leaves.addAll(other.leaves);
+        }
+
+        /** merge the i'th stripe of each leaf into the largest of them */
+        HashSet<T> merge(int i) {
+            HashSet<T> union = null;
+            for (HashSet<T>[] leaf : leaves)
+                if (leaf[i] != null && (union == null || leaf[i].size() > union.size()))
+                    union = leaf[i];
+            for (HashSet<T>[] leaf : leaves)
+                if (leaf[i] != null && leaf[i] != union)
+                    union.addAll(leaf[i]);
+            return union;
+        }
+
+        /**
+         * merge the leaves, stripe by stripe and in parallel
+         * @return a node that is the union of the merged stripes
+         */
+        Node<T> node() throws Pausable {
+            if (leaves.size() > 1)
+                IntStream.range(0, stripes.length).parallel().forEach(i -> stripes[i] = merge(i));
+            return Nodes.union(stripes);
+        }
+    }
 }
@@ -138,8 +138,8 @@ abstract class DoublePipeline<E_IN>
     }
 
     @Override
-    final <P_IN> Spliterator<Double> wrap(PipelineHelper<Double> ph, Supplier<Spliterator<P_IN>> supplier, boolean isParallel) {
-        return new StreamSpliterators.DoubleWrappingSpliterator<>(ph, supplier, isParallel);
+    final <P_IN> Spliterator<Double> wrap(PipelineHelper<Double> ph, Supplier<Spliterator<P_IN>> supplier, boolean isParallel, boolean lazy) {
+        return new StreamSpliterators.DoubleWrappingSpliterator<>(ph, supplier, isParallel, lazy);
     }
 
     @Override
@@ -177,7 +177,7 @@ abstract class DoublePipeline<E_IN>
 
     @Override
     public final Stream<Double> boxed() {
-        return mapToObj(Double::valueOf);
+        return mapToObj(Double::valueOf, "boxed");
     }
 
     @Override
@@ -194,11 +194,15 @@ abstract class DoublePipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("map");
     }
 
     @Override
     public final <U> Stream<U> mapToObj(DoubleFunction<? extends U> mapper) {
+        return mapToObj(mapper, "mapToObj");
+    }
+
+    private <U> Stream<U> mapToObj(DoubleFunction<? extends U> mapper, String name) {
         Objects.requireNonNull(mapper);
         return new ReferencePipeline.StatelessOp<Double, U>(this, StreamShape.DOUBLE_VALUE,
                                                             StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT) {
@@ -211,7 +215,7 @@ abstract class DoublePipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named(name);
     }
 
     @Override
@@ -228,7 +232,7 @@ abstract class DoublePipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("mapToInt");
     }
 
     @Override
@@ -245,7 +249,7 @@ abstract class DoublePipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("mapToLong");
     }
 
     @Override
@@ -270,7 +274,7 @@ abstract class DoublePipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("flatMap");
     }
 
     @Override
@@ -282,7 +286,7 @@ abstract class DoublePipeline<E_IN>
             Sink<Double> opWrapSink(int flags, Sink<Double> sink) {
                 return sink;
             }
-        };
+        }.named("unordered");
     }
 
     @Override
@@ -305,7 +309,7 @@ abstract class DoublePipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("filter");
     }
 
     @Override
@@ -323,7 +327,7 @@ abstract class DoublePipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("peek");
     }
 
     // Stateful intermediate ops from DoubleStream
@@ -332,7 +336,9 @@ abstract class DoublePipeline<E_IN>
     public final DoubleStream limit(long maxSize) {
         if (maxSize < 0)
             throw new IllegalArgumentException(Long.toString(maxSize));
-        return SliceOps.makeDouble(this, (long) 0, maxSize);
+        DoubleStream slice = SliceOps.makeDouble(this, (long) 0, maxSize);
+        SortedOps.bound(this, maxSize);
+        return slice;
     }
 
     @Override
@@ -347,16 +353,44 @@ abstract class DoublePipeline<E_IN>
         }
     }
 
+    @Override
+    public final Stream<double[]> window(int n) {
+        return WindowOps.makeDouble(this, n);
+    }
+
+    @Override
+    public final DoubleStream slidingSum(int n) {
+        return SlidingOps.makeDouble(this, n, SlidingOps.Kind.SUM);
+    }
+
+    @Override
+    public final DoubleStream slidingMin(int n) {
+        return SlidingOps.makeDouble(this, n, SlidingOps.Kind.MIN);
+    }
+
+    @Override
+    public final DoubleStream slidingMax(int n) {
+        return SlidingOps.makeDouble(this, n, SlidingOps.Kind.MAX);
+    }
+
+    @Override
+    public final DoubleStream slidingAverage(int n) {
+        return SlidingOps.makeDouble(this, n, SlidingOps.Kind.AVERAGE);
+    }
+
     @Override
     public final DoubleStream sorted() {
         return SortedOps.makeDouble(this);
     }
 
+    @Override
+    public final DoubleStream sorted(long budget) {
+        return Spill.makeDouble(this, budget);
+    }
+
     @Override
     public final DoubleStream distinct() {
-        // While functional and quick to implement, this approach is not very efficient.
-        // An efficient version requires a double-specific map/set implementation.
-        return boxed().distinct().mapToDouble(i -> (double) i);
+        return DistinctOps.makeDouble(this).named("distinct");
     }
 
     // Terminal ops from DoubleStream
@@ -489,6 +523,8 @@ abstract class DoublePipeline<E_IN>
 
     @Override
     public final OptionalDouble findFirst() throws Pausable {
+        if (SortedOps.isSorting(this))
+            return limit(1).findFirst();
         return evaluate(FindOps.makeDouble(true));
     }
 
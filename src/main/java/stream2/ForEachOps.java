@@ -272,6 +272,12 @@ final class ForEachOps {
             this.helper = parent.helper;
         }
 
+        @Override
+        long forkSize() {
+            Spliterator<S> s = spliterator;
+            return s == null ? 0L : s.estimateSize();
+        }
+
         // Similar to AbstractTask but doesn't need to track child tasks
         public void compute() throws Pausable {
             Spliterator<S> rightSplit = spliterator, leftSplit;
@@ -350,6 +356,12 @@ final class ForEachOps {
             this.leftPredecessor = leftPredecessor;
         }
 
+        @Override
+        long forkSize() {
+            Spliterator<S> s = spliterator;
+            return s == null ? 0L : s.estimateSize();
+        }
+
         @Override
         public final void compute() throws Pausable {
             doCompute(this);
@@ -406,9 +418,8 @@ final class ForEachOps {
             spliterator = null;
             if (node != null) {
                 // Dump any data from this leaf into the sink
-                // this used to be synchronized, but the fork/join is now fake so not needed
-                // and kilim can't weave locks
-                CountedCompleter.forkIsFake();
+                // no lock (kilim can't weave them) - the completion map only lets a leaf dump once
+                // its left predecessor has, and the atomic pending counts order the two dumps
                 node.forEach2(action);
                 node = null;
             }
@@ -0,0 +1,182 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import kilim.Mailbox;
+import kilim.Pausable;
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * a work-stealing executor for the forked {@link CountedCompleter} subtasks of a single invoked
+ * computation, which makes parallel streams actually parallel.
+ * there's one kilim task per thread of the kilim scheduler, each with a deque of forked subtasks.
+ * a worker runs the newest task in its own deque, and when that's empty steals the oldest task of
+ * whichever deque holds the largest one - the oldest subtasks are the least split.
+ * subtasks forked by the invoker itself go to a shared submission deque.
+ *
+ * <p>forks are only real if the classes have been woven - an unwoven kilim task can't run pausable code
+ * (eg during testing), so in that case fork falls back to running the subtask inline, ie sequentially.
+ * setting the system property {@code stream2.fork.fake} forces the inline behavior, but affects only
+ * fork/join - woven code that waits on a mailbox still pauses, see {@link #WOVEN}
+ */
+final class ForkPool {
+    private static final String FAKE_PROPERTY = "stream2.fork.fake";
+
+    /**
+     * Have the classes been woven, ie can a kilim task pause? decides between pausing and blocking
+     * the thread, independent of {@link #REAL}, since a woven task must pause even when forks are fake
+     */
+    static final boolean WOVEN = isWoven();
+
+    /** Are forked subtasks run concurrently on kilim tasks? */
+    static final boolean REAL = !AccessController.doPrivileged(
+            (PrivilegedAction<Boolean>) () -> Boolean.getBoolean(FAKE_PROPERTY)) && WOVEN;
+
+    /** The number of workers, ie the number of kilim scheduler threads */
+    static final int PARALLELISM = Math.max(1, kilim.Scheduler.defaultNumberThreads);
+
+    private static final Object TOKEN = new Object();
+
+    /** The invoked task, ie the root of the computation */
+    final CountedCompleter<?> root;
+    final Worker[] workers;
+    final ConcurrentLinkedDeque<CountedCompleter<?>> submissions = new ConcurrentLinkedDeque<>();
+    private final Mailbox<Object> wake = new Mailbox<>();
+    private final AtomicInteger idle = new AtomicInteger();
+    /** set by the first fork, which starts the workers */
+    final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean closed;
+
+    ForkPool(CountedCompleter<?> root) {
+        this(root, PARALLELISM);
+    }
+
+    ForkPool(CountedCompleter<?> root, int parallelism) {
+        this.root = root;
+        workers = new Worker[parallelism];
+        for (int ii = 0; ii < parallelism; ii++)
+            workers[ii] = new Worker(this);
+    }
+
+    /**
+     * the weaver adds a trailing Fiber argument to each pausable method,
+     * so a woven CountedCompleter has a method that accepts one
+     */
+    static boolean isWoven() {
+        for (Method method : CountedCompleter.class.getDeclaredMethods())
+            for (Class<?> type : method.getParameterTypes())
+                if (type.getName().equals("kilim.Fiber"))
+                    return true;
+        return false;
+    }
+
+    /**
+     * schedule the task to be computed asynchronously, pushing it onto the deque of the forking worker
+     * @param worker the worker running the forking task, or null for the invoker
+     * @param task the forked task
+     */
+    void fork(Worker worker, CountedCompleter<?> task) {
+        (worker==null ? submissions : worker.deque).addLast(task);
+        if (started.compareAndSet(false, true))
+            for (Worker w : workers)
+                w.start();
+        else if (idle.get() > 0)
+            wake.putnb(TOKEN);
+    }
+
+    /**
+     * find the deque whose oldest task is the largest, and take that task
+     * @param thief the stealing worker, whose own deque is skipped
+     * @return the stolen task, or null if none are pending
+     */
+    CountedCompleter<?> steal(Worker thief) {
+        for (;;) {
+            ConcurrentLinkedDeque<CountedCompleter<?>> victim = null;
+            long best = -1;
+            CountedCompleter<?> task = submissions.peekFirst();
+            if (task != null) {
+                victim = submissions;
+                best = task.forkSize();
+            }
+            for (Worker w : workers) {
+                if (w==thief || (task = w.deque.peekFirst())==null) continue;
+                long size = task.forkSize();
+                if (size > best) {
+                    victim = w.deque;
+                    best = size;
+                }
+            }
+            if (victim==null) return null;
+            // the owner may have raced us for it, in which case rescan
+            if ((task = victim.pollFirst()) != null) return task;
+        }
+    }
+
+    /**
+     * yield the kilim task, eg between phases of a long computation, if forks are real.
+     * unwoven, yielding isn't possible and there's nothing to yield to
+     */
+    static void yield() throws Pausable {
+        if (REAL)
+            kilim.Task.yield();
+    }
+
+    /** the root of the computation has completed, release the workers */
+    void close() {
+        closed = true;
+        for (int ii = 0; ii < workers.length; ii++)
+            wake.putnb(TOKEN);
+    }
+
+    private boolean empty() {
+        if (! submissions.isEmpty()) return false;
+        for (Worker w : workers)
+            if (! w.deque.isEmpty()) return false;
+        return true;
+    }
+
+    /** a kilim task that computes the forked subtasks in its deque, stealing when it runs dry */
+    static final class Worker extends kilim.Task {
+        final ForkPool pool;
+        final ConcurrentLinkedDeque<CountedCompleter<?>> deque = new ConcurrentLinkedDeque<>();
+
+        Worker(ForkPool pool) {
+            this.pool = pool;
+        }
+
+        public void execute() throws Pausable {
+            while (! pool.closed) {
+                CountedCompleter<?> task = deque.pollLast();
+                if (task==null)
+                    task = pool.steal(this);
+                if (task != null) {
+                    run(task);
+                    continue;
+                }
+                // recheck after registering as idle so that a concurrent fork can't be missed
+                pool.idle.incrementAndGet();
+                if (pool.empty() && ! pool.closed)
+                    pool.wake.get();
+                pool.idle.decrementAndGet();
+            }
+        }
+
+        void run(CountedCompleter<?> task) throws Pausable {
+            task.worker = this;
+            try {
+                task.compute();
+            }
+            catch (Throwable ex) {
+                task.completeExceptionally(ex);
+            }
+        }
+    }
+}
@@ -141,8 +141,8 @@ abstract class IntPipeline<E_IN>
     }
 
     @Override
-    final <P_IN> Spliterator<Integer> wrap(PipelineHelper<Integer> ph, Supplier<Spliterator<P_IN>> supplier, boolean isParallel) {
-        return new StreamSpliterators.IntWrappingSpliterator<>(ph, supplier, isParallel);
+    final <P_IN> Spliterator<Integer> wrap(PipelineHelper<Integer> ph, Supplier<Spliterator<P_IN>> supplier, boolean isParallel, boolean lazy) {
+        return new StreamSpliterators.IntWrappingSpliterator<>(ph, supplier, isParallel, lazy);
     }
 
     @Override
@@ -192,7 +192,7 @@ abstract class IntPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("asLongStream");
     }
 
     @Override
@@ -208,12 +208,12 @@ abstract class IntPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("asDoubleStream");
     }
 
     @Override
     public final Stream<Integer> boxed() {
-        return mapToObj(Integer::valueOf);
+        return mapToObj(Integer::valueOf, "boxed");
     }
 
     @Override
@@ -230,11 +230,15 @@ abstract class IntPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("map");
     }
 
     @Override
     public final <U> Stream<U> mapToObj(IntFunction<? extends U> mapper) {
+        return mapToObj(mapper, "mapToObj");
+    }
+
+    private <U> Stream<U> mapToObj(IntFunction<? extends U> mapper, String name) {
         Objects.requireNonNull(mapper);
         return new ReferencePipeline.StatelessOp<Integer, U>(this, StreamShape.INT_VALUE,
                                                              StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT) {
@@ -247,7 +251,7 @@ abstract class IntPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named(name);
     }
 
     @Override
@@ -264,7 +268,7 @@ abstract class IntPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("mapToLong");
     }
 
     @Override
@@ -281,7 +285,7 @@ abstract class IntPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("mapToDouble");
     }
 
     @Override
@@ -306,7 +310,7 @@ abstract class IntPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("flatMap");
     }
 
     @Override
@@ -318,7 +322,7 @@ abstract class IntPipeline<E_IN>
             Sink<Integer> opWrapSink(int flags, Sink<Integer> sink) {
                 return sink;
             }
-        };
+        }.named("unordered");
     }
 
     @Override
@@ -341,7 +345,7 @@ abstract class IntPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("filter");
     }
 
     @Override
@@ -359,7 +363,7 @@ abstract class IntPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("peek");
     }
 
     // Stateful intermediate ops from IntStream
@@ -368,7 +372,9 @@ abstract class IntPipeline<E_IN>
     public final IntStream limit(long maxSize) {
         if (maxSize < 0)
             throw new IllegalArgumentException(Long.toString(maxSize));
-        return SliceOps.makeInt(this, 0, maxSize);
+        IntStream slice = SliceOps.makeInt(this, 0, maxSize);
+        SortedOps.bound(this, maxSize);
+        return slice;
     }
 
     @Override
@@ -381,16 +387,44 @@ abstract class IntPipeline<E_IN>
             return SliceOps.makeInt(this, n, -1);
     }
 
+    @Override
+    public final Stream<int[]> window(int n) {
+        return WindowOps.makeInt(this, n);
+    }
+
+    @Override
+    public final IntStream slidingSum(int n) {
+        return SlidingOps.makeInt(this, n, SlidingOps.Kind.SUM);
+    }
+
+    @Override
+    public final IntStream slidingMin(int n) {
+        return SlidingOps.makeInt(this, n, SlidingOps.Kind.MIN);
+    }
+
+    @Override
+    public final IntStream slidingMax(int n) {
+        return SlidingOps.makeInt(this, n, SlidingOps.Kind.MAX);
+    }
+
+    @Override
+    public final DoubleStream slidingAverage(int n) {
+        return SlidingOps.averageInt(this, n);
+    }
+
     @Override
     public final IntStream sorted() {
         return SortedOps.makeInt(this);
     }
 
+    @Override
+    public final IntStream sorted(long budget) {
+        return Spill.makeInt(this, budget);
+    }
+
     @Override
     public final IntStream distinct() {
-        // While functional and quick to implement, this approach is not very efficient.
-        // An efficient version requires an int-specific map/set implementation.
-        return boxed().distinct().mapToInt(i -> i);
+        return DistinctOps.makeInt(this).named("distinct");
     }
 
     // Terminal ops from IntStream
@@ -485,6 +519,8 @@ abstract class IntPipeline<E_IN>
 
     @Override
     public final OptionalInt findFirst() throws Pausable {
+        if (SortedOps.isSorting(this))
+            return limit(1).findFirst();
         return evaluate(FindOps.makeInt(true));
     }
 
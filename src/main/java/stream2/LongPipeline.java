@@ -139,8 +139,8 @@ abstract class LongPipeline<E_IN>
     }
 
     @Override
-    final <P_IN> Spliterator<Long> wrap(PipelineHelper<Long> ph, Supplier<Spliterator<P_IN>> supplier, boolean isParallel) {
-        return new StreamSpliterators.LongWrappingSpliterator<>(ph, supplier, isParallel);
+    final <P_IN> Spliterator<Long> wrap(PipelineHelper<Long> ph, Supplier<Spliterator<P_IN>> supplier, boolean isParallel, boolean lazy) {
+        return new StreamSpliterators.LongWrappingSpliterator<>(ph, supplier, isParallel, lazy);
     }
 
     @Override
@@ -189,12 +189,12 @@ abstract class LongPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("asDoubleStream");
     }
 
     @Override
     public final Stream<Long> boxed() {
-        return mapToObj(Long::valueOf);
+        return mapToObj(Long::valueOf, "boxed");
     }
 
     @Override
@@ -211,11 +211,15 @@ abstract class LongPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("map");
     }
 
     @Override
     public final <U> Stream<U> mapToObj(LongFunction<? extends U> mapper) {
+        return mapToObj(mapper, "mapToObj");
+    }
+
+    private <U> Stream<U> mapToObj(LongFunction<? extends U> mapper, String name) {
         Objects.requireNonNull(mapper);
         return new ReferencePipeline.StatelessOp<Long, U>(this, StreamShape.LONG_VALUE,
                                                           StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT) {
@@ -228,7 +232,7 @@ abstract class LongPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named(name);
     }
 
     @Override
@@ -245,7 +249,7 @@ abstract class LongPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("mapToInt");
     }
 
     @Override
@@ -262,7 +266,7 @@ abstract class LongPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("mapToDouble");
     }
 
     @Override
@@ -287,7 +291,7 @@ abstract class LongPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("flatMap");
     }
 
     @Override
@@ -299,7 +303,7 @@ abstract class LongPipeline<E_IN>
             Sink<Long> opWrapSink(int flags, Sink<Long> sink) {
                 return sink;
             }
-        };
+        }.named("unordered");
     }
 
     @Override
@@ -322,7 +326,7 @@ abstract class LongPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("filter");
     }
 
     @Override
@@ -340,7 +344,7 @@ abstract class LongPipeline<E_IN>
                     }
                 };
             }
-        };
+        }.named("peek");
     }
 
     // Stateful intermediate ops from LongStream
@@ -349,7 +353,9 @@ abstract class LongPipeline<E_IN>
     public final LongStream limit(long maxSize) {
         if (maxSize < 0)
             throw new IllegalArgumentException(Long.toString(maxSize));
-        return SliceOps.makeLong(this, 0, maxSize);
+        LongStream slice = SliceOps.makeLong(this, 0, maxSize);
+        SortedOps.bound(this, maxSize);
+        return slice;
     }
 
     @Override
@@ -362,16 +368,44 @@ abstract class LongPipeline<E_IN>
             return SliceOps.makeLong(this, n, -1);
     }
 
+    @Override
+    public final Stream<long[]> window(int n) {
+        return WindowOps.makeLong(this, n);
+    }
+
+    @Override
+    public final LongStream slidingSum(int n) {
+        return SlidingOps.makeLong(this, n, SlidingOps.Kind.SUM);
+    }
+
+    @Override
+    public final LongStream slidingMin(int n) {
+        return SlidingOps.makeLong(this, n, SlidingOps.Kind.MIN);
+    }
+
+    @Override
+    public final LongStream slidingMax(int n) {
+        return SlidingOps.makeLong(this, n, SlidingOps.Kind.MAX);
+    }
+
+    @Override
+    public final DoubleStream slidingAverage(int n) {
+        return SlidingOps.averageLong(this, n);
+    }
+
     @Override
     public final LongStream sorted() {
         return SortedOps.makeLong(this);
     }
 
+    @Override
+    public final LongStream sorted(long budget) {
+        return Spill.makeLong(this, budget);
+    }
+
     @Override
     public final LongStream distinct() {
-        // While functional and quick to implement, this approach is not very efficient.
-        // An efficient version requires a long-specific map/set implementation.
-        return boxed().distinct().mapToLong(i -> (long) i);
+        return DistinctOps.makeLong(this).named("distinct");
     }
 
     // Terminal ops from LongStream
@@ -467,6 +501,8 @@ abstract class LongPipeline<E_IN>
 
     @Override
     public final OptionalLong findFirst() throws Pausable {
+        if (SortedOps.isSorting(this))
+            return limit(1).findFirst();
         return evaluate(FindOps.makeLong(true));
     }
 
@@ -182,6 +182,30 @@ public interface LongStream extends BaseStream<Long, LongStream> {
      */
     LongStream sorted();
 
+    /**
+     * Returns a stream consisting of the elements of this stream in sorted
+     * order, holding at most {@code budget} elements in memory.  Whenever the
+     * budget is reached the buffered elements are sorted and spilled as a run
+     * to a temporary file, and the runs are merged lazily as the new stream
+     * is traversed.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>, which ends this pipeline.  The file is read
+     * and written asynchronously, and the traversing task pauses until each
+     * operation completes.  The merge is sequential.
+     *
+     * <p>The file is deleted when the new stream is exhausted.  A pipeline
+     * that doesn't traverse every element, eg one that is short-circuited by
+     * {@code limit}, holds the file open until the stream is closed, so it
+     * should be declared in a try-with-resources statement.
+     *
+     * @param budget the maximum number of elements to hold in memory
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code budget} is not positive
+     * @see Spill
+     */
+    LongStream sorted(long budget);
+
     /**
      * Returns a stream consisting of the elements of this stream, additionally
      * performing the provided action on each element as elements are consumed
@@ -269,6 +293,81 @@ public interface LongStream extends BaseStream<Long, LongStream> {
      */
     LongStream skip(long n);
 
+    /**
+     * Returns a stream consisting of the elements of this stream grouped into
+     * consecutive arrays of {@code n} elements, ie tumbling windows.  The last
+     * array holds whatever elements remain, and may be shorter than {@code n}.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.  Sequentially, each window is emitted as
+     * soon as it fills.  In parallel, the windows are cut from the collected
+     * elements, so they are the same as the sequential windows for an ordered
+     * stream.
+     *
+     * @param n the number of elements in each window
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code n} is not positive
+     */
+    Stream<long[]> window(int n);
+
+    /**
+     * Returns a stream of the sums of each sliding window of {@code n}
+     * consecutive elements of this stream, ie one result for each element
+     * from the {@code n}th on.  A stream with fewer than {@code n} elements
+     * yields an empty stream.  The sum wraps on overflow, as for {@link #sum}.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.  Each element is aggregated in amortized
+     * constant time, independent of {@code n}.
+     *
+     * @param n the number of elements in each window
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code n} is not positive
+     */
+    LongStream slidingSum(int n);
+
+    /**
+     * Returns a stream of the minimums of each sliding window of {@code n}
+     * consecutive elements of this stream.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @param n the number of elements in each window
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code n} is not positive
+     * @see #slidingSum
+     */
+    LongStream slidingMin(int n);
+
+    /**
+     * Returns a stream of the maximums of each sliding window of {@code n}
+     * consecutive elements of this stream.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @param n the number of elements in each window
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code n} is not positive
+     * @see #slidingSum
+     */
+    LongStream slidingMax(int n);
+
+    /**
+     * Returns a stream of the arithmetic means of each sliding window of
+     * {@code n} consecutive elements of this stream.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @param n the number of elements in each window
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code n} is not positive
+     * @see #slidingSum
+     */
+    DoubleStream slidingAverage(int n);
+
     /**
      * Performs an action for each element of this stream.
      *
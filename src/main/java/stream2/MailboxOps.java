@@ -0,0 +1,95 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import kilim.Mailbox;
+import kilim.Pausable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * terminal operations that send the elements of a stream to a kilim mailbox.
+ *
+ * <p>a sink can't pause, so rather than evaluating a terminal op these pull the elements from the
+ * pipeline's spliterator, as {@link BaseStream#iterator} does, and put them to the mailbox.
+ * a put pauses the task while the mailbox is full, so a slow consumer holds back the producer
+ */
+final class MailboxOps {
+
+    private MailboxOps() { }
+
+    /** holds the element that a single tryAdvance delivers */
+    private static final class Holder<T> implements Consumer<T> {
+        T value;
+
+        @Override
+        public void accept(T t) {
+            value = t;
+        }
+    }
+
+    /** appends the delivered elements to the current batch */
+    private static final class Batcher<T> implements Consumer<T> {
+        List<T> batch;
+
+        @Override
+        public void accept(T t) {
+            batch.add(t);
+        }
+    }
+
+    /** the initial capacity of a batch, which grows to batchSize */
+    private static int initial(int batchSize) {
+        return Math.min(batchSize, 1 << 10);
+    }
+
+    /** put a message, pausing while the mailbox is full, or blocking the thread when unwoven */
+    private static <M> void put(Mailbox<M> mailbox, M msg) throws Pausable {
+        if (ForkPool.WOVEN)
+            mailbox.put(msg);
+        else
+            mailbox.putb(msg);
+    }
+
+    /**
+     * put each element to the mailbox, pausing while it's full
+     * @param <T> the type of the elements
+     * @param spliterator the elements, in encounter order
+     * @param mailbox the destination
+     */
+    static <T> void toMailbox(Spliterator<T> spliterator, Mailbox<? super T> mailbox) throws Pausable {
+        Holder<T> holder = new Holder<>();
+        while (spliterator.tryAdvance(holder)) {
+            T t = Objects.requireNonNull(holder.value);
+            holder.value = null;
+            put(mailbox, t);
+        }
+    }
+
+    /**
+     * put the elements to the mailbox in lists of batchSize elements, pausing while it's full.
+     * once the elements are exhausted, a partial batch is flushed
+     * @param <T> the type of the elements
+     * @param spliterator the elements, in encounter order
+     * @param mailbox the destination
+     * @param batchSize the number of elements in each full batch, already checked to be positive
+     */
+    static <T> void toMailboxBatched(Spliterator<T> spliterator, Mailbox<? super List<T>> mailbox, int batchSize)
+            throws Pausable {
+        Batcher<T> batcher = new Batcher<>();
+        batcher.batch = new ArrayList<>(initial(batchSize));
+        while (spliterator.tryAdvance(batcher)) {
+            if (batcher.batch.size()==batchSize) {
+                put(mailbox, batcher.batch);
+                batcher.batch = new ArrayList<>(initial(batchSize));
+            }
+        }
+        if (! batcher.batch.isEmpty())
+            put(mailbox, batcher.batch);
+    }
+}
@@ -0,0 +1,757 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import kilim.Mailbox;
+import kilim.Pausable;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * a spliterator over the messages of a kilim mailbox, ie a stream source that's fed by other tasks.
+ * the stream ends when the end-of-stream sentinel is received, or after {@link #close} is called,
+ * and the messages that were queued before the end are consumed.
+ *
+ * <p>traversal only pauses when the mailbox is empty - {@link #forEachRemaining} drains all the queued
+ * messages before pausing, and {@link #trySplit} takes a batch of the queued messages without pausing.
+ * a primitive variant unboxes the messages of a boxed mailbox, eg {@link OfInt} for a {@code Mailbox<Integer>}
+ *
+ * <p>the messages can also be grouped into windows that close after a span of time, see
+ * {@link #windowBySizeOrTime}. the span is timed by the mailbox, so a window is flushed
+ * even if no further messages arrive. {@link #sessionize} groups them per key into sessions that close
+ * after a gap in the activity of the key, and {@link #aggregate} keeps a running aggregate per key
+ *
+ * <pre>{@code
+ *     double sum = StreamSupport.doubleStream(mailbox, -1.0, false).map(Math::sqrt).sum();
+ * }</pre>
+ *
+ * @param <T> the type of the messages
+ * @see StreamSupport#stream(Mailbox, Object, boolean)
+ */
+public class MailboxSpliterator<T> implements Spliterator<T>, PipelineMetrics.Pausing {
+    /** the characteristics of a mailbox spliterator */
+    public static final int CHARACTERISTICS = ORDERED | NONNULL | CONCURRENT;
+
+    static final int BATCH_UNIT = 1 << 10;  // batch array size increment
+    static final int MAX_BATCH = 1 << 25;  // max batch array size;
+    static final int SPLIT_CHARACTERISTICS = ORDERED | NONNULL;
+
+    /** posted by close to wake a paused consumer, never delivered */
+    private static final Object CLOSED = new Object();
+
+    private final Mailbox<T> mailbox;
+    private final T eos;
+    private volatile boolean closed;
+    private boolean done;
+    private int batch;  // batch array size for next split
+    private long pauses;
+    private long pausedNanos;
+
+    /**
+     * create a spliterator that ends when closed
+     * @param mailbox the source of the messages
+     */
+    public MailboxSpliterator(Mailbox<T> mailbox) {
+        this(mailbox, null);
+    }
+
+    /**
+     * create a spliterator that ends when closed, or when the sentinel is received
+     * @param mailbox the source of the messages
+     * @param eos the end-of-stream sentinel, compared using equals, or null for none
+     */
+    public MailboxSpliterator(Mailbox<T> mailbox, T eos) {
+        this.mailbox = mailbox;
+        this.eos = eos;
+    }
+
+    /**
+     * signal the end of the stream - messages queued before the signal are still consumed.
+     * safe to call from any thread or task
+     */
+    @SuppressWarnings("unchecked")
+    public void close() {
+        closed = true;
+        // a full mailbox doesn't need the wake up, the flag is checked once it's drained
+        mailbox.putnb((T) CLOSED);
+    }
+
+    private boolean end(Object msg) {
+        if (msg==CLOSED || eos != null && eos.equals(msg))
+            done = true;
+        return done;
+    }
+
+    /**
+     * take the next message without pausing
+     * @return the message, or null if the mailbox is empty or the stream has ended
+     */
+    T poll() {
+        if (done) return null;
+        T msg = mailbox.getnb();
+        if (msg==null) {
+            if (closed) done = true;
+            return null;
+        }
+        return end(msg) ? null : msg;
+    }
+
+    /**
+     * take the next message, pausing only if the mailbox is empty, or blocking the thread when unwoven
+     * @return the message, or null if the stream has ended
+     */
+    T take() throws Pausable {
+        T msg = poll();
+        if (msg != null || done) return msg;
+        long t0 = System.nanoTime();
+        msg = ForkPool.WOVEN ? mailbox.get() : mailbox.getb();
+        pausedNanos += System.nanoTime() - t0;
+        pauses++;
+        return end(msg) ? null : msg;
+    }
+
+    /**
+     * take the next message, pausing until it arrives or the deadline passes, or blocking the thread
+     * when unwoven
+     * @param deadline the deadline, as a {@link System#nanoTime}
+     * @return the message, or null if the stream has ended or the deadline has passed
+     */
+    T take(long deadline) throws Pausable {
+        T msg = poll();
+        if (msg != null || done) return msg;
+        long t0 = System.nanoTime();
+        long wait = deadline - t0;
+        if (wait <= 0) return null;
+        // round up, so the window doesn't wake just short of the deadline and pause again
+        long millis = TimeUnit.NANOSECONDS.toMillis(wait + 999_999);
+        msg = ForkPool.WOVEN ? mailbox.get(millis) : mailbox.getb(millis);
+        pausedNanos += System.nanoTime() - t0;
+        pauses++;
+        return msg==null || end(msg) ? null : msg;
+    }
+
+    public long pauses() {
+        return pauses;
+    }
+
+    public long pausedNanos() {
+        return pausedNanos;
+    }
+
+    /**
+     * take a batch of the queued messages, without pausing
+     * @return the messages, trimmed to length, or null if none are queued
+     */
+    Object [] drain() {
+        int n = batch + BATCH_UNIT;
+        if (n > MAX_BATCH)
+            n = MAX_BATCH;
+        Object [] a = new Object[n];
+        int j = 0;
+        for (T msg; j < n && (msg = poll()) != null; j++)
+            a[j] = msg;
+        if (j==0) return null;
+        batch = j;
+        return j==n ? a : Arrays.copyOf(a, j);
+    }
+
+    public boolean tryAdvance(Consumer<? super T> action) throws Pausable {
+        T msg = take();
+        if (msg==null) return false;
+        action.accept(msg);
+        return true;
+    }
+
+    public void forEachRemaining(Consumer<? super T> action) throws Pausable {
+        for (T msg; (msg = take()) != null;) {
+            action.accept(msg);
+            while ((msg = poll()) != null)
+                action.accept(msg);
+        }
+    }
+
+    public Spliterator<T> trySplit() throws Pausable {
+        Object [] a = drain();
+        return a==null ? null : Spliterators.spliterator(a, SPLIT_CHARACTERISTICS);
+    }
+
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+
+    /**
+     * group the messages into windows that close after a span of time.
+     * equivalent to {@link #windowBySizeOrTime windowBySizeOrTime(Integer.MAX_VALUE, span)}
+     * @param span the maximum time that a window is open
+     * @return a spliterator over the windows
+     */
+    public Spliterator<List<T>> windowByTime(Duration span) {
+        return windowBySizeOrTime(Integer.MAX_VALUE, span);
+    }
+
+    /**
+     * group the messages into windows. a window opens when its first message is taken, and closes
+     * when it holds n messages or when the span has elapsed, whichever comes first.
+     * the close is timed by {@code Mailbox.get(timeout)}, so a quiet mailbox still flushes the open
+     * window, but no empty windows are produced. when the stream ends the open window is flushed.
+     * this spliterator must not be traversed directly once the windows are in use
+     * @param n the maximum number of messages in a window
+     * @param span the maximum time that a window is open
+     * @return a spliterator over the windows, each a new list
+     * @throws IllegalArgumentException if n or the span is not positive
+     */
+    public Spliterator<List<T>> windowBySizeOrTime(int n, Duration span) {
+        return new Windows<>(this, n, span);
+    }
+
+    /**
+     * group the messages per key into sessions. a session opens with the first message for its key,
+     * and closes once no message for the key has arrived for the gap, or when the stream ends.
+     * the next expiry is timed by {@code Mailbox.get(timeout)}, so a session closes on time even if
+     * the mailbox is quiet. the state is bounded - at most maxKeys sessions are open, and opening another
+     * closes the session that has been idle the longest, early, and a session that reaches maxMessages
+     * closes at once, so that a key that never goes quiet is still emitted. a later message for the key
+     * opens a new session.
+     * this spliterator must not be traversed directly once the sessions are in use
+     * @param <K> the type of the keys
+     * @param classifier the function that maps a message to its key
+     * @param gap the period of inactivity after which a session closes
+     * @param maxKeys the maximum number of open sessions
+     * @param maxMessages the maximum number of messages in a session
+     * @return a spliterator over the closed sessions, in the order that they close
+     * @throws IllegalArgumentException if the gap, maxKeys or maxMessages is not positive
+     */
+    public <K> Spliterator<Session<K,T>> sessionize(Function<? super T, ? extends K> classifier, Duration gap,
+                                                    int maxKeys, int maxMessages) {
+        return new Sessions<>(this, classifier, gap, maxKeys, maxMessages);
+    }
+
+    /**
+     * the messages that share a key, with no gap between them longer than the session gap
+     * @param <K> the type of the key
+     * @param <T> the type of the messages
+     */
+    public static final class Session<K,T> {
+        private final K key;
+        private final List<T> messages = new ArrayList<>();
+        /** the arrival of the latest message, as a {@link System#nanoTime} */
+        private long last;
+
+        Session(K key) {
+            this.key = key;
+        }
+
+        /** @return the key */
+        public K key() {
+            return key;
+        }
+
+        /** @return the messages, in arrival order */
+        public List<T> messages() {
+            return messages;
+        }
+
+        public String toString() {
+            return key + "=" + messages;
+        }
+    }
+
+    /**
+     * a spliterator over the sessions of the messages of a mailbox spliterator.
+     * every session shares the gap, so the order in which the sessions expire is the order
+     * of their latest activity - the open sessions are kept in an access ordered map and only
+     * the eldest is ever checked, making each expiry and eviction constant time
+     */
+    static final class Sessions<K,T> implements Spliterator<Session<K,T>>, PipelineMetrics.Pausing {
+        private final MailboxSpliterator<T> source;
+        private final Function<? super T, ? extends K> classifier;
+        private final long gap;
+        private final int maxKeys;
+        private final int maxMessages;
+        private final LinkedHashMap<K, Session<K,T>> open = new LinkedHashMap<>(16, 0.75f, true);
+        private final ArrayDeque<Session<K,T>> closed = new ArrayDeque<>();
+
+        Sessions(MailboxSpliterator<T> source, Function<? super T, ? extends K> classifier, Duration gap,
+                 int maxKeys, int maxMessages) {
+            if (maxKeys < 1)
+                throw new IllegalArgumentException(Integer.toString(maxKeys));
+            if (maxMessages < 1)
+                throw new IllegalArgumentException(Integer.toString(maxMessages));
+            if (gap.isNegative() || gap.isZero())
+                throw new IllegalArgumentException(gap.toString());
+            this.source = Objects.requireNonNull(source);
+            this.classifier = Objects.requireNonNull(classifier);
+            this.gap = gap.toNanos();
+            this.maxKeys = maxKeys;
+            this.maxMessages = maxMessages;
+        }
+
+        public long pauses() {
+            return source.pauses();
+        }
+
+        public long pausedNanos() {
+            return source.pausedNanos();
+        }
+
+        /** close the eldest session */
+        private void evict() {
+            Iterator<Session<K,T>> eldest = open.values().iterator();
+            closed.add(eldest.next());
+            eldest.remove();
+        }
+
+        /** the eldest open session, ie the next to expire */
+        private Session<K,T> eldest() {
+            return open.values().iterator().next();
+        }
+
+        private void accept(T msg) {
+            K key = classifier.apply(msg);
+            Session<K,T> session = open.get(key);
+            if (session==null) {
+                open.put(key, session = new Session<>(key));
+                if (open.size() > maxKeys)
+                    evict();
+            }
+            session.messages.add(msg);
+            session.last = System.nanoTime();
+            if (session.messages.size()==maxMessages) {
+                open.remove(key);
+                closed.add(session);
+            }
+        }
+
+        public boolean tryAdvance(Consumer<? super Session<K,T>> action) throws Pausable {
+            while (closed.isEmpty()) {
+                if (source.done) {
+                    if (open.isEmpty()) return false;
+                    while (! open.isEmpty())
+                        evict();
+                    break;
+                }
+                long now = System.nanoTime();
+                while (! open.isEmpty() && eldest().last + gap - now <= 0)
+                    evict();
+                if (! closed.isEmpty())
+                    break;
+                T msg = open.isEmpty() ? source.take() : source.take(eldest().last + gap);
+                if (msg != null)
+                    accept(msg);
+            }
+            action.accept(closed.poll());
+            return true;
+        }
+
+        public Spliterator<Session<K,T>> trySplit() {
+            return null;
+        }
+
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        public int characteristics() {
+            return SPLIT_CHARACTERISTICS;
+        }
+    }
+
+    /**
+     * keep a running aggregate per key of the messages, using the supplier and accumulator of a collector,
+     * and emit the current value of each key that has changed. a batch of updates is emitted once n
+     * messages have arrived since the last batch, or once the period has elapsed since the first of them,
+     * whichever comes first, and at the end of the stream. each changed key is emitted once per batch,
+     * in the order of its first change. the period is timed by {@code Mailbox.get(timeout)}, so a quiet
+     * mailbox still emits the pending updates. n of 1 emits every change, and n of Integer.MAX_VALUE
+     * emits only on the timer.
+     * the value is the finisher applied to the live container, so it must not share state with the
+     * container. an IDENTITY_FINISH collector, eg toList, would emit the container itself, which later
+     * messages continue to change, so it's rejected - use collectingAndThen with a copying finisher instead.
+     * the state grows with the number of keys, up to maxKeys. beyond that the container of the key that
+     * has gone longest without a message is dropped, after emitting its pending update if it has one, and
+     * a later message for that key starts a new aggregate.
+     * this spliterator must not be traversed directly once the aggregates are in use
+     * @param <K> the type of the keys
+     * @param <A> the intermediate accumulation type of the collector
+     * @param <D> the result type of the collector
+     * @param classifier the function that maps a message to its key
+     * @param collector the collector that aggregates the messages of a key
+     * @param n the maximum number of messages per batch of updates
+     * @param period the maximum time that an update is pending
+     * @param maxKeys the maximum number of keys with an aggregate
+     * @return a spliterator over the updates, each a key and its current value
+     * @throws IllegalArgumentException if n, the period or maxKeys is not positive, or the collector
+     *         has the IDENTITY_FINISH characteristic
+     */
+    public <K, A, D> Spliterator<Map.Entry<K,D>> aggregate(Function<? super T, ? extends K> classifier,
+                                                           Collector<? super T, A, D> collector,
+                                                           int n, Duration period, int maxKeys) {
+        return new Aggregates<>(this, classifier, collector, n, period, maxKeys);
+    }
+
+    /** a spliterator over the updates to the running aggregates of the messages of a mailbox spliterator */
+    static final class Aggregates<K,T,A,D> implements Spliterator<Map.Entry<K,D>>, PipelineMetrics.Pausing {
+        private final MailboxSpliterator<T> source;
+        private final Function<? super T, ? extends K> classifier;
+        private final Collector<? super T, A, D> collector;
+        private final int n;
+        private final long period;
+        private final int maxKeys;
+        /** the containers, in access order so that the eldest is the least recently updated */
+        private final LinkedHashMap<K,A> containers = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashSet<K> changed = new LinkedHashSet<>();
+        private final ArrayDeque<Map.Entry<K,D>> updates = new ArrayDeque<>();
+
+        Aggregates(MailboxSpliterator<T> source, Function<? super T, ? extends K> classifier,
+                   Collector<? super T, A, D> collector, int n, Duration period, int maxKeys) {
+            if (n < 1)
+                throw new IllegalArgumentException(Integer.toString(n));
+            if (maxKeys < 1)
+                throw new IllegalArgumentException(Integer.toString(maxKeys));
+            if (period.isNegative() || period.isZero())
+                throw new IllegalArgumentException(period.toString());
+            // an identity finish would emit the live container, so the updates wouldn't be snapshots
+            if (collector.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH))
+                throw new IllegalArgumentException("the values of an IDENTITY_FINISH collector aren't snapshots");
+            this.source = Objects.requireNonNull(source);
+            this.classifier = Objects.requireNonNull(classifier);
+            this.collector = collector;
+            this.n = n;
+            this.period = period.toNanos();
+            this.maxKeys = maxKeys;
+        }
+
+        public long pauses() {
+            return source.pauses();
+        }
+
+        public long pausedNanos() {
+            return source.pausedNanos();
+        }
+
+        private Map.Entry<K,D> update(K key, A container) {
+            return new AbstractMap.SimpleImmutableEntry<>(key, collector.finisher().apply(container));
+        }
+
+        /** drop the container of the least recently updated key, emitting its pending update */
+        private void evict() {
+            Iterator<Map.Entry<K,A>> eldest = containers.entrySet().iterator();
+            Map.Entry<K,A> entry = eldest.next();
+            if (changed.remove(entry.getKey()))
+                updates.add(update(entry.getKey(), entry.getValue()));
+            eldest.remove();
+        }
+
+        private void accept(T msg) {
+            K key = classifier.apply(msg);
+            A container = containers.get(key);
+            if (container==null) {
+                containers.put(key, container = collector.supplier().get());
+                if (containers.size() > maxKeys)
+                    evict();
+            }
+            collector.accumulator().accept(container, msg);
+            changed.add(key);
+        }
+
+        public boolean tryAdvance(Consumer<? super Map.Entry<K,D>> action) throws Pausable {
+            if (updates.isEmpty()) {
+                T msg = source.take();
+                if (msg==null) return false;
+                long deadline = System.nanoTime() + period;
+                accept(msg);
+                for (int count = 1; count < n && (msg = source.take(deadline)) != null; count++)
+                    accept(msg);
+                for (K key : changed)
+                    updates.add(update(key, containers.get(key)));
+                changed.clear();
+            }
+            action.accept(updates.poll());
+            return true;
+        }
+
+        public Spliterator<Map.Entry<K,D>> trySplit() {
+            return null;
+        }
+
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        public int characteristics() {
+            return SPLIT_CHARACTERISTICS;
+        }
+    }
+
+    /** a spliterator over the windows of the messages of a mailbox spliterator */
+    static final class Windows<T> implements Spliterator<List<T>>, PipelineMetrics.Pausing {
+        private final MailboxSpliterator<T> source;
+        private final int n;
+        private final long span;
+
+        Windows(MailboxSpliterator<T> source, int n, Duration span) {
+            if (n < 1)
+                throw new IllegalArgumentException(Integer.toString(n));
+            if (span.isNegative() || span.isZero())
+                throw new IllegalArgumentException(span.toString());
+            this.source = Objects.requireNonNull(source);
+            this.n = n;
+            this.span = span.toNanos();
+        }
+
+        public long pauses() {
+            return source.pauses();
+        }
+
+        public long pausedNanos() {
+            return source.pausedNanos();
+        }
+
+        public boolean tryAdvance(Consumer<? super List<T>> action) throws Pausable {
+            T msg = source.take();
+            if (msg==null) return false;
+            long deadline = System.nanoTime() + span;
+            List<T> window = new ArrayList<>();
+            window.add(msg);
+            while (window.size() < n && (msg = source.take(deadline)) != null)
+                window.add(msg);
+            action.accept(window);
+            return true;
+        }
+
+        public Spliterator<List<T>> trySplit() {
+            return null;
+        }
+
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        public int characteristics() {
+            return SPLIT_CHARACTERISTICS;
+        }
+    }
+
+    /** a spliterator that unboxes the messages of a mailbox of integers */
+    public static class OfInt implements Spliterator.OfInt, PipelineMetrics.Pausing {
+        private final MailboxSpliterator<Integer> source;
+
+        /**
+         * create a spliterator that ends when closed
+         * @param mailbox the source of the messages
+         */
+        public OfInt(Mailbox<Integer> mailbox) {
+            source = new MailboxSpliterator<>(mailbox);
+        }
+
+        /**
+         * create a spliterator that ends when closed, or when the sentinel is received
+         * @param mailbox the source of the messages
+         * @param eos the end-of-stream sentinel
+         */
+        public OfInt(Mailbox<Integer> mailbox, int eos) {
+            source = new MailboxSpliterator<>(mailbox, eos);
+        }
+
+        /** signal the end of the stream, see {@link MailboxSpliterator#close} */
+        public void close() {
+            source.close();
+        }
+
+        public long pauses() {
+            return source.pauses();
+        }
+
+        public long pausedNanos() {
+            return source.pausedNanos();
+        }
+
+        public boolean tryAdvance(IntConsumer action) throws Pausable {
+            Integer msg = source.take();
+            if (msg==null) return false;
+            action.accept(msg);
+            return true;
+        }
+
+        public void forEachRemaining(IntConsumer action) throws Pausable {
+            for (Integer msg; (msg = source.take()) != null;) {
+                action.accept(msg);
+                while ((msg = source.poll()) != null)
+                    action.accept(msg);
+            }
+        }
+
+        public Spliterator.OfInt trySplit() throws Pausable {
+            Object [] a = source.drain();
+            if (a==null) return null;
+            int [] values = new int[a.length];
+            for (int ii = 0; ii < a.length; ii++)
+                values[ii] = (Integer) a[ii];
+            return Spliterators.spliterator(values, SPLIT_CHARACTERISTICS);
+        }
+
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+    }
+
+    /** a spliterator that unboxes the messages of a mailbox of longs */
+    public static class OfLong implements Spliterator.OfLong, PipelineMetrics.Pausing {
+        private final MailboxSpliterator<Long> source;
+
+        /**
+         * create a spliterator that ends when closed
+         * @param mailbox the source of the messages
+         */
+        public OfLong(Mailbox<Long> mailbox) {
+            source = new MailboxSpliterator<>(mailbox);
+        }
+
+        /**
+         * create a spliterator that ends when closed, or when the sentinel is received
+         * @param mailbox the source of the messages
+         * @param eos the end-of-stream sentinel
+         */
+        public OfLong(Mailbox<Long> mailbox, long eos) {
+            source = new MailboxSpliterator<>(mailbox, eos);
+        }
+
+        /** signal the end of the stream, see {@link MailboxSpliterator#close} */
+        public void close() {
+            source.close();
+        }
+
+        public long pauses() {
+            return source.pauses();
+        }
+
+        public long pausedNanos() {
+            return source.pausedNanos();
+        }
+
+        public boolean tryAdvance(LongConsumer action) throws Pausable {
+            Long msg = source.take();
+            if (msg==null) return false;
+            action.accept(msg);
+            return true;
+        }
+
+        public void forEachRemaining(LongConsumer action) throws Pausable {
+            for (Long msg; (msg = source.take()) != null;) {
+                action.accept(msg);
+                while ((msg = source.poll()) != null)
+                    action.accept(msg);
+            }
+        }
+
+        public Spliterator.OfLong trySplit() throws Pausable {
+            Object [] a = source.drain();
+            if (a==null) return null;
+            long [] values = new long[a.length];
+            for (int ii = 0; ii < a.length; ii++)
+                values[ii] = (Long) a[ii];
+            return Spliterators.spliterator(values, SPLIT_CHARACTERISTICS);
+        }
+
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+    }
+
+    /** a spliterator that unboxes the messages of a mailbox of doubles */
+    public static class OfDouble implements Spliterator.OfDouble, PipelineMetrics.Pausing {
+        private final MailboxSpliterator<Double> source;
+
+        /**
+         * create a spliterator that ends when closed
+         * @param mailbox the source of the messages
+         */
+        public OfDouble(Mailbox<Double> mailbox) {
+            source = new MailboxSpliterator<>(mailbox);
+        }
+
+        /**
+         * create a spliterator that ends when closed, or when the sentinel is received
+         * @param mailbox the source of the messages
+         * @param eos the end-of-stream sentinel, compared using Double.equals
+         */
+        public OfDouble(Mailbox<Double> mailbox, double eos) {
+            source = new MailboxSpliterator<>(mailbox, eos);
+        }
+
+        /** signal the end of the stream, see {@link MailboxSpliterator#close} */
+        public void close() {
+            source.close();
+        }
+
+        public long pauses() {
+            return source.pauses();
+        }
+
+        public long pausedNanos() {
+            return source.pausedNanos();
+        }
+
+        public boolean tryAdvance(DoubleConsumer action) throws Pausable {
+            Double msg = source.take();
+            if (msg==null) return false;
+            action.accept(msg);
+            return true;
+        }
+
+        public void forEachRemaining(DoubleConsumer action) throws Pausable {
+            for (Double msg; (msg = source.take()) != null;) {
+                action.accept(msg);
+                while ((msg = source.poll()) != null)
+                    action.accept(msg);
+            }
+        }
+
+        public Spliterator.OfDouble trySplit() throws Pausable {
+            Object [] a = source.drain();
+            if (a==null) return null;
+            double [] values = new double[a.length];
+            for (int ii = 0; ii < a.length; ii++)
+                values[ii] = (Double) a[ii];
+            return Spliterators.spliterator(values, SPLIT_CHARACTERISTICS);
+        }
+
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+    }
+}
@@ -26,6 +26,7 @@ package stream2;
 
 import kilim.Pausable;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Deque;
@@ -151,6 +152,32 @@ final class Nodes {
         return new CollectionNode<>(c);
     }
 
+    /**
+     * Produces a {@link Node} describing the union of disjoint collections,
+     * as a balanced tree of collection nodes.
+     * <p>
+     * The node will hold references to the collections and will not make a copy.
+     * Null and empty collections are skipped.
+     *
+     * @param <T> the type of elements held by the node
+     * @param parts the collections, which must not have any elements in common
+     * @return a node holding the collections
+     */
+    static <T> Node<T> union(Collection<T>[] parts) {
+        List<Node<T>> nodes = new ArrayList<>(parts.length);
+        for (Collection<T> c : parts)
+            if (c != null && !c.isEmpty())
+                nodes.add(node(c));
+        return nodes.isEmpty() ? emptyNode(StreamShape.REFERENCE) : union(nodes, 0, nodes.size());
+    }
+
+    private static <T> Node<T> union(List<Node<T>> nodes, int lo, int hi) {
+        if (hi - lo == 1)
+            return nodes.get(lo);
+        int mid = (lo + hi) >>> 1;
+        return conc(StreamShape.REFERENCE, union(nodes, lo, mid), union(nodes, mid, hi));
+    }
+
     /**
      * Produces a {@link Node.Builder}.
      *
@@ -0,0 +1,28 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import kilim.Pausable;
+
+/**
+ * a function that may pause the calling task, eg to do a mailbox round trip for each element.
+ * the pausable counterpart of {@link java.util.function.Function}
+ *
+ * @param <T> the type of the input to the function
+ * @param <R> the type of the result of the function
+ * @see Stream#mapP(PausableFunction)
+ */
+@FunctionalInterface
+public interface PausableFunction<T, R> {
+
+    /**
+     * Applies this function to the given argument.
+     *
+     * @param t the function argument
+     * @return the function result
+     */
+    R apply(T t) throws Pausable;
+}
@@ -0,0 +1,465 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import kilim.Mailbox;
+import kilim.Pausable;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * intermediate operations whose functions may pause.
+ *
+ * <p>a sink can't pause, so these aren't stages of the upstream pipeline. instead the upstream
+ * pipeline is ended with {@link BaseStream#spliterator}, the function is applied as the spliterator
+ * is traversed (which can pause), and a new pipeline is built on top of the result.
+ * splitting passes through to the upstream spliterator, so a parallel pipeline stays parallel,
+ * and closing the new pipeline closes the upstream one
+ */
+final class PausableOps {
+
+    private PausableOps() { }
+
+    /** the spliterator characteristics that a map doesn't preserve */
+    static final int NOT_MAPPED = Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL;
+    /** the spliterator characteristics that a filter doesn't preserve */
+    static final int NOT_FILTERED = Spliterator.SIZED | Spliterator.SUBSIZED;
+
+    /**
+     * build a pipeline on top of the spliterator of the upstream pipeline
+     * @param upstream the pipeline to end
+     * @param op wraps the upstream spliterator
+     * @param cleared the characteristics that the op doesn't preserve
+     */
+    private static <T, R> Stream<R> make(ReferencePipeline<?, T> upstream,
+                                         Function<Spliterator<T>, Spliterator<R>> op,
+                                         int cleared) {
+        int characteristics = StreamOpFlag.toCharacteristics(upstream.getStreamFlags()) & ~cleared;
+        Spliterator<R> spliterator = op.apply(upstream.spliterator());
+        return StreamSupport.stream(() -> spliterator, characteristics, upstream.isParallel())
+                .onClose(upstream::close);
+    }
+
+    static <T, R> Stream<R> makeMap(ReferencePipeline<?, T> upstream,
+                                    PausableFunction<? super T, ? extends R> mapper) {
+        Objects.requireNonNull(mapper);
+        return make(upstream, s -> new MapSpliterator<T, R>(s, mapper), NOT_MAPPED);
+    }
+
+    static <T> Stream<T> makeFilter(ReferencePipeline<?, T> upstream,
+                                    PausablePredicate<? super T> predicate) {
+        Objects.requireNonNull(predicate);
+        return make(upstream, s -> new FilterSpliterator<T>(s, predicate), NOT_FILTERED);
+    }
+
+    static <T, R> Stream<R> makeFlatMap(ReferencePipeline<?, T> upstream,
+                                        PausableFunction<? super T, ? extends Stream<? extends R>> mapper) {
+        Objects.requireNonNull(mapper);
+        return make(upstream, s -> new FlatMapSpliterator<T, R>(s, mapper), NOT_MAPPED | NOT_FILTERED);
+    }
+
+    static <T, R> Stream<R> makeMapAsync(ReferencePipeline<?, T> upstream, int maxInFlight,
+                                         PausableFunction<? super T, ? extends R> mapper, boolean ordered) {
+        Objects.requireNonNull(mapper);
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException(Integer.toString(maxInFlight));
+        return make(upstream, s -> new MapAsyncSpliterator<T, R>(s, maxInFlight, mapper, ordered),
+                    ordered ? NOT_MAPPED : NOT_MAPPED | Spliterator.ORDERED);
+    }
+
+    /** holds the element that a single tryAdvance delivers */
+    private static final class Holder<T> implements Consumer<T> {
+        T value;
+
+        @Override
+        public void accept(T t) {
+            value = t;
+        }
+
+        T take() {
+            T t = value;
+            value = null;
+            return t;
+        }
+    }
+
+    /** the base class for a spliterator that transforms the elements of an upstream spliterator */
+    private static abstract class Wrapping<T, R> implements Spliterator<R> {
+        final Spliterator<T> upstream;
+        final Holder<T> holder = new Holder<>();
+
+        Wrapping(Spliterator<T> upstream) {
+            this.upstream = upstream;
+        }
+
+        @Override
+        public long estimateSize() {
+            return upstream.estimateSize();
+        }
+    }
+
+    static final class MapSpliterator<T, R> extends Wrapping<T, R> {
+        private final PausableFunction<? super T, ? extends R> mapper;
+
+        MapSpliterator(Spliterator<T> upstream, PausableFunction<? super T, ? extends R> mapper) {
+            super(upstream);
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) throws Pausable {
+            if (!upstream.tryAdvance(holder))
+                return false;
+            action.accept(mapper.apply(holder.take()));
+            return true;
+        }
+
+        @Override
+        public Spliterator<R> trySplit() throws Pausable {
+            Spliterator<T> split = upstream.trySplit();
+            return split == null ? null : new MapSpliterator<>(split, mapper);
+        }
+
+        @Override
+        public long getExactSizeIfKnown() {
+            return upstream.getExactSizeIfKnown();
+        }
+
+        @Override
+        public int characteristics() {
+            return upstream.characteristics() & ~NOT_MAPPED;
+        }
+    }
+
+    static final class FilterSpliterator<T> extends Wrapping<T, T> {
+        private final PausablePredicate<? super T> predicate;
+
+        FilterSpliterator(Spliterator<T> upstream, PausablePredicate<? super T> predicate) {
+            super(upstream);
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) throws Pausable {
+            while (upstream.tryAdvance(holder)) {
+                T t = holder.take();
+                if (predicate.test(t)) {
+                    action.accept(t);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() throws Pausable {
+            Spliterator<T> split = upstream.trySplit();
+            return split == null ? null : new FilterSpliterator<>(split, predicate);
+        }
+
+        @Override
+        public int characteristics() {
+            return upstream.characteristics() & ~NOT_FILTERED;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return upstream.getComparator();
+        }
+    }
+
+    static final class FlatMapSpliterator<T, R> extends Wrapping<T, R> {
+        private final PausableFunction<? super T, ? extends Stream<? extends R>> mapper;
+        // the stream of the current upstream element, and its spliterator
+        private Stream<? extends R> stream;
+        private Spliterator<? extends R> current;
+
+        FlatMapSpliterator(Spliterator<T> upstream,
+                           PausableFunction<? super T, ? extends Stream<? extends R>> mapper) {
+            super(upstream);
+            this.mapper = mapper;
+        }
+
+        /**
+         * close the current stream and start the stream of the next upstream element
+         * @return false if upstream is exhausted
+         */
+        private boolean next() throws Pausable {
+            if (stream != null) {
+                stream.close();
+                stream = null;
+                current = null;
+            }
+            if (!upstream.tryAdvance(holder))
+                return false;
+            stream = mapper.apply(holder.take());
+            if (stream != null)
+                current = stream.sequential().spliterator();
+            return true;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) throws Pausable {
+            do {
+                if (current != null && current.tryAdvance(action))
+                    return true;
+            } while (next());
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super R> action) throws Pausable {
+            do {
+                if (current != null)
+                    current.forEachRemaining(action);
+            } while (next());
+        }
+
+        @Override
+        public Spliterator<R> trySplit() throws Pausable {
+            // the remainder of the current stream precedes anything that upstream could split off
+            if (current != null)
+                return null;
+            Spliterator<T> split = upstream.trySplit();
+            return split == null ? null : new FlatMapSpliterator<>(split, mapper);
+        }
+
+        @Override
+        public long estimateSize() {
+            return current == null ? upstream.estimateSize() : Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return upstream.characteristics() & ~(NOT_MAPPED | NOT_FILTERED);
+        }
+    }
+
+    /**
+     * a map whose function is applied to up to maxInFlight elements at a time, each on its own kilim task.
+     * results are delivered in encounter order, holding completed results until the older ones complete,
+     * or for unordered in the order that they complete.
+     * the splits share the permits for the calls, so the bound applies to the stream as a whole.
+     * unwoven, a task can't run pausable code, so the function is applied inline
+     */
+    static class MapAsyncSpliterator<T, R> extends Wrapping<T, R> {
+        private final int maxInFlight;
+        private final PausableFunction<? super T, ? extends R> mapper;
+        private final boolean ordered;
+        /** the calls that may still be started, shared with the splits */
+        final Permits permits;
+        /** each call posts its slot when it completes */
+        final Mailbox<Slot<T, R>> completions = new Mailbox<>();
+        /** the reorder buffer, ie the ordered calls in flight, oldest first */
+        private final ArrayDeque<Slot<T, R>> pending = new ArrayDeque<>();
+        private int inFlight;
+        private boolean exhausted;
+
+        MapAsyncSpliterator(Spliterator<T> upstream, int maxInFlight,
+                            PausableFunction<? super T, ? extends R> mapper, boolean ordered) {
+            this(upstream, maxInFlight, mapper, ordered, new Permits(maxInFlight));
+        }
+
+        private MapAsyncSpliterator(Spliterator<T> upstream, int maxInFlight,
+                                    PausableFunction<? super T, ? extends R> mapper, boolean ordered,
+                                    Permits permits) {
+            super(upstream);
+            this.maxInFlight = maxInFlight;
+            this.mapper = mapper;
+            this.ordered = ordered;
+            this.permits = permits;
+        }
+
+        /**
+         * a counting semaphore for the calls in flight. a waiter pauses on a mailbox that is only posted
+         * to while someone is waiting, the same way that idle workers wait in {@link ForkPool}
+         */
+        static final class Permits {
+            private static final Object TOKEN = new Object();
+            private final AtomicInteger available;
+            private final AtomicInteger waiting = new AtomicInteger();
+            private final Mailbox<Object> wake = new Mailbox<>();
+
+            Permits(int n) {
+                available = new AtomicInteger(n);
+            }
+
+            /** @return true if a permit was taken */
+            boolean tryAcquire() {
+                for (int n; (n = available.get()) > 0;)
+                    if (available.compareAndSet(n, n-1))
+                        return true;
+                return false;
+            }
+
+            /** take a permit, pausing until one is released, or blocking the thread when unwoven */
+            void acquire() throws Pausable {
+                while (!tryAcquire()) {
+                    waiting.incrementAndGet();
+                    try {
+                        // recheck, since a release that preceded the increment didn't post
+                        if (tryAcquire())
+                            return;
+                        if (ForkPool.WOVEN)
+                            wake.get();
+                        else
+                            wake.getb();
+                    }
+                    finally {
+                        waiting.decrementAndGet();
+                    }
+                }
+            }
+
+            void release() {
+                available.incrementAndGet();
+                if (waiting.get() > 0)
+                    wake.putnb(TOKEN);
+            }
+
+            int available() { return available.get(); }
+        }
+
+        /** a single call of the function */
+        static final class Slot<T, R> {
+            final T input;
+            final Permits permits;
+            R result;
+            Throwable exception;
+            volatile boolean done;
+
+            Slot(T input, Permits permits) {
+                this.input = input;
+                this.permits = permits;
+            }
+
+            void compute(PausableFunction<? super T, ? extends R> mapper, Mailbox<Slot<T, R>> completions)
+                    throws Pausable {
+                try {
+                    result = mapper.apply(input);
+                }
+                catch (Throwable ex) {
+                    exception = ex;
+                }
+                done = true;
+                permits.release();
+                completions.putnb(this);
+            }
+
+            R report() {
+                if (exception instanceof RuntimeException) throw (RuntimeException) exception;
+                if (exception instanceof Error) throw (Error) exception;
+                if (exception != null) throw new RuntimeException(exception);
+                return result;
+            }
+        }
+
+        /** a kilim task that runs a single call */
+        static final class Call<T, R> extends kilim.Task {
+            final Slot<T, R> slot;
+            final PausableFunction<? super T, ? extends R> mapper;
+            final Mailbox<Slot<T, R>> completions;
+
+            Call(Slot<T, R> slot, PausableFunction<? super T, ? extends R> mapper,
+                 Mailbox<Slot<T, R>> completions) {
+                this.slot = slot;
+                this.mapper = mapper;
+                this.completions = completions;
+            }
+
+            public void execute() throws Pausable {
+                slot.compute(mapper, completions);
+            }
+        }
+
+        /** start the call, which must eventually post the slot to completions */
+        void launch(Slot<T, R> slot) throws Pausable {
+            if (ForkPool.WOVEN)
+                new Call<>(slot, mapper, completions).start();
+            else
+                slot.compute(mapper, completions);
+        }
+
+        /**
+         * start calls for upstream elements until maxInFlight are pending or the shared permits run out.
+         * with nothing pending there's nothing to deliver, so wait for a permit
+         */
+        private void fill() throws Pausable {
+            while (!exhausted && inFlight < maxInFlight) {
+                if (inFlight==0)
+                    permits.acquire();
+                else if (!permits.tryAcquire())
+                    break;
+                if (!upstream.tryAdvance(holder)) {
+                    exhausted = true;
+                    permits.release();
+                    break;
+                }
+                Slot<T, R> slot = new Slot<>(holder.take(), permits);
+                if (ordered)
+                    pending.add(slot);
+                inFlight++;
+                launch(slot);
+            }
+        }
+
+        /** wait for a completion, blocking the thread when unwoven */
+        private Slot<T, R> await() throws Pausable {
+            return ForkPool.WOVEN ? completions.get() : completions.getb();
+        }
+
+        /** @return the next completed call, or null if there are none left */
+        private Slot<T, R> next() throws Pausable {
+            fill();
+            if (inFlight == 0)
+                return null;
+            inFlight--;
+            if (!ordered)
+                return await();
+            Slot<T, R> head = pending.poll();
+            // the posts double as wake ups - discard one per delivery so that they can't pile up
+            if (head.done)
+                completions.getnb();
+            else
+                while (!head.done)
+                    await();
+            return head;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) throws Pausable {
+            Slot<T, R> slot = next();
+            if (slot == null)
+                return false;
+            action.accept(slot.report());
+            return true;
+        }
+
+        @Override
+        public Spliterator<R> trySplit() throws Pausable {
+            // the calls in flight precede anything that upstream could split off
+            if (inFlight > 0)
+                return null;
+            Spliterator<T> split = upstream.trySplit();
+            return split == null ? null : new MapAsyncSpliterator<>(split, maxInFlight, mapper, ordered, permits);
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = upstream.estimateSize();
+            return size == Long.MAX_VALUE ? size : size + inFlight;
+        }
+
+        @Override
+        public int characteristics() {
+            return upstream.characteristics() & ~(ordered ? NOT_MAPPED : NOT_MAPPED | Spliterator.ORDERED);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import kilim.Pausable;
+
+/**
+ * a predicate that may pause the calling task.
+ * the pausable counterpart of {@link java.util.function.Predicate}
+ *
+ * @param <T> the type of the input to the predicate
+ * @see Stream#filterP(PausablePredicate)
+ */
+@FunctionalInterface
+public interface PausablePredicate<T> {
+
+    /**
+     * Evaluates this predicate on the given argument.
+     *
+     * @param t the input argument
+     * @return {@code true} if the input argument matches the predicate,
+     * otherwise {@code false}
+     */
+    boolean test(T t) throws Pausable;
+}
@@ -160,6 +160,17 @@ abstract class PipelineHelper<P_OUT> {
      */
     abstract<P_IN> Spliterator<P_OUT> wrapSpliterator(Spliterator<P_IN> spliterator);
 
+    /**
+     * For a parallel pipeline, evaluates each stateful operation described by
+     * this {@code PipelineHelper}, in order, returning a {@code Spliterator}
+     * describing the output of the last one, suitable as the input to the
+     * stages that follow it.  Otherwise returns the spliterator unchanged.
+     *
+     * @param spliterator the source {@code Spliterator}
+     * @return the {@code Spliterator} to traverse with the remaining stages
+     */
+    abstract Spliterator<?> doLazy(Spliterator<?> spliterator) throws Pausable;
+
     /**
      * Constructs a @{link Node.Builder} compatible with the output shape of
      * this {@code PipelineHelper}.
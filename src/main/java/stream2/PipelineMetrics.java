@@ -0,0 +1,387 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import java.lang.management.ManagementFactory;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+/**
+ * opt-in per-stage metrics for the evaluation of a pipeline by a terminal op.
+ * while enabled, {@link AbstractPipeline#wrapSink} interposes a counting sink ahead of the sink of
+ * each stage, which records the elements into the stage, the time spent in it, the sizes passed to
+ * begin and the cancellation requests that it made.
+ * a source that implements {@link Pausing}, eg {@link MailboxSpliterator}, reports its pauses.
+ * once the terminal op completes, the metrics are passed to each {@link Listener},
+ * and added to the totals of the {@link Registry}, which is registered with the platform mbean server.
+ *
+ * <p>stage 0 is the source, the intermediate ops are numbered in order, and the terminal op is last.
+ * the time of a stage is measured per element and excludes the time of the downstream stages,
+ * so the metrics have a significant cost of their own - the intent is to find the slowest stage,
+ * not to measure it precisely.
+ * enable with the system property {@code stream2.metrics}, or {@link #setEnabled}
+ */
+public final class PipelineMetrics {
+    private static final String PROPERTY = "stream2.metrics";
+
+    private static volatile boolean enabled = AccessController.doPrivileged(
+            (PrivilegedAction<Boolean>) () -> Boolean.getBoolean(PROPERTY));
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Are pipelines evaluated from now on instrumented? */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** turn the instrumentation of pipelines on or off, starting with the next evaluation */
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** receives the metrics of each instrumented pipeline, on the thread that ran its terminal op */
+    public interface Listener {
+        void completed(PipelineMetrics metrics);
+    }
+
+    /** a stream source that can count the times that it paused for lack of data */
+    public interface Pausing {
+        /** @return the number of times that traversal has paused */
+        long pauses();
+        /** @return the total time spent paused, in nanoseconds */
+        long pausedNanos();
+    }
+
+    /** the metrics of a single stage */
+    public static final class Stage {
+        private final int index;
+        private final String name;
+        private final LongAdder in = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder begins = new LongAdder();
+        private final LongAdder beginSizes = new LongAdder();
+        private final LongAdder cancellations = new LongAdder();
+        private long out;
+        private long selfNanos;
+
+        Stage(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+
+        /** @return the position of the stage, 0 for the source */
+        public int getIndex() { return index; }
+        /** @return the name of the op, ie the method that created it */
+        public String getName() { return name; }
+        /** @return the number of elements passed into the stage, always 0 for the source */
+        public long getElementsIn() { return in.sum(); }
+        /** @return the number of elements passed to the next stage */
+        public long getElementsOut() { return out; }
+        /** @return the time spent in the stage, excluding downstream stages, in nanoseconds */
+        public long getNanos() { return selfNanos; }
+        /** @return the number of calls to begin, ie one per sequential traversal or parallel leaf */
+        public long getBegins() { return begins.sum(); }
+        /** @return the total of the sizes passed to begin that were known */
+        public long getBeginSizes() { return beginSizes.sum(); }
+        /** @return the number of calls to cancellationRequested that returned true */
+        public long getCancellations() { return cancellations.sum(); }
+
+        public String toString() {
+            return String.format("%d %s: in %d, out %d, %d ns, begins %d (%d), cancellations %d",
+                                 index, name, getElementsIn(), out, selfNanos,
+                                 getBegins(), getBeginSizes(), getCancellations());
+        }
+    }
+
+
+    private final Stage [] stages;
+    private final Pausing source;
+    private final long start = System.nanoTime();
+    private long nanos;
+
+    /**
+     * @param names the names of the stages, source first
+     * @param source the source spliterator
+     */
+    PipelineMetrics(String [] names, Object source) {
+        stages = new Stage[names.length];
+        for (int ii = 0; ii < names.length; ii++)
+            stages[ii] = new Stage(ii, names[ii]);
+        this.source = source instanceof Pausing ? (Pausing) source : null;
+    }
+
+    /** @return the stages, source first and ending with the terminal op */
+    public List<Stage> getStages() {
+        return Arrays.asList(stages);
+    }
+
+    /** @return the number of times that the source paused, or -1 if the source doesn't count them */
+    public long getPauses() {
+        return source==null ? -1 : source.pauses();
+    }
+
+    /** @return the time the source spent paused in nanoseconds, or -1 if the source doesn't count it */
+    public long getPausedNanos() {
+        return source==null ? -1 : source.pausedNanos();
+    }
+
+    /** @return the elapsed time of the terminal op in nanoseconds */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /** @return the stage names joined with arrows, which identifies the shape of the pipeline */
+    public String getSignature() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage stage : stages)
+            sb.append(stage.index==0 ? "" : " -> ").append(stage.name);
+        return sb.toString();
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder(getSignature());
+        sb.append(String.format(": %d ns, pauses %d (%d ns)", nanos, getPauses(), getPausedNanos()));
+        for (Stage stage : stages)
+            sb.append("\n  ").append(stage);
+        return sb.toString();
+    }
+
+    /** compute the derived values and notify the listeners */
+    void complete() {
+        nanos = System.nanoTime() - start;
+        for (int ii = 0; ii < stages.length; ii++) {
+            Stage stage = stages[ii], next = ii + 1 < stages.length ? stages[ii + 1] : null;
+            stage.out = next==null ? 0 : next.in.sum();
+            // the source has no sink of its own, so no time of its own
+            stage.selfNanos = ii==0 ? 0 : stage.nanos.sum() - (next==null ? 0 : next.nanos.sum());
+        }
+        Registry.INSTANCE.add(this);
+        for (Listener listener : listeners)
+            listener.completed(this);
+    }
+
+    /**
+     * interpose a counting sink
+     * @param index the index of the stage that the sink belongs to
+     * @param shape the shape of the elements that the sink accepts
+     * @param sink the sink to count
+     * @return the counting sink
+     */
+    @SuppressWarnings("unchecked")
+    <T> Sink<T> wrap(int index, StreamShape shape, Sink<T> sink) {
+        Stage stage = stages[index];
+        switch (shape) {
+            case INT_VALUE:    return (Sink<T>) new Counting.OfInt(stage, (Sink<Integer>) sink);
+            case LONG_VALUE:   return (Sink<T>) new Counting.OfLong(stage, (Sink<Long>) sink);
+            case DOUBLE_VALUE: return (Sink<T>) new Counting.OfDouble(stage, (Sink<Double>) sink);
+            default:           return new Counting.OfRef<>(stage, sink);
+        }
+    }
+
+    /** a sink that records the metrics of the sink that it wraps */
+    abstract static class Counting<T> implements Sink<T> {
+        final Stage stage;
+        final Sink<T> downstream;
+
+        Counting(Stage stage, Sink<T> downstream) {
+            this.stage = stage;
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void begin(long size) {
+            stage.begins.increment();
+            if (size >= 0)
+                stage.beginSizes.add(size);
+            long t0 = System.nanoTime();
+            downstream.begin(size);
+            stage.nanos.add(System.nanoTime() - t0);
+        }
+
+        @Override
+        public void end() {
+            long t0 = System.nanoTime();
+            downstream.end();
+            stage.nanos.add(System.nanoTime() - t0);
+        }
+
+        @Override
+        public boolean cancellationRequested() {
+            boolean cancel = downstream.cancellationRequested();
+            if (cancel)
+                stage.cancellations.increment();
+            return cancel;
+        }
+
+        static final class OfRef<T> extends Counting<T> {
+            OfRef(Stage stage, Sink<T> downstream) { super(stage, downstream); }
+
+            @Override
+            public void accept(T t) {
+                stage.in.increment();
+                long t0 = System.nanoTime();
+                downstream.accept(t);
+                stage.nanos.add(System.nanoTime() - t0);
+            }
+        }
+
+        static final class OfInt extends Counting<Integer> implements Sink.OfInt {
+            OfInt(Stage stage, Sink<Integer> downstream) { super(stage, downstream); }
+
+            @Override
+            public void accept(int t) {
+                stage.in.increment();
+                long t0 = System.nanoTime();
+                downstream.accept(t);
+                stage.nanos.add(System.nanoTime() - t0);
+            }
+        }
+
+        static final class OfLong extends Counting<Long> implements Sink.OfLong {
+            OfLong(Stage stage, Sink<Long> downstream) { super(stage, downstream); }
+
+            @Override
+            public void accept(long t) {
+                stage.in.increment();
+                long t0 = System.nanoTime();
+                downstream.accept(t);
+                stage.nanos.add(System.nanoTime() - t0);
+            }
+        }
+
+        static final class OfDouble extends Counting<Double> implements Sink.OfDouble {
+            OfDouble(Stage stage, Sink<Double> downstream) { super(stage, downstream); }
+
+            @Override
+            public void accept(double t) {
+                stage.in.increment();
+                long t0 = System.nanoTime();
+                downstream.accept(t);
+                stage.nanos.add(System.nanoTime() - t0);
+            }
+        }
+    }
+
+
+    /** the management interface of the {@link Registry} */
+    public interface RegistryMXBean {
+        /** @return the totals of each stage of each pipeline signature that has completed */
+        List<Totals> getStages();
+        /** forget the totals */
+        void reset();
+    }
+
+    /** the totals of a stage, over all the completed pipelines with the same signature */
+    public static final class Totals {
+        private final String signature;
+        private final int index;
+        private final String name;
+        private long pipelines, in, out, nanos, cancellations, pauses, pausedNanos;
+
+        Totals(String signature, int index, String name) {
+            this.signature = signature;
+            this.index = index;
+            this.name = name;
+        }
+
+        public String getSignature() { return signature; }
+        public int getIndex() { return index; }
+        public String getName() { return name; }
+        public synchronized long getPipelines() { return pipelines; }
+        public synchronized long getElementsIn() { return in; }
+        public synchronized long getElementsOut() { return out; }
+        public synchronized long getNanos() { return nanos; }
+        public synchronized long getCancellations() { return cancellations; }
+        /** @return the pauses of the source, only for stage 0 */
+        public synchronized long getPauses() { return pauses; }
+        /** @return the time that the source was paused, only for stage 0 */
+        public synchronized long getPausedNanos() { return pausedNanos; }
+
+        synchronized void add(PipelineMetrics metrics, Stage stage) {
+            pipelines++;
+            in += stage.getElementsIn();
+            out += stage.out;
+            nanos += stage.selfNanos;
+            cancellations += stage.getCancellations();
+            if (index==0 && metrics.source != null) {
+                pauses += metrics.getPauses();
+                pausedNanos += metrics.getPausedNanos();
+            }
+        }
+    }
+
+    /**
+     * the running totals of the instrumented pipelines, by signature and stage.
+     * registered with the platform mbean server as {@value #NAME} the first time that a pipeline completes
+     */
+    public static final class Registry implements RegistryMXBean {
+        public static final String NAME = "stream2:type=PipelineMetrics";
+        static final Registry INSTANCE = new Registry();
+
+        private final Map<String, Totals []> totals = new LinkedHashMap<>();
+        private boolean registered;
+
+        /** @return the registry that the completed pipelines are added to */
+        public static Registry get() {
+            return INSTANCE;
+        }
+
+        synchronized void add(PipelineMetrics metrics) {
+            if (!registered) {
+                registered = true;
+                register();
+            }
+            String signature = metrics.getSignature();
+            Totals [] stages = totals.get(signature);
+            if (stages==null) {
+                stages = new Totals[metrics.stages.length];
+                for (int ii = 0; ii < stages.length; ii++)
+                    stages[ii] = new Totals(signature, ii, metrics.stages[ii].name);
+                totals.put(signature, stages);
+            }
+            for (int ii = 0; ii < stages.length; ii++)
+                stages[ii].add(metrics, metrics.stages[ii]);
+        }
+
+        private void register() {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(NAME));
+            }
+            catch (Exception ex) {
+                // management is best effort, eg the name may already be taken in another class loader
+            }
+        }
+
+        @Override
+        public synchronized List<Totals> getStages() {
+            List<Totals> list = new ArrayList<>();
+            for (Totals [] stages : totals.values())
+                list.addAll(Arrays.asList(stages));
+            return list;
+        }
+
+        @Override
+        public synchronized void reset() {
+            totals.clear();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import kilim.Pausable;
+import java.util.Arrays;
+
+/**
+ * an LSD radix sort for the large primitive sorts of SortedOps, 8 bits per pass.
+ * keys are mapped to unsigned order by flipping the sign bit, and doubles are first mapped to
+ * long bits with the same order as {@link Double#compare}, so the results match Arrays.sort.
+ * a pass is skipped when every key shares the digit, eg the high bytes of a run of timestamps.
+ * smaller arrays are left to Arrays.sort, and the parallel variant sorts each pass by chunks,
+ * counting and then scattering each chunk on a kilim task.
+ * each sort uses a single workspace array the size of the input, like Arrays2.parallelSort
+ */
+final class RadixSort {
+
+    private RadixSort() { }
+
+    /** the array length below which the comparison sorts are used */
+    static final int THRESHOLD = 1 << 15;
+
+    /** the minimum number of elements in a chunk of a parallel pass */
+    static final int MIN_CHUNK = 1 << 14;
+
+    private static final int BITS = 8;
+    private static final int RADIX = 1 << BITS;
+    private static final int MASK = RADIX - 1;
+
+    private static boolean parallel(int n) {
+        return ForkPool.REAL && ForkPool.PARALLELISM > 1 && n >= 2*MIN_CHUNK;
+    }
+
+    private static int chunks(int n) {
+        return Math.max(1, Math.min(ForkPool.PARALLELISM << 2, n / MIN_CHUNK));
+    }
+
+    /** map a double to a long with the same signed ordering as {@link Double#compare} */
+    static long key(double t) {
+        long bits = Double.doubleToLongBits(t);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * sort the range [from, to) of the array into ascending order
+     */
+    static void sort(int[] a, int from, int to) {
+        if (to - from < THRESHOLD)
+            Arrays.sort(a, from, to);
+        else
+            new OfInt(a, from, to, 1).sort();
+    }
+
+    /**
+     * sort the range [from, to) of the array into ascending order
+     */
+    static void sort(long[] a, int from, int to) {
+        if (to - from < THRESHOLD)
+            Arrays.sort(a, from, to);
+        else
+            new OfLong(a, from, to, 1).sort();
+    }
+
+    /**
+     * sort the range [from, to) of the array into the order of Arrays.sort(double[])
+     */
+    static void sort(double[] a, int from, int to) {
+        if (to - from < THRESHOLD)
+            Arrays.sort(a, from, to);
+        else
+            new OfDouble(a, from, to, 1).sort();
+    }
+
+    /**
+     * sort the array into ascending order, in parallel if it is large and the classes are woven
+     */
+    static void parallelSort(int[] a) throws Pausable {
+        int n = a.length;
+        if (n < THRESHOLD)
+            Arrays2.parallelSort(a);
+        else if (!parallel(n))
+            new OfInt(a, 0, n, 1).sort();
+        else
+            new OfInt(a, 0, n, chunks(n)).parallelSort();
+    }
+
+    /**
+     * sort the array into ascending order, in parallel if it is large and the classes are woven
+     */
+    static void parallelSort(long[] a) throws Pausable {
+        int n = a.length;
+        if (n < THRESHOLD)
+            Arrays2.parallelSort(a);
+        else if (!parallel(n))
+            new OfLong(a, 0, n, 1).sort();
+        else
+            new OfLong(a, 0, n, chunks(n)).parallelSort();
+    }
+
+    /**
+     * sort the array into the order of Arrays.sort(double[]), in parallel if it is large
+     * and the classes are woven
+     */
+    static void parallelSort(double[] a) throws Pausable {
+        int n = a.length;
+        if (n < THRESHOLD)
+            Arrays2.parallelSort(a);
+        else if (!parallel(n))
+            new OfDouble(a, 0, n, 1).sort();
+        else
+            new OfDouble(a, 0, n, chunks(n)).parallelSort();
+    }
+
+    /**
+     * the passes of a sort, with the input split into chunks that are counted and scattered
+     * independently. the offsets are assigned bucket-major and chunk-minor, so each pass is stable
+     */
+    abstract static class Passes {
+        final int n;
+        final int digits;
+        final int chunk;
+        final int[][] counts;
+
+        Passes(int n, int digits, int chunks) {
+            this.n = n;
+            this.digits = digits;
+            this.chunk = (n + chunks - 1) / chunks;
+            this.counts = new int[(n + chunk - 1) / chunk][RADIX];
+        }
+
+        int lo(int c) { return c * chunk; }
+        int hi(int c) { return Math.min(n, (c+1) * chunk); }
+
+        /** count the digits of chunk c into counts[c] */
+        abstract void count(int c, int shift);
+
+        /** scatter chunk c from the source to the destination at the offsets in counts[c] */
+        abstract void scatter(int c, int shift);
+
+        /** the destination becomes the source for the next pass */
+        abstract void flip();
+
+        /** copy the sorted source back into the input, if they're not the same array */
+        abstract void finish();
+
+        /**
+         * replace the counts with the starting offset of each chunk and bucket
+         * @return false if all the keys share the digit and the pass can be skipped
+         */
+        boolean offsets() {
+            int sum = 0;
+            for (int b = 0; b < RADIX; b++) {
+                int total = 0;
+                for (int[] cc : counts) {
+                    int k = cc[b];
+                    cc[b] = sum;
+                    sum += k;
+                    total += k;
+                }
+                if (total==n)
+                    return false;
+            }
+            return true;
+        }
+
+        void clear() {
+            for (int[] cc : counts)
+                Arrays.fill(cc, 0);
+        }
+
+        void sort() {
+            for (int d = 0; d < digits; d++) {
+                int shift = d*BITS;
+                clear();
+                for (int c = 0; c < counts.length; c++)
+                    count(c, shift);
+                if (offsets()) {
+                    for (int c = 0; c < counts.length; c++)
+                        scatter(c, shift);
+                    flip();
+                }
+            }
+            finish();
+        }
+
+        void parallelSort() throws Pausable {
+            for (int d = 0; d < digits; d++) {
+                int shift = d*BITS;
+                clear();
+                IntStream.range(0, counts.length).parallel().forEach(c -> count(c, shift));
+                if (offsets()) {
+                    IntStream.range(0, counts.length).parallel().forEach(c -> scatter(c, shift));
+                    flip();
+                }
+            }
+            finish();
+        }
+    }
+
+    static final class OfInt extends Passes {
+        final int[] a;
+        final int from;
+        int[] src, dst;
+        int srcOff, dstOff;
+
+        OfInt(int[] a, int from, int to, int chunks) {
+            super(to - from, 4, chunks);
+            this.a = a;
+            this.from = from;
+            src = a;
+            srcOff = from;
+            dst = new int[n];
+        }
+
+        void count(int c, int shift) {
+            int[] cc = counts[c];
+            for (int ii = srcOff + lo(c), hi = srcOff + hi(c); ii < hi; ii++)
+                cc[((src[ii] ^ Integer.MIN_VALUE) >>> shift) & MASK]++;
+        }
+
+        void scatter(int c, int shift) {
+            int[] cc = counts[c];
+            for (int ii = srcOff + lo(c), hi = srcOff + hi(c); ii < hi; ii++) {
+                int x = src[ii];
+                dst[dstOff + cc[((x ^ Integer.MIN_VALUE) >>> shift) & MASK]++] = x;
+            }
+        }
+
+        void flip() {
+            int[] t = src; src = dst; dst = t;
+            int o = srcOff; srcOff = dstOff; dstOff = o;
+        }
+
+        void finish() {
+            if (src != a)
+                System.arraycopy(src, srcOff, a, from, n);
+        }
+    }
+
+    static final class OfLong extends Passes {
+        final long[] a;
+        final int from;
+        long[] src, dst;
+        int srcOff, dstOff;
+
+        OfLong(long[] a, int from, int to, int chunks) {
+            super(to - from, 8, chunks);
+            this.a = a;
+            this.from = from;
+            src = a;
+            srcOff = from;
+            dst = new long[n];
+        }
+
+        void count(int c, int shift) {
+            int[] cc = counts[c];
+            for (int ii = srcOff + lo(c), hi = srcOff + hi(c); ii < hi; ii++)
+                cc[(int) ((src[ii] ^ Long.MIN_VALUE) >>> shift) & MASK]++;
+        }
+
+        void scatter(int c, int shift) {
+            int[] cc = counts[c];
+            for (int ii = srcOff + lo(c), hi = srcOff + hi(c); ii < hi; ii++) {
+                long x = src[ii];
+                dst[dstOff + cc[(int) ((x ^ Long.MIN_VALUE) >>> shift) & MASK]++] = x;
+            }
+        }
+
+        void flip() {
+            long[] t = src; src = dst; dst = t;
+            int o = srcOff; srcOff = dstOff; dstOff = o;
+        }
+
+        void finish() {
+            if (src != a)
+                System.arraycopy(src, srcOff, a, from, n);
+        }
+    }
+
+    /** sorts the doubles themselves, recomputing the key on each visit, so NaN bits are preserved */
+    static final class OfDouble extends Passes {
+        final double[] a;
+        final int from;
+        double[] src, dst;
+        int srcOff, dstOff;
+
+        OfDouble(double[] a, int from, int to, int chunks) {
+            super(to - from, 8, chunks);
+            this.a = a;
+            this.from = from;
+            src = a;
+            srcOff = from;
+            dst = new double[n];
+        }
+
+        void count(int c, int shift) {
+            int[] cc = counts[c];
+            for (int ii = srcOff + lo(c), hi = srcOff + hi(c); ii < hi; ii++)
+                cc[(int) ((key(src[ii]) ^ Long.MIN_VALUE) >>> shift) & MASK]++;
+        }
+
+        void scatter(int c, int shift) {
+            int[] cc = counts[c];
+            for (int ii = srcOff + lo(c), hi = srcOff + hi(c); ii < hi; ii++) {
+                double x = src[ii];
+                dst[dstOff + cc[(int) ((key(x) ^ Long.MIN_VALUE) >>> shift) & MASK]++] = x;
+            }
+        }
+
+        void flip() {
+            double[] t = src; src = dst; dst = t;
+            int o = srcOff; srcOff = dstOff; dstOff = o;
+        }
+
+        void finish() {
+            if (src != a)
+                System.arraycopy(src, srcOff, a, from, n);
+        }
+    }
+}
@@ -24,8 +24,10 @@
  */
 package stream2;
 
+import kilim.Mailbox;
 import kilim.Pausable;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.BiConsumer;
@@ -108,8 +110,8 @@ abstract class ReferencePipeline<P_IN, P_OUT>
     }
 
     @Override
-    final <P_IN> Spliterator<P_OUT> wrap(PipelineHelper<P_OUT> ph, Supplier<Spliterator<P_IN>> supplier, boolean isParallel) {
-        return new StreamSpliterators.WrappingSpliterator<>(ph, supplier, isParallel);
+    final <P_IN> Spliterator<P_OUT> wrap(PipelineHelper<P_OUT> ph, Supplier<Spliterator<P_IN>> supplier, boolean isParallel, boolean lazy) {
+        return new StreamSpliterators.WrappingSpliterator<>(ph, supplier, isParallel, lazy);
     }
 
     @Override
@@ -149,7 +151,7 @@ abstract class ReferencePipeline<P_IN, P_OUT>
             Sink<P_OUT> opWrapSink(int flags, Sink<P_OUT> sink) {
                 return sink;
             }
-        };
+        }.named("unordered");
     }
 
     @Override
@@ -172,7 +174,7 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
-        };
+        }.named("filter");
     }
 
     @Override
@@ -190,7 +192,7 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
-        };
+        }.named("map");
     }
 
     @Override
@@ -207,7 +209,7 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
-        };
+        }.named("mapToInt");
     }
 
     @Override
@@ -224,7 +226,7 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
-        };
+        }.named("mapToLong");
     }
 
     @Override
@@ -241,7 +243,7 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
-        };
+        }.named("mapToDouble");
     }
 
     @Override
@@ -268,7 +270,33 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
-        };
+        }.named("flatMap");
+    }
+
+    @Override
+    public final <R> Stream<R> mapP(PausableFunction<? super P_OUT, ? extends R> mapper) {
+        return PausableOps.makeMap(this, mapper);
+    }
+
+    @Override
+    public final Stream<P_OUT> filterP(PausablePredicate<? super P_OUT> predicate) {
+        return PausableOps.makeFilter(this, predicate);
+    }
+
+    @Override
+    public final <R> Stream<R> flatMapP(PausableFunction<? super P_OUT, ? extends Stream<? extends R>> mapper) {
+        return PausableOps.makeFlatMap(this, mapper);
+    }
+
+    @Override
+    public final <R> Stream<R> mapAsync(int maxInFlight, PausableFunction<? super P_OUT, ? extends R> mapper) {
+        return PausableOps.makeMapAsync(this, maxInFlight, mapper, true);
+    }
+
+    @Override
+    public final <R> Stream<R> mapAsyncUnordered(int maxInFlight,
+                                                 PausableFunction<? super P_OUT, ? extends R> mapper) {
+        return PausableOps.makeMapAsync(this, maxInFlight, mapper, false);
     }
 
     @Override
@@ -296,7 +324,7 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
-        };
+        }.named("flatMapToInt");
     }
 
     @Override
@@ -324,7 +352,7 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
-        };
+        }.named("flatMapToDouble");
     }
 
     @Override
@@ -352,7 +380,7 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
-        };
+        }.named("flatMapToLong");
     }
 
     @Override
@@ -370,14 +398,14 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
-        };
+        }.named("peek");
     }
 
     // Stateful intermediate operations from Stream
 
     @Override
     public final Stream<P_OUT> distinct() {
-        return DistinctOps.makeRef(this);
+        return DistinctOps.makeRef(this).named("distinct");
     }
 
     @Override
@@ -390,11 +418,19 @@ abstract class ReferencePipeline<P_IN, P_OUT>
         return SortedOps.makeRef(this, comparator);
     }
 
+    @Override
+    public final Stream<P_OUT> sorted(Comparator<? super P_OUT> comparator, long budget,
+                                      Spill.Serializer<P_OUT> serializer) {
+        return Spill.makeRef(this, comparator, budget, serializer);
+    }
+
     @Override
     public final Stream<P_OUT> limit(long maxSize) {
         if (maxSize < 0)
             throw new IllegalArgumentException(Long.toString(maxSize));
-        return SliceOps.makeRef(this, 0, maxSize);
+        Stream<P_OUT> slice = SliceOps.makeRef(this, 0, maxSize);
+        SortedOps.bound(this, maxSize);
+        return slice;
     }
 
     @Override
@@ -407,6 +443,11 @@ abstract class ReferencePipeline<P_IN, P_OUT>
             return SliceOps.makeRef(this, n, -1);
     }
 
+    @Override
+    public final Stream<List<P_OUT>> window(int n) {
+        return WindowOps.makeRef(this, n);
+    }
+
     // Terminal operations from Stream
 
     @Override
@@ -419,6 +460,20 @@ abstract class ReferencePipeline<P_IN, P_OUT>
         evaluate(ForEachOps.makeRef(action, true));
     }
 
+    @Override
+    public void toMailbox(Mailbox<? super P_OUT> mailbox) throws Pausable {
+        Objects.requireNonNull(mailbox);
+        MailboxOps.toMailbox(spliterator(), mailbox);
+    }
+
+    @Override
+    public void toMailboxBatched(Mailbox<? super List<P_OUT>> mailbox, int batchSize) throws Pausable {
+        Objects.requireNonNull(mailbox);
+        if (batchSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(batchSize));
+        MailboxOps.toMailboxBatched(spliterator(), mailbox, batchSize);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public final <A> A[] toArray(IntFunction<A[]> generator) throws Pausable {
@@ -457,6 +512,8 @@ abstract class ReferencePipeline<P_IN, P_OUT>
 
     @Override
     public final Optional<P_OUT> findFirst() throws Pausable {
+        if (SortedOps.isSorting(this))
+            return limit(1).findFirst();
         return evaluate(FindOps.makeRef(true));
     }
 
@@ -214,7 +214,7 @@ final class SliceOps {
                     }
                 };
             }
-        };
+        }.named(name(skip, limit));
     }
 
     /**
@@ -323,7 +323,7 @@ final class SliceOps {
                     }
                 };
             }
-        };
+        }.named(name(skip, limit));
     }
 
     /**
@@ -432,7 +432,7 @@ final class SliceOps {
                     }
                 };
             }
-        };
+        }.named(name(skip, limit));
     }
 
     /**
@@ -541,7 +541,12 @@ final class SliceOps {
                     }
                 };
             }
-        };
+        }.named(name(skip, limit));
+    }
+
+    /** the name of a slice operation, for the metrics */
+    private static String name(long skip, long limit) {
+        return limit == -1 ? "skip" : skip == 0 ? "limit" : "slice";
     }
 
     private static int flags(long limit) {
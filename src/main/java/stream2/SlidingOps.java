@@ -0,0 +1,502 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import kilim.Pausable;
+import java.util.function.IntFunction;
+
+/**
+ * Factory for stateful intermediate operations that aggregate a sliding window
+ * of the last {@code n} elements of a primitive stream, emitting one result per
+ * element once the first window is full. A stream of fewer than {@code n}
+ * elements emits nothing.
+ *
+ * <p>Each element is aggregated in amortized constant time, independent of the
+ * window size - sums are kept in a ring buffer of the window, adding the new
+ * element and subtracting the one that leaves, and the minimum and maximum are
+ * kept in a monotonic deque. In parallel, the upstream is collected and cut into
+ * chunks, each primed with the {@code n-1} elements that precede it.
+ */
+final class SlidingOps {
+
+    private SlidingOps() { }
+
+    private static final int FLAGS = StreamOpFlag.NOT_SIZED | StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT;
+
+    /** the minimum number of results computed by a parallel chunk, to amortize the priming */
+    static final int MIN_CHUNK = 1 << 12;
+
+    /** the aggregate of a window */
+    enum Kind {
+        SUM("slidingSum"), MIN("slidingMin"), MAX("slidingMax"), AVERAGE("slidingAverage");
+
+        /** the name of the stream method, for the metrics */
+        final String op;
+
+        Kind(String op) {
+            this.op = op;
+        }
+    }
+
+    private static void check(int n) {
+        if (n < 1)
+            throw new IllegalArgumentException(Integer.toString(n));
+    }
+
+    /** the number of results for an upstream of the given size, or -1 if unknown */
+    private static long results(long size, int n) {
+        return size < 0 ? -1 : Math.max(0, size - n + 1);
+    }
+
+    /** the collected upstream, for the parallel evaluation of a stage whose output type differs */
+    @SuppressWarnings("unchecked")
+    private static <T, P_IN> Node<T> upstream(PipelineHelper<?> helper, Spliterator<P_IN> spliterator) throws Pausable {
+        return ((PipelineHelper<T>) helper).evaluate(spliterator, true, size -> (T[]) new Object[size]);
+    }
+
+    /** compute the results [lo,hi) of a collected upstream */
+    interface Chunk {
+        void compute(int lo, int hi);
+    }
+
+    /** compute m results in parallel chunks, each large enough to amortize priming a window of n */
+    private static void chunks(int m, int n, Chunk chunk) throws Pausable {
+        int size = Math.max(n, MIN_CHUNK);
+        int count = (int) ((m + (long) size - 1) / size);
+        IntStream.range(0, count).parallel().forEach(c -> chunk.compute(c * size, (int) Math.min(m, (long) c * size + size)));
+    }
+
+    /**
+     * the sliding window of int or long values. the sum wraps on overflow,
+     * and an int result is the low 32 bits, as for int arithmetic
+     */
+    static final class LongWindow {
+        final int n;
+        final Kind kind;
+        /** the window, in arrival order modulo n, for the sum */
+        final long[] ring;
+        long sum;
+        /** the monotonic deque, for the min and max, of values and their positions */
+        final long[] values;
+        final long[] positions;
+        int head, size;
+        long count;
+
+        LongWindow(int n, Kind kind) {
+            this.n = n;
+            this.kind = kind;
+            boolean deque = kind==Kind.MIN || kind==Kind.MAX;
+            ring = deque ? null : new long[n];
+            values = deque ? new long[n] : null;
+            positions = deque ? new long[n] : null;
+        }
+
+        /**
+         * add a value, evicting the oldest once the window is full
+         * @return true if the window is full, ie a result is available
+         */
+        boolean add(long v) {
+            if (ring != null) {
+                int slot = (int) (count % n);
+                sum += v - ring[slot];
+                ring[slot] = v;
+            }
+            else {
+                if (size > 0 && positions[head] <= count - n) {
+                    head = head+1==n ? 0 : head+1;
+                    size--;
+                }
+                boolean max = kind==Kind.MAX;
+                while (size > 0) {
+                    long back = values[(head + size - 1) % n];
+                    if (max ? back > v : back < v) break;
+                    size--;
+                }
+                int slot = (head + size) % n;
+                values[slot] = v;
+                positions[slot] = count;
+                size++;
+            }
+            return ++count >= n;
+        }
+
+        long value() {
+            return ring==null ? values[head] : sum;
+        }
+
+        double average() {
+            return (double) sum / n;
+        }
+    }
+
+    /**
+     * the sliding window of double values. the sum is compensated, and the infinities
+     * and NaNs are counted so that they leave the window cleanly. a NaN in the window
+     * makes every aggregate NaN, as for {@link Math#min} and {@link Math#max}
+     */
+    static final class DoubleWindow {
+        final int n;
+        final Kind kind;
+        final double[] ring;
+        double sum, compensation;
+        int nans, positive, negative;
+        final double[] values;
+        final long[] positions;
+        int head, size;
+        /** the position of the most recent NaN, for the min and max */
+        long nan = Long.MIN_VALUE;
+        long count;
+
+        DoubleWindow(int n, Kind kind) {
+            this.n = n;
+            this.kind = kind;
+            boolean deque = kind==Kind.MIN || kind==Kind.MAX;
+            ring = deque ? null : new double[n];
+            values = deque ? new double[n] : null;
+            positions = deque ? new long[n] : null;
+        }
+
+        private void sum(double v, int sign) {
+            if (Double.isNaN(v))
+                nans += sign;
+            else if (v==Double.POSITIVE_INFINITY)
+                positive += sign;
+            else if (v==Double.NEGATIVE_INFINITY)
+                negative += sign;
+            else {
+                double y = sign * v - compensation;
+                double t = sum + y;
+                compensation = (t - sum) - y;
+                sum = t;
+            }
+        }
+
+        /**
+         * add a value, evicting the oldest once the window is full
+         * @return true if the window is full, ie a result is available
+         */
+        boolean add(double v) {
+            if (ring != null) {
+                int slot = (int) (count % n);
+                if (count >= n)
+                    sum(ring[slot], -1);
+                sum(v, 1);
+                ring[slot] = v;
+            }
+            else {
+                if (size > 0 && positions[head] <= count - n) {
+                    head = head+1==n ? 0 : head+1;
+                    size--;
+                }
+                if (Double.isNaN(v))
+                    nan = count;
+                else {
+                    int sign = kind==Kind.MAX ? 1 : -1;
+                    while (size > 0 && sign * Double.compare(values[(head + size - 1) % n], v) <= 0)
+                        size--;
+                    int slot = (head + size) % n;
+                    values[slot] = v;
+                    positions[slot] = count;
+                    size++;
+                }
+            }
+            return ++count >= n;
+        }
+
+        double value() {
+            if (ring==null)
+                return nan > count - 1 - n ? Double.NaN : values[head];
+            double result;
+            if (nans > 0 || positive > 0 && negative > 0)
+                result = Double.NaN;
+            else if (positive > 0)
+                result = Double.POSITIVE_INFINITY;
+            else if (negative > 0)
+                result = Double.NEGATIVE_INFINITY;
+            else
+                result = sum;
+            return kind==Kind.AVERAGE ? result / n : result;
+        }
+    }
+
+    /**
+     * Appends a sliding sum, min or max operation to the provided stream.
+     *
+     * @param upstream an int stream
+     * @param n the number of elements in each window, must be positive
+     * @param kind the aggregate, other than the average
+     * @return the new stream
+     */
+    static IntStream makeInt(AbstractPipeline<?, Integer, ?> upstream, int n, Kind kind) {
+        check(n);
+        return new IntPipeline.StatefulOp<Integer>(upstream, StreamShape.INT_VALUE, FLAGS) {
+            @Override
+            <P_IN> Node<Integer> opEvaluateParallel(PipelineHelper<Integer> helper,
+                                                    Spliterator<P_IN> spliterator,
+                                                    IntFunction<Integer[]> generator) throws Pausable {
+                int[] elems = ((Node.OfInt) helper.evaluate(spliterator, true, generator)).asPrimitiveArray();
+                int[] results = new int[(int) results(elems.length, n)];
+                chunks(results.length, n, (lo, hi) -> {
+                    LongWindow window = new LongWindow(n, kind);
+                    for (int jj = lo; jj < lo + n - 1; jj++)
+                        window.add(elems[jj]);
+                    for (int ii = lo; ii < hi; ii++) {
+                        window.add(elems[ii + n - 1]);
+                        results[ii] = (int) window.value();
+                    }
+                });
+                return Nodes.node(results);
+            }
+
+            @Override
+            Sink<Integer> opWrapSink(int flags, Sink<Integer> sink) {
+                return new Sink.ChainedInt<Integer>(sink) {
+                    LongWindow window;
+
+                    @Override
+                    public void begin(long size) {
+                        window = new LongWindow(n, kind);
+                        downstream.begin(results(size, n));
+                    }
+
+                    @Override
+                    public void accept(int t) {
+                        if (window.add(t))
+                            downstream.accept((int) window.value());
+                    }
+
+                    @Override
+                    public void end() {
+                        window = null;
+                        downstream.end();
+                    }
+                };
+            }
+        }.named(kind.op);
+    }
+
+    /**
+     * Appends a sliding average operation to the provided stream.
+     *
+     * @param upstream an int stream
+     * @param n the number of elements in each window, must be positive
+     * @return the new stream
+     */
+    static DoubleStream averageInt(AbstractPipeline<?, Integer, ?> upstream, int n) {
+        check(n);
+        return new DoublePipeline.StatefulOp<Integer>(upstream, StreamShape.INT_VALUE, FLAGS) {
+            @Override
+            <P_IN> Node<Double> opEvaluateParallel(PipelineHelper<Double> helper,
+                                                   Spliterator<P_IN> spliterator,
+                                                   IntFunction<Double[]> generator) throws Pausable {
+                int[] elems = ((Node.OfInt) SlidingOps.<Integer, P_IN>upstream(helper, spliterator)).asPrimitiveArray();
+                double[] results = new double[(int) results(elems.length, n)];
+                chunks(results.length, n, (lo, hi) -> {
+                    LongWindow window = new LongWindow(n, Kind.AVERAGE);
+                    for (int jj = lo; jj < lo + n - 1; jj++)
+                        window.add(elems[jj]);
+                    for (int ii = lo; ii < hi; ii++) {
+                        window.add(elems[ii + n - 1]);
+                        results[ii] = window.average();
+                    }
+                });
+                return Nodes.node(results);
+            }
+
+            @Override
+            Sink<Integer> opWrapSink(int flags, Sink<Double> sink) {
+                return new Sink.ChainedInt<Double>(sink) {
+                    LongWindow window;
+
+                    @Override
+                    public void begin(long size) {
+                        window = new LongWindow(n, Kind.AVERAGE);
+                        downstream.begin(results(size, n));
+                    }
+
+                    @Override
+                    public void accept(int t) {
+                        if (window.add(t))
+                            downstream.accept(window.average());
+                    }
+
+                    @Override
+                    public void end() {
+                        window = null;
+                        downstream.end();
+                    }
+                };
+            }
+        }.named("slidingAverage");
+    }
+
+    /**
+     * Appends a sliding sum, min or max operation to the provided stream.
+     *
+     * @param upstream a long stream
+     * @param n the number of elements in each window, must be positive
+     * @param kind the aggregate, other than the average
+     * @return the new stream
+     */
+    static LongStream makeLong(AbstractPipeline<?, Long, ?> upstream, int n, Kind kind) {
+        check(n);
+        return new LongPipeline.StatefulOp<Long>(upstream, StreamShape.LONG_VALUE, FLAGS) {
+            @Override
+            <P_IN> Node<Long> opEvaluateParallel(PipelineHelper<Long> helper,
+                                                 Spliterator<P_IN> spliterator,
+                                                 IntFunction<Long[]> generator) throws Pausable {
+                long[] elems = ((Node.OfLong) helper.evaluate(spliterator, true, generator)).asPrimitiveArray();
+                long[] results = new long[(int) results(elems.length, n)];
+                chunks(results.length, n, (lo, hi) -> {
+                    LongWindow window = new LongWindow(n, kind);
+                    for (int jj = lo; jj < lo + n - 1; jj++)
+                        window.add(elems[jj]);
+                    for (int ii = lo; ii < hi; ii++) {
+                        window.add(elems[ii + n - 1]);
+                        results[ii] = window.value();
+                    }
+                });
+                return Nodes.node(results);
+            }
+
+            @Override
+            Sink<Long> opWrapSink(int flags, Sink<Long> sink) {
+                return new Sink.ChainedLong<Long>(sink) {
+                    LongWindow window;
+
+                    @Override
+                    public void begin(long size) {
+                        window = new LongWindow(n, kind);
+                        downstream.begin(results(size, n));
+                    }
+
+                    @Override
+                    public void accept(long t) {
+                        if (window.add(t))
+                            downstream.accept(window.value());
+                    }
+
+                    @Override
+                    public void end() {
+                        window = null;
+                        downstream.end();
+                    }
+                };
+            }
+        }.named(kind.op);
+    }
+
+    /**
+     * Appends a sliding average operation to the provided stream.
+     *
+     * @param upstream a long stream
+     * @param n the number of elements in each window, must be positive
+     * @return the new stream
+     */
+    static DoubleStream averageLong(AbstractPipeline<?, Long, ?> upstream, int n) {
+        check(n);
+        return new DoublePipeline.StatefulOp<Long>(upstream, StreamShape.LONG_VALUE, FLAGS) {
+            @Override
+            <P_IN> Node<Double> opEvaluateParallel(PipelineHelper<Double> helper,
+                                                   Spliterator<P_IN> spliterator,
+                                                   IntFunction<Double[]> generator) throws Pausable {
+                long[] elems = ((Node.OfLong) SlidingOps.<Long, P_IN>upstream(helper, spliterator)).asPrimitiveArray();
+                double[] results = new double[(int) results(elems.length, n)];
+                chunks(results.length, n, (lo, hi) -> {
+                    LongWindow window = new LongWindow(n, Kind.AVERAGE);
+                    for (int jj = lo; jj < lo + n - 1; jj++)
+                        window.add(elems[jj]);
+                    for (int ii = lo; ii < hi; ii++) {
+                        window.add(elems[ii + n - 1]);
+                        results[ii] = window.average();
+                    }
+                });
+                return Nodes.node(results);
+            }
+
+            @Override
+            Sink<Long> opWrapSink(int flags, Sink<Double> sink) {
+                return new Sink.ChainedLong<Double>(sink) {
+                    LongWindow window;
+
+                    @Override
+                    public void begin(long size) {
+                        window = new LongWindow(n, Kind.AVERAGE);
+                        downstream.begin(results(size, n));
+                    }
+
+                    @Override
+                    public void accept(long t) {
+                        if (window.add(t))
+                            downstream.accept(window.average());
+                    }
+
+                    @Override
+                    public void end() {
+                        window = null;
+                        downstream.end();
+                    }
+                };
+            }
+        }.named("slidingAverage");
+    }
+
+    /**
+     * Appends a sliding sum, min, max or average operation to the provided stream.
+     *
+     * @param upstream a double stream
+     * @param n the number of elements in each window, must be positive
+     * @param kind the aggregate
+     * @return the new stream
+     */
+    static DoubleStream makeDouble(AbstractPipeline<?, Double, ?> upstream, int n, Kind kind) {
+        check(n);
+        return new DoublePipeline.StatefulOp<Double>(upstream, StreamShape.DOUBLE_VALUE, FLAGS) {
+            @Override
+            <P_IN> Node<Double> opEvaluateParallel(PipelineHelper<Double> helper,
+                                                   Spliterator<P_IN> spliterator,
+                                                   IntFunction<Double[]> generator) throws Pausable {
+                double[] elems = ((Node.OfDouble) helper.evaluate(spliterator, true, generator)).asPrimitiveArray();
+                double[] results = new double[(int) results(elems.length, n)];
+                chunks(results.length, n, (lo, hi) -> {
+                    DoubleWindow window = new DoubleWindow(n, kind);
+                    for (int jj = lo; jj < lo + n - 1; jj++)
+                        window.add(elems[jj]);
+                    for (int ii = lo; ii < hi; ii++) {
+                        window.add(elems[ii + n - 1]);
+                        results[ii] = window.value();
+                    }
+                });
+                return Nodes.node(results);
+            }
+
+            @Override
+            Sink<Double> opWrapSink(int flags, Sink<Double> sink) {
+                return new Sink.ChainedDouble<Double>(sink) {
+                    DoubleWindow window;
+
+                    @Override
+                    public void begin(long size) {
+                        window = new DoubleWindow(n, kind);
+                        downstream.begin(results(size, n));
+                    }
+
+                    @Override
+                    public void accept(double t) {
+                        if (window.add(t))
+                            downstream.accept(window.value());
+                    }
+
+                    @Override
+                    public void end() {
+                        window = null;
+                        downstream.end();
+                    }
+                };
+            }
+        }.named(kind.op);
+    }
+}
@@ -48,7 +48,7 @@ final class SortedOps {
      * @param upstream a reference stream with element type T
      */
     static <T> Stream<T> makeRef(AbstractPipeline<?, T, ?> upstream) {
-        return new OfRef<>(upstream);
+        return new OfRef<>(upstream).named("sorted");
     }
 
     /**
@@ -60,7 +60,7 @@ final class SortedOps {
      */
     static <T> Stream<T> makeRef(AbstractPipeline<?, T, ?> upstream,
                                 Comparator<? super T> comparator) {
-        return new OfRef<>(upstream, comparator);
+        return new OfRef<>(upstream, comparator).named("sorted");
     }
 
     /**
@@ -70,7 +70,7 @@ final class SortedOps {
      * @param upstream a reference stream with element type T
      */
     static <T> IntStream makeInt(AbstractPipeline<?, Integer, ?> upstream) {
-        return new OfInt(upstream);
+        return new OfInt(upstream).named("sorted");
     }
 
     /**
@@ -80,7 +80,7 @@ final class SortedOps {
      * @param upstream a reference stream with element type T
      */
     static <T> LongStream makeLong(AbstractPipeline<?, Long, ?> upstream) {
-        return new OfLong(upstream);
+        return new OfLong(upstream).named("sorted");
     }
 
     /**
@@ -90,7 +90,54 @@ final class SortedOps {
      * @param upstream a reference stream with element type T
      */
     static <T> DoubleStream makeDouble(AbstractPipeline<?, Double, ?> upstream) {
-        return new OfDouble(upstream);
+        return new OfDouble(upstream).named("sorted");
+    }
+
+    /**
+     * Is the stage a sort whose output can be bounded by {@link #bound}.
+     *
+     * @param stage the stage to check
+     * @return true if the stage is a sorted operation
+     */
+    static boolean isSorting(AbstractPipeline<?, ?, ?> stage) {
+        return stage instanceof OfRef || stage instanceof OfInt
+                || stage instanceof OfLong || stage instanceof OfDouble;
+    }
+
+    /**
+     * Bounds a sort stage that is immediately followed by a limit of {@code k},
+     * so that only the {@code k} least elements are retained, in a heap, instead
+     * of buffering and sorting the entire input.
+     * The limit itself is still applied by the following slice.
+     * A no-op if the stage is not a sort.
+     *
+     * @param stage the stage preceding the limit, already linked to it
+     * @param k the maximum number of elements the downstream will accept
+     */
+    static void bound(AbstractPipeline<?, ?, ?> stage, long k) {
+        if (k >= Nodes.MAX_ARRAY_SIZE)
+            return;
+        if (stage instanceof OfRef)
+            ((OfRef<?>) stage).limit = k;
+        else if (stage instanceof OfInt)
+            ((OfInt) stage).limit = k;
+        else if (stage instanceof OfLong)
+            ((OfLong) stage).limit = k;
+        else if (stage instanceof OfDouble)
+            ((OfDouble) stage).limit = k;
+    }
+
+    /**
+     * Should a sort of {@code size} elements retain only the {@code limit} least,
+     * ie is it bounded and the size either unknown or larger than the bound.
+     * A known size within the bound is sorted in full, which is cheaper than the heap.
+     *
+     * @param limit the bound of the sort, or -1 if unbounded
+     * @param size the exact number of elements, or -1 if unknown
+     * @return true if a heap of the least elements should be used
+     */
+    static boolean isBounded(long limit, long size) {
+        return limit >= 0 && (size < 0 || size > limit);
     }
 
     /**
@@ -102,6 +149,10 @@ final class SortedOps {
          */
         private final boolean isNaturalSort;
         private final Comparator<? super T> comparator;
+        /**
+         * the number of least elements to retain, or -1 to retain all
+         */
+        private long limit = -1;
 
         /**
          * Sort using natural order of {@literal <T>} which must be
@@ -135,6 +186,8 @@ final class SortedOps {
             // also naturally sorted then this is a no-op
             if (StreamOpFlag.SORTED.isKnown(flags) && isNaturalSort)
                 return sink;
+            else if (limit >= 0)
+                return new RefTopKSink<>(sink, comparator, (int) limit);
             else if (StreamOpFlag.SIZED.isKnown(flags))
                 return new SizedRefSortingSink<>(sink, comparator);
             else
@@ -150,10 +203,19 @@ final class SortedOps {
             if (StreamOpFlag.SORTED.isKnown(helper.getStreamAndOpFlags()) && isNaturalSort) {
                 return helper.evaluate(spliterator, false, generator);
             }
+            else if (isBounded(limit, helper.exactOutputSizeIfKnown(spliterator))) {
+                // each leaf keeps its own heap, merged in encounter order
+                int k = (int) limit;
+                Comparator<? super T> cmp = comparator;
+                RefTopK<T> heap = ReduceOps.<T, RefTopK<T>>makeRef(
+                        () -> new RefTopK<>(cmp, k), RefTopK::add, RefTopK::merge)
+                        .evaluateParallel(helper, spliterator);
+                return Nodes.node(heap.sorted(generator));
+            }
             else {
                 // @@@ Weak two-pass parallel implementation; parallel collect, parallel sort
                 T[] flattenedData = helper.evaluate(spliterator, true, generator).asArray(generator);
-                Arrays.parallelSort(flattenedData, comparator);
+                Arrays2.parallelSort(flattenedData, comparator);
                 return Nodes.node(flattenedData);
             }
         }
@@ -163,6 +225,8 @@ final class SortedOps {
      * Specialized subtype for sorting int streams.
      */
     private static final class OfInt extends IntPipeline.StatefulOp<Integer> {
+        private long limit = -1;
+
         OfInt(AbstractPipeline<?, Integer, ?> upstream) {
             super(upstream, StreamShape.INT_VALUE,
                   StreamOpFlag.IS_ORDERED | StreamOpFlag.IS_SORTED);
@@ -174,6 +238,8 @@ final class SortedOps {
 
             if (StreamOpFlag.SORTED.isKnown(flags))
                 return sink;
+            else if (limit >= 0)
+                return new IntTopKSink(sink, (int) limit);
             else if (StreamOpFlag.SIZED.isKnown(flags))
                 return new SizedIntSortingSink(sink);
             else
@@ -187,11 +253,17 @@ final class SortedOps {
             if (StreamOpFlag.SORTED.isKnown(helper.getStreamAndOpFlags())) {
                 return helper.evaluate(spliterator, false, generator);
             }
+            else if (isBounded(limit, helper.exactOutputSizeIfKnown(spliterator))) {
+                int k = (int) limit;
+                LongTopK heap = ReduceOps.makeInt(() -> new LongTopK(k), LongTopK::add, LongTopK::merge)
+                        .evaluateParallel(helper, spliterator);
+                return Nodes.node(heap.intArray());
+            }
             else {
                 Node.OfInt n = (Node.OfInt) helper.evaluate(spliterator, true, generator);
 
                 int[] content = n.asPrimitiveArray();
-                Arrays.parallelSort(content);
+                RadixSort.parallelSort(content);
 
                 return Nodes.node(content);
             }
@@ -202,6 +274,8 @@ final class SortedOps {
      * Specialized subtype for sorting long streams.
      */
     private static final class OfLong extends LongPipeline.StatefulOp<Long> {
+        private long limit = -1;
+
         OfLong(AbstractPipeline<?, Long, ?> upstream) {
             super(upstream, StreamShape.LONG_VALUE,
                   StreamOpFlag.IS_ORDERED | StreamOpFlag.IS_SORTED);
@@ -213,6 +287,8 @@ final class SortedOps {
 
             if (StreamOpFlag.SORTED.isKnown(flags))
                 return sink;
+            else if (limit >= 0)
+                return new LongTopKSink(sink, (int) limit);
             else if (StreamOpFlag.SIZED.isKnown(flags))
                 return new SizedLongSortingSink(sink);
             else
@@ -226,11 +302,17 @@ final class SortedOps {
             if (StreamOpFlag.SORTED.isKnown(helper.getStreamAndOpFlags())) {
                 return helper.evaluate(spliterator, false, generator);
             }
+            else if (isBounded(limit, helper.exactOutputSizeIfKnown(spliterator))) {
+                int k = (int) limit;
+                LongTopK heap = ReduceOps.makeLong(() -> new LongTopK(k), LongTopK::add, LongTopK::merge)
+                        .evaluateParallel(helper, spliterator);
+                return Nodes.node(heap.longArray());
+            }
             else {
                 Node.OfLong n = (Node.OfLong) helper.evaluate(spliterator, true, generator);
 
                 long[] content = n.asPrimitiveArray();
-                Arrays.parallelSort(content);
+                RadixSort.parallelSort(content);
 
                 return Nodes.node(content);
             }
@@ -241,6 +323,8 @@ final class SortedOps {
      * Specialized subtype for sorting double streams.
      */
     private static final class OfDouble extends DoublePipeline.StatefulOp<Double> {
+        private long limit = -1;
+
         OfDouble(AbstractPipeline<?, Double, ?> upstream) {
             super(upstream, StreamShape.DOUBLE_VALUE,
                   StreamOpFlag.IS_ORDERED | StreamOpFlag.IS_SORTED);
@@ -252,6 +336,8 @@ final class SortedOps {
 
             if (StreamOpFlag.SORTED.isKnown(flags))
                 return sink;
+            else if (limit >= 0)
+                return new DoubleTopKSink(sink, (int) limit);
             else if (StreamOpFlag.SIZED.isKnown(flags))
                 return new SizedDoubleSortingSink(sink);
             else
@@ -265,11 +351,17 @@ final class SortedOps {
             if (StreamOpFlag.SORTED.isKnown(helper.getStreamAndOpFlags())) {
                 return helper.evaluate(spliterator, false, generator);
             }
+            else if (isBounded(limit, helper.exactOutputSizeIfKnown(spliterator))) {
+                int k = (int) limit;
+                LongTopK heap = ReduceOps.makeDouble(() -> new LongTopK(k), (acc, t) -> acc.add(RadixSort.key(t)), LongTopK::merge)
+                        .evaluateParallel(helper, spliterator);
+                return Nodes.node(heap.doubleArray());
+            }
             else {
                 Node.OfDouble n = (Node.OfDouble) helper.evaluate(spliterator, true, generator);
 
                 double[] content = n.asPrimitiveArray();
-                Arrays.parallelSort(content);
+                RadixSort.parallelSort(content);
 
                 return Nodes.node(content);
             }
@@ -366,7 +458,7 @@ final class SortedOps {
 
         @Override
         public void end() {
-            Arrays.sort(array, 0, offset);
+            RadixSort.sort(array, 0, offset);
             downstream.begin(offset);
             for (int i = 0; i < offset; i++)
                 downstream.accept(array[i]);
@@ -400,7 +492,7 @@ final class SortedOps {
         @Override
         public void end() {
             int[] ints = b.asPrimitiveArray();
-            Arrays.sort(ints);
+            RadixSort.sort(ints, 0, ints.length);
             downstream.begin(ints.length);
             for (int anInt : ints)
                 downstream.accept(anInt);
@@ -433,7 +525,7 @@ final class SortedOps {
 
         @Override
         public void end() {
-            Arrays.sort(array, 0, offset);
+            RadixSort.sort(array, 0, offset);
             downstream.begin(offset);
             for (int i = 0; i < offset; i++)
                 downstream.accept(array[i]);
@@ -467,7 +559,7 @@ final class SortedOps {
         @Override
         public void end() {
             long[] longs = b.asPrimitiveArray();
-            Arrays.sort(longs);
+            RadixSort.sort(longs, 0, longs.length);
             downstream.begin(longs.length);
             for (long aLong : longs)
                 downstream.accept(aLong);
@@ -500,7 +592,7 @@ final class SortedOps {
 
         @Override
         public void end() {
-            Arrays.sort(array, 0, offset);
+            RadixSort.sort(array, 0, offset);
             downstream.begin(offset);
             for (int i = 0; i < offset; i++)
                 downstream.accept(array[i]);
@@ -534,7 +626,7 @@ final class SortedOps {
         @Override
         public void end() {
             double[] doubles = b.asPrimitiveArray();
-            Arrays.sort(doubles);
+            RadixSort.sort(doubles, 0, doubles.length);
             downstream.begin(doubles.length);
             for (double aDouble : doubles)
                 downstream.accept(aDouble);
@@ -546,4 +638,393 @@ final class SortedOps {
             b.accept(t);
         }
     }
+
+    /**
+     * A bounded max-heap retaining the {@code k} least elements seen, by comparator
+     * and then by arrival, so that equal elements keep their encounter order.
+     * Heaps from sibling leaves are merged left to right.
+     */
+    static final class RefTopK<T> {
+        private final Comparator<? super T> comparator;
+        private final int k;
+        private Object[] elems;
+        private long[] seqs;
+        private int size;
+        private long next;
+
+        RefTopK(Comparator<? super T> comparator, int k) {
+            this.comparator = comparator;
+            this.k = k;
+            int initial = Math.min(k, 16);
+            elems = new Object[initial];
+            seqs = new long[initial];
+        }
+
+        /** is element a with sequence sa ordered after element b with sequence sb */
+        @SuppressWarnings("unchecked")
+        private boolean after(Object a, long sa, Object b, long sb) {
+            int c = comparator.compare((T) a, (T) b);
+            return c > 0 || c==0 && sa > sb;
+        }
+
+        void add(T t) {
+            offer(t, next++);
+        }
+
+        private void offer(Object t, long seq) {
+            if (size < k) {
+                if (size==elems.length) {
+                    int cap = (int) Math.min(k, 2L*size);
+                    elems = Arrays.copyOf(elems, cap);
+                    seqs = Arrays.copyOf(seqs, cap);
+                }
+                int ii = size++;
+                while (ii > 0) {
+                    int parent = (ii-1) >>> 1;
+                    if (!after(t, seq, elems[parent], seqs[parent]))
+                        break;
+                    elems[ii] = elems[parent];
+                    seqs[ii] = seqs[parent];
+                    ii = parent;
+                }
+                elems[ii] = t;
+                seqs[ii] = seq;
+            }
+            else if (k > 0 && after(elems[0], seqs[0], t, seq))
+                siftDown(t, seq, size);
+        }
+
+        /** place t at the root of the heap elems[0,n) and restore the heap */
+        private void siftDown(Object t, long seq, int n) {
+            int ii = 0, child;
+            while ((child = 2*ii+1) < n) {
+                if (child+1 < n && after(elems[child+1], seqs[child+1], elems[child], seqs[child]))
+                    child++;
+                if (!after(elems[child], seqs[child], t, seq))
+                    break;
+                elems[ii] = elems[child];
+                seqs[ii] = seqs[child];
+                ii = child;
+            }
+            elems[ii] = t;
+            seqs[ii] = seq;
+        }
+
+        /** fold in the heap of the leaf that follows this one in encounter order */
+        RefTopK<T> merge(RefTopK<T> other) {
+            for (int ii = 0; ii < other.size; ii++)
+                offer(other.elems[ii], next + other.seqs[ii]);
+            next += other.next;
+            return this;
+        }
+
+        /** heapsort in place, leaving elems[0,size) in ascending order */
+        private void sort() {
+            for (int end = size-1; end > 0; end--) {
+                Object t = elems[end];
+                long seq = seqs[end];
+                elems[end] = elems[0];
+                seqs[end] = seqs[0];
+                siftDown(t, seq, end);
+            }
+        }
+
+        T[] sorted(IntFunction<T[]> generator) {
+            sort();
+            T[] array = generator.apply(size);
+            System.arraycopy(elems, 0, array, 0, size);
+            return array;
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(Sink<? super T> sink) {
+            sort();
+            for (int ii = 0; ii < size; ii++)
+                sink.accept((T) elems[ii]);
+        }
+
+        int size() { return size; }
+    }
+
+    /**
+     * A bounded max-heap of the {@code k} least primitive values seen.
+     * Ints and longs are stored directly, doubles as {@link RadixSort#key sortable bits}.
+     */
+    static final class LongTopK {
+        private final int k;
+        private long[] vals;
+        private int size;
+
+        LongTopK(int k) {
+            this.k = k;
+            vals = new long[Math.min(k, 16)];
+        }
+
+        /** the inverse of {@link RadixSort#key} */
+        static double decode(long t) {
+            return Double.longBitsToDouble(t ^ ((t >> 63) & Long.MAX_VALUE));
+        }
+
+        void add(long t) {
+            if (size < k) {
+                if (size==vals.length)
+                    vals = Arrays.copyOf(vals, (int) Math.min(k, 2L*size));
+                int ii = size++;
+                while (ii > 0) {
+                    int parent = (ii-1) >>> 1;
+                    if (t <= vals[parent])
+                        break;
+                    vals[ii] = vals[parent];
+                    ii = parent;
+                }
+                vals[ii] = t;
+            }
+            else if (k > 0 && t < vals[0])
+                siftDown(t, size);
+        }
+
+        private void siftDown(long t, int n) {
+            int ii = 0, child;
+            while ((child = 2*ii+1) < n) {
+                if (child+1 < n && vals[child+1] > vals[child])
+                    child++;
+                if (vals[child] <= t)
+                    break;
+                vals[ii] = vals[child];
+                ii = child;
+            }
+            vals[ii] = t;
+        }
+
+        LongTopK merge(LongTopK other) {
+            for (int ii = 0; ii < other.size; ii++)
+                add(other.vals[ii]);
+            return this;
+        }
+
+        /** heapsort in place, leaving vals[0,size) in ascending order */
+        private long[] sort() {
+            for (int end = size-1; end > 0; end--) {
+                long t = vals[end];
+                vals[end] = vals[0];
+                siftDown(t, end);
+            }
+            return vals;
+        }
+
+        int size() { return size; }
+
+        int[] intArray() {
+            sort();
+            int[] array = new int[size];
+            for (int ii = 0; ii < size; ii++)
+                array[ii] = (int) vals[ii];
+            return array;
+        }
+
+        long[] longArray() {
+            sort();
+            return Arrays.copyOf(vals, size);
+        }
+
+        double[] doubleArray() {
+            sort();
+            double[] array = new double[size];
+            for (int ii = 0; ii < size; ii++)
+                array[ii] = decode(vals[ii]);
+            return array;
+        }
+    }
+
+    /**
+     * {@link Sink} for implementing sort on reference streams that are followed by a limit.
+     * If the size is known and within the limit, the elements are sorted in full instead.
+     */
+    private static final class RefTopKSink<T> extends Sink.ChainedReference<T, T> {
+        private final Comparator<? super T> comparator;
+        private final int k;
+        private RefTopK<T> heap;
+        private Sink<T> sorter;
+
+        RefTopKSink(Sink<? super T> sink, Comparator<? super T> comparator, int k) {
+            super(sink);
+            this.comparator = comparator;
+            this.k = k;
+        }
+
+        @Override
+        public void begin(long size) {
+            if (isBounded(k, size))
+                heap = new RefTopK<>(comparator, k);
+            else {
+                sorter = new SizedRefSortingSink<>(downstream, comparator);
+                sorter.begin(size);
+            }
+        }
+
+        @Override
+        public void end() {
+            if (sorter != null) {
+                sorter.end();
+                sorter = null;
+                return;
+            }
+            downstream.begin(heap.size());
+            heap.forEach(downstream);
+            downstream.end();
+            heap = null;
+        }
+
+        @Override
+        public void accept(T t) {
+            if (sorter != null)
+                sorter.accept(t);
+            else
+                heap.add(t);
+        }
+    }
+
+    /**
+     * {@link Sink} for implementing sort on int streams that are followed by a limit.
+     * If the size is known and within the limit, the elements are sorted in full instead.
+     */
+    private static final class IntTopKSink extends Sink.ChainedInt<Integer> {
+        private final int k;
+        private LongTopK heap;
+        private Sink.OfInt sorter;
+
+        IntTopKSink(Sink<? super Integer> sink, int k) {
+            super(sink);
+            this.k = k;
+        }
+
+        @Override
+        public void begin(long size) {
+            if (isBounded(k, size))
+                heap = new LongTopK(k);
+            else {
+                sorter = new SizedIntSortingSink(downstream);
+                sorter.begin(size);
+            }
+        }
+
+        @Override
+        public void end() {
+            if (sorter != null) {
+                sorter.end();
+                sorter = null;
+                return;
+            }
+            int[] ints = heap.intArray();
+            downstream.begin(ints.length);
+            for (int anInt : ints)
+                downstream.accept(anInt);
+            downstream.end();
+            heap = null;
+        }
+
+        @Override
+        public void accept(int t) {
+            if (sorter != null)
+                sorter.accept(t);
+            else
+                heap.add(t);
+        }
+    }
+
+    /**
+     * {@link Sink} for implementing sort on long streams that are followed by a limit.
+     * If the size is known and within the limit, the elements are sorted in full instead.
+     */
+    private static final class LongTopKSink extends Sink.ChainedLong<Long> {
+        private final int k;
+        private LongTopK heap;
+        private Sink.OfLong sorter;
+
+        LongTopKSink(Sink<? super Long> sink, int k) {
+            super(sink);
+            this.k = k;
+        }
+
+        @Override
+        public void begin(long size) {
+            if (isBounded(k, size))
+                heap = new LongTopK(k);
+            else {
+                sorter = new SizedLongSortingSink(downstream);
+                sorter.begin(size);
+            }
+        }
+
+        @Override
+        public void end() {
+            if (sorter != null) {
+                sorter.end();
+                sorter = null;
+                return;
+            }
+            long[] longs = heap.longArray();
+            downstream.begin(longs.length);
+            for (long aLong : longs)
+                downstream.accept(aLong);
+            downstream.end();
+            heap = null;
+        }
+
+        @Override
+        public void accept(long t) {
+            if (sorter != null)
+                sorter.accept(t);
+            else
+                heap.add(t);
+        }
+    }
+
+    /**
+     * {@link Sink} for implementing sort on double streams that are followed by a limit.
+     * If the size is known and within the limit, the elements are sorted in full instead.
+     */
+    private static final class DoubleTopKSink extends Sink.ChainedDouble<Double> {
+        private final int k;
+        private LongTopK heap;
+        private Sink.OfDouble sorter;
+
+        DoubleTopKSink(Sink<? super Double> sink, int k) {
+            super(sink);
+            this.k = k;
+        }
+
+        @Override
+        public void begin(long size) {
+            if (isBounded(k, size))
+                heap = new LongTopK(k);
+            else {
+                sorter = new SizedDoubleSortingSink(downstream);
+                sorter.begin(size);
+            }
+        }
+
+        @Override
+        public void end() {
+            if (sorter != null) {
+                sorter.end();
+                sorter = null;
+                return;
+            }
+            double[] doubles = heap.doubleArray();
+            downstream.begin(doubles.length);
+            for (double aDouble : doubles)
+                downstream.accept(aDouble);
+            downstream.end();
+            heap = null;
+        }
+
+        @Override
+        public void accept(double t) {
+            if (sorter != null)
+                sorter.accept(t);
+            else
+                heap.add(RadixSort.key(t));
+        }
+    }
 }
@@ -0,0 +1,731 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import kilim.Mailbox;
+import kilim.Pausable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * sorts that hold at most a budgeted number of elements in memory, spilling sorted runs to a
+ * temporary file and merging the runs lazily as the sorted stream is traversed.
+ *
+ * <p>like the ops of {@link PausableOps}, a spilling sort isn't a stage of the upstream pipeline,
+ * since a sink can't pause. the upstream pipeline is ended with {@link BaseStream#spliterator},
+ * which is drained on the first traversal of the new pipeline. the file is written and read with
+ * an {@link AsynchronousFileChannel}, and the task pauses on a mailbox until each operation
+ * completes (if the classes haven't been woven, the thread blocks instead).
+ *
+ * <p>primitives are spilled as raw big-endian values, 4 bytes per int and 8 per long or double,
+ * and references are spilled by a {@link Serializer}, each record prefixed by its length.
+ * the runs share a single file, which is created in the directory named by the
+ * {@code stream2.spill.dir} property (or else {@code java.io.tmpdir}), and deleted when the
+ * sorted stream is exhausted or closed. a short-circuited traversal, eg {@code sorted(n).limit(k)},
+ * doesn't exhaust the merge and nothing signals the source that the traversal has ended, so the file
+ * stays open until the stream is closed
+ * the merge is sequential, reading a block at a time from each run, so the sorted stream
+ * doesn't split
+ */
+public final class Spill {
+
+    private Spill() { }
+
+    /**
+     * converts stream elements to and from the bytes of a spilled run
+     *
+     * @param <T> the type of the elements
+     */
+    public interface Serializer<T> {
+        /**
+         * write an element
+         * @param t the element
+         * @param out the destination for the bytes of the element
+         * @throws IOException if the element can't be written
+         */
+        void write(T t, DataOutput out) throws IOException;
+
+        /**
+         * read an element, the inverse of {@link #write}
+         * @param in the source of the bytes of the element
+         * @return the element
+         * @throws IOException if the element can't be read
+         */
+        T read(DataInput in) throws IOException;
+    }
+
+    /** a serializer for strings, as their utf-8 bytes, without the 64k limit of writeUTF */
+    public static final Serializer<String> STRINGS = new Serializer<String>() {
+        @Override
+        public void write(String t, DataOutput out) throws IOException {
+            byte[] bytes = t.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /** the size of the blocks in which runs are written and read */
+    static final int BLOCK = 1 << 16;
+
+    /** the initial capacity of the in-memory buffer, which grows up to the budget */
+    static final int INITIAL = 1 << 10;
+
+    static final String DIR_PROPERTY = "stream2.spill.dir";
+
+    private static Path directory() {
+        String dir = AccessController.doPrivileged(
+                (PrivilegedAction<String>) () -> System.getProperty(DIR_PROPERTY,
+                                                                    System.getProperty("java.io.tmpdir")));
+        return Paths.get(dir);
+    }
+
+    private static int capacity(long budget) {
+        if (budget < 1)
+            throw new IllegalArgumentException(Long.toString(budget));
+        return (int) Math.min(budget, Nodes.MAX_ARRAY_SIZE);
+    }
+
+    static <T> Stream<T> makeRef(ReferencePipeline<?, T> upstream, Comparator<? super T> comparator,
+                                 long budget, Serializer<T> serializer) {
+        Objects.requireNonNull(comparator);
+        Objects.requireNonNull(serializer);
+        OfRef<T> sorter = new OfRef<>(upstream.spliterator(), capacity(budget), comparator, serializer);
+        return StreamSupport.stream(() -> sorter, sorter.characteristics(), upstream.isParallel())
+                .onClose(sorter::close)
+                .onClose(upstream::close);
+    }
+
+    static IntStream makeInt(IntPipeline<?> upstream, long budget) {
+        OfInt sorter = new OfInt(upstream.spliterator(), capacity(budget));
+        return StreamSupport.intStream(() -> sorter, sorter.characteristics(), upstream.isParallel())
+                .onClose(sorter::close)
+                .onClose(upstream::close);
+    }
+
+    static LongStream makeLong(LongPipeline<?> upstream, long budget) {
+        OfLong sorter = new OfLong(upstream.spliterator(), capacity(budget));
+        return StreamSupport.longStream(() -> sorter, sorter.characteristics(), upstream.isParallel())
+                .onClose(sorter::close)
+                .onClose(upstream::close);
+    }
+
+    static DoubleStream makeDouble(DoublePipeline<?> upstream, long budget) {
+        OfDouble sorter = new OfDouble(upstream.spliterator(), capacity(budget));
+        return StreamSupport.doubleStream(() -> sorter, sorter.characteristics(), upstream.isParallel())
+                .onClose(sorter::close)
+                .onClose(upstream::close);
+    }
+
+    /**
+     * the temporary file holding the runs of a sort, appended to by write and read by position.
+     * only one operation is outstanding at a time, and its result is delivered to the mailbox
+     */
+    static final class RunFile implements CompletionHandler<Integer, Mailbox<Object>> {
+        private final AsynchronousFileChannel channel;
+        private final Mailbox<Object> box = new Mailbox<>();
+        /** the length of the file, ie the position of the next write */
+        long length;
+
+        RunFile() {
+            try {
+                Path path = Files.createTempFile(directory(), "stream2-spill", ".run");
+                channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                                       StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void completed(Integer result, Mailbox<Object> attachment) {
+            attachment.putnb(result);
+        }
+
+        @Override
+        public void failed(Throwable exc, Mailbox<Object> attachment) {
+            attachment.putnb(exc);
+        }
+
+        /** wait for the outstanding operation, pausing the task if the classes are woven */
+        private int await() throws Pausable {
+            Object result = ForkPool.WOVEN ? box.get() : box.getb();
+            if (result instanceof IOException)
+                throw new UncheckedIOException((IOException) result);
+            if (result instanceof Throwable)
+                throw new UncheckedIOException(new IOException((Throwable) result));
+            return (Integer) result;
+        }
+
+        /** append the remaining bytes of the buffer to the file */
+        void write(ByteBuffer buf) throws Pausable {
+            while (buf.hasRemaining()) {
+                channel.write(buf, length, box, this);
+                length += await();
+            }
+        }
+
+        /** read from the position until the buffer is full */
+        void read(ByteBuffer buf, long position) throws Pausable {
+            while (buf.hasRemaining()) {
+                channel.read(buf, position, box, this);
+                int n = await();
+                if (n < 0)
+                    throw new UncheckedIOException(new IOException("spill file truncated"));
+                position += n;
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    /**
+     * a run being merged, read from the file a block at a time.
+     * the final run is never spilled, and is merged directly from memory
+     */
+    static final class Run {
+        final int index;
+        long position;
+        final long end;
+        ByteBuffer buf;
+
+        Run(int index, long start, long end) {
+            this.index = index;
+            this.position = start;
+            this.end = end;
+            buf = ByteBuffer.allocate((int) Math.min(BLOCK, end - start));
+            buf.flip();
+        }
+
+        /**
+         * make the next n bytes of the run available in the buffer, growing it if needed
+         * @return the buffer, or null if the run is exhausted
+         */
+        ByteBuffer ensure(RunFile file, int n) throws Pausable {
+            if (buf.remaining() >= n)
+                return buf;
+            if (buf.remaining()==0 && position==end)
+                return null;
+            if (n > buf.capacity())
+                buf = ByteBuffer.allocate(n).put(buf);
+            else
+                buf.compact();
+            buf.limit((int) Math.min(buf.capacity(), buf.position() + end - position));
+            int before = buf.position();
+            file.read(buf, position);
+            position += buf.position() - before;
+            buf.flip();
+            if (buf.remaining() < n)
+                throw new UncheckedIOException(new IOException("spill run truncated"));
+            return buf;
+        }
+    }
+
+    /**
+     * the state shared by the primitive sorts, which hold each element as a long that sorts in
+     * the same order, and merge the runs with a heap ordered by the head of each run
+     */
+    abstract static class Primitive {
+        /** the number of bytes per element in the file */
+        final int width;
+        final int budget;
+        long[] keys;
+        int count;
+
+        RunFile file;
+        long[] starts = new long[8];
+        int runs;
+
+        /** the runs being merged, as a min-heap on heads, and the in-memory position */
+        Run[] heap;
+        long[] heads;
+        int live;
+        int pos;
+
+        boolean drained, closed;
+        long remaining;
+        /** the key delivered by the last successful advance */
+        long key;
+
+        Primitive(int budget, int width) {
+            this.budget = budget;
+            this.width = width;
+            keys = new long[Math.min(INITIAL, budget)];
+        }
+
+        /** advance the upstream by one element, passing its key to add */
+        abstract boolean pull() throws Pausable;
+
+        abstract long upstreamSize();
+
+        void add(long t) {
+            keys[count++] = t;
+        }
+
+        void spill() throws Pausable {
+            RadixSort.sort(keys, 0, count);
+            if (file==null)
+                file = new RunFile();
+            if (runs + 1 >= starts.length)
+                starts = Arrays.copyOf(starts, 2*starts.length);
+            starts[runs++] = file.length;
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.min(BLOCK, (long) count * width));
+            for (int ii = 0; ii < count; ii++) {
+                if (!buf.hasRemaining()) {
+                    buf.flip();
+                    file.write(buf);
+                    buf.clear();
+                }
+                if (width==4) buf.putInt((int) keys[ii]);
+                else buf.putLong(keys[ii]);
+            }
+            buf.flip();
+            file.write(buf);
+            starts[runs] = file.length;
+            remaining += count;
+            count = 0;
+        }
+
+        void drain() throws Pausable {
+            while (true) {
+                if (count==keys.length) {
+                    if (count < budget)
+                        keys = Arrays.copyOf(keys, (int) Math.min(budget, 2L*count));
+                    else
+                        spill();
+                }
+                if (!pull())
+                    break;
+            }
+            RadixSort.sort(keys, 0, count);
+            remaining += count;
+            drained = true;
+            if (file==null)
+                return;
+            heap = new Run[runs];
+            heads = new long[runs];
+            for (int ii = 0; ii < runs; ii++) {
+                Run run = new Run(ii, starts[ii], starts[ii+1]);
+                if (next(run))
+                    push(run);
+            }
+        }
+
+        /** read the next key of a run into its slot in heads, by run index */
+        private boolean next(Run run) throws Pausable {
+            ByteBuffer buf = run.ensure(file, width);
+            if (buf==null)
+                return false;
+            heads[run.index] = width==4 ? buf.getInt() : buf.getLong();
+            return true;
+        }
+
+        private void push(Run run) {
+            int ii = live++;
+            long head = heads[run.index];
+            while (ii > 0) {
+                int parent = (ii-1) >>> 1;
+                if (heads[heap[parent].index] <= head)
+                    break;
+                heap[ii] = heap[parent];
+                ii = parent;
+            }
+            heap[ii] = run;
+        }
+
+        private void siftDown(Run run) {
+            long head = heads[run.index];
+            int ii = 0, child;
+            while ((child = 2*ii+1) < live) {
+                if (child+1 < live && heads[heap[child+1].index] < heads[heap[child].index])
+                    child++;
+                if (head <= heads[heap[child].index])
+                    break;
+                heap[ii] = heap[child];
+                ii = child;
+            }
+            heap[ii] = run;
+        }
+
+        /**
+         * set key to the next least element, draining the upstream on the first call
+         * @return false if the sort is exhausted
+         */
+        boolean advance() throws Pausable {
+            if (closed)
+                return false;
+            if (!drained)
+                drain();
+            if (remaining==0) {
+                close();
+                return false;
+            }
+            remaining--;
+            boolean memory = pos < count;
+            if (live > 0) {
+                Run top = heap[0];
+                long head = heads[top.index];
+                if (!memory || head <= keys[pos]) {
+                    key = head;
+                    if (next(top))
+                        siftDown(top);
+                    else if (--live > 0)
+                        siftDown(heap[live]);
+                    return true;
+                }
+            }
+            key = keys[pos++];
+            return true;
+        }
+
+        public long estimateSize() {
+            return drained ? remaining : upstreamSize();
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SORTED | Spliterator.NONNULL;
+        }
+
+        public Comparator<Object> getComparator() {
+            return null;
+        }
+
+        void close() {
+            closed = true;
+            keys = null;
+            if (file != null)
+                file.close();
+            file = null;
+        }
+    }
+
+    static final class OfInt extends Primitive implements Spliterator.OfInt {
+        private final Spliterator.OfInt upstream;
+        private final IntConsumer adder = this::add;
+
+        OfInt(Spliterator.OfInt upstream, int budget) {
+            super(budget, 4);
+            this.upstream = upstream;
+        }
+
+        boolean pull() throws Pausable { return upstream.tryAdvance(adder); }
+        long upstreamSize() { return upstream.estimateSize(); }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) throws Pausable {
+            if (!advance())
+                return false;
+            action.accept((int) key);
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            return null;
+        }
+    }
+
+    static final class OfLong extends Primitive implements Spliterator.OfLong {
+        private final Spliterator.OfLong upstream;
+        private final LongConsumer adder = this::add;
+
+        OfLong(Spliterator.OfLong upstream, int budget) {
+            super(budget, 8);
+            this.upstream = upstream;
+        }
+
+        boolean pull() throws Pausable { return upstream.tryAdvance(adder); }
+        long upstreamSize() { return upstream.estimateSize(); }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) throws Pausable {
+            if (!advance())
+                return false;
+            action.accept(key);
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            return null;
+        }
+    }
+
+    /** doubles are held, and spilled, as the long keys of {@link RadixSort#key} */
+    static final class OfDouble extends Primitive implements Spliterator.OfDouble {
+        private final Spliterator.OfDouble upstream;
+        private final DoubleConsumer adder = t -> add(RadixSort.key(t));
+
+        OfDouble(Spliterator.OfDouble upstream, int budget) {
+            super(budget, 8);
+            this.upstream = upstream;
+        }
+
+        boolean pull() throws Pausable { return upstream.tryAdvance(adder); }
+        long upstreamSize() { return upstream.estimateSize(); }
+
+        @Override
+        public boolean tryAdvance(DoubleConsumer action) throws Pausable {
+            if (!advance())
+                return false;
+            action.accept(Double.longBitsToDouble(key ^ ((key >> 63) & Long.MAX_VALUE)));
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfDouble trySplit() {
+            return null;
+        }
+    }
+
+    /**
+     * a stable sort of references, spilled as length-prefixed records.
+     * the runs are in encounter order and ties between runs go to the earlier run
+     */
+    static final class OfRef<T> implements Spliterator<T>, Consumer<T> {
+        private final Spliterator<T> upstream;
+        private final int budget;
+        private final Comparator<? super T> comparator;
+        private final Serializer<T> serializer;
+        private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(record);
+
+        private Object[] elems;
+        private int count;
+        private RunFile file;
+        private long[] starts = new long[8];
+        private int runs;
+
+        private Run[] heap;
+        private Object[] heads;
+        private int live;
+        private int pos;
+
+        private boolean drained, closed;
+        private long remaining;
+
+        OfRef(Spliterator<T> upstream, int budget, Comparator<? super T> comparator, Serializer<T> serializer) {
+            this.upstream = upstream;
+            this.budget = budget;
+            this.comparator = comparator;
+            this.serializer = serializer;
+            elems = new Object[Math.min(INITIAL, budget)];
+        }
+
+        @Override
+        public void accept(T t) {
+            elems[count++] = t;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void spill() throws Pausable {
+            Arrays.sort((T[]) elems, 0, count, comparator);
+            if (file==null)
+                file = new RunFile();
+            if (runs + 1 >= starts.length)
+                starts = Arrays.copyOf(starts, 2*starts.length);
+            starts[runs++] = file.length;
+            ByteBuffer buf = ByteBuffer.allocate(BLOCK);
+            for (int ii = 0; ii < count; ii++) {
+                record.reset();
+                try {
+                    serializer.write((T) elems[ii], out);
+                    out.flush();
+                }
+                catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                elems[ii] = null;
+                int n = record.size();
+                if (buf.remaining() < 4 + n) {
+                    buf.flip();
+                    file.write(buf);
+                    buf.clear();
+                }
+                if (buf.remaining() < 4 + n) {
+                    ByteBuffer big = ByteBuffer.allocate(4 + n);
+                    big.putInt(n).put(record.toByteArray()).flip();
+                    file.write(big);
+                }
+                else
+                    buf.putInt(n).put(record.toByteArray());
+            }
+            buf.flip();
+            file.write(buf);
+            starts[runs] = file.length;
+            remaining += count;
+            count = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void drain() throws Pausable {
+            while (true) {
+                if (count==elems.length) {
+                    if (count < budget)
+                        elems = Arrays.copyOf(elems, (int) Math.min(budget, 2L*count));
+                    else
+                        spill();
+                }
+                if (!upstream.tryAdvance(this))
+                    break;
+            }
+            Arrays.sort((T[]) elems, 0, count, comparator);
+            remaining += count;
+            drained = true;
+            if (file==null)
+                return;
+            heap = new Run[runs];
+            heads = new Object[runs];
+            for (int ii = 0; ii < runs; ii++) {
+                Run run = new Run(ii, starts[ii], starts[ii+1]);
+                if (next(run))
+                    push(run);
+            }
+        }
+
+        private boolean next(Run run) throws Pausable {
+            ByteBuffer buf = run.ensure(file, 4);
+            if (buf==null)
+                return false;
+            int n = buf.getInt();
+            buf = run.ensure(file, n);
+            try {
+                DataInputStream in = new DataInputStream(
+                        new ByteArrayInputStream(buf.array(), buf.arrayOffset() + buf.position(), n));
+                heads[run.index] = serializer.read(in);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            buf.position(buf.position() + n);
+            return true;
+        }
+
+        /** is run a ordered before run b */
+        @SuppressWarnings("unchecked")
+        private boolean before(Run a, Run b) {
+            int c = comparator.compare((T) heads[a.index], (T) heads[b.index]);
+            return c < 0 || c==0 && a.index < b.index;
+        }
+
+        private void push(Run run) {
+            int ii = live++;
+            while (ii > 0) {
+                int parent = (ii-1) >>> 1;
+                if (!before(run, heap[parent]))
+                    break;
+                heap[ii] = heap[parent];
+                ii = parent;
+            }
+            heap[ii] = run;
+        }
+
+        private void siftDown(Run run) {
+            int ii = 0, child;
+            while ((child = 2*ii+1) < live) {
+                if (child+1 < live && before(heap[child+1], heap[child]))
+                    child++;
+                if (!before(heap[child], run))
+                    break;
+                heap[ii] = heap[child];
+                ii = child;
+            }
+            heap[ii] = run;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super T> action) throws Pausable {
+            if (closed)
+                return false;
+            if (!drained)
+                drain();
+            if (remaining==0) {
+                close();
+                return false;
+            }
+            remaining--;
+            T t;
+            boolean memory = pos < count;
+            // the in-memory elements were the last in encounter order, so they lose ties
+            if (live > 0 && (!memory || comparator.compare((T) heads[heap[0].index], (T) elems[pos]) <= 0)) {
+                Run top = heap[0];
+                t = (T) heads[top.index];
+                heads[top.index] = null;
+                if (next(top))
+                    siftDown(top);
+                else if (--live > 0)
+                    siftDown(heap[live]);
+            }
+            else {
+                t = (T) elems[pos];
+                elems[pos++] = null;
+            }
+            action.accept(t);
+            return true;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return drained ? remaining : upstream.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED;
+        }
+
+        void close() {
+            closed = true;
+            elems = null;
+            if (file != null)
+                file.close();
+            file = null;
+        }
+    }
+}
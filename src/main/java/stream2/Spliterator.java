@@ -832,4 +832,141 @@ public interface Spliterator<T> {
             }
         }
     }
+
+    /**
+     * A Spliterator whose traversal can never pause, eg because its elements
+     * are held in memory.  The methods of this interface don't declare
+     * {@code Pausable}, so they aren't woven and a pipeline that knows that its
+     * source never pauses can traverse it in a tight loop, without saving and
+     * restoring the fiber state for each element.  They have the same contract
+     * as {@link Spliterator#tryAdvance} and {@link Spliterator#forEachRemaining}.
+     *
+     * <p>A Spliterator that wraps another, possibly pausing, Spliterator must
+     * not implement this interface.
+     *
+     * @param <T> the type of elements returned by this Spliterator
+     */
+    public interface NonPausing<T> {
+
+        /**
+         * the non-pausing equivalent of {@link Spliterator#tryAdvance(Consumer)}
+         * @param action The action
+         * @return {@code false} if no remaining elements existed
+         * upon entry to this method, else {@code true}.
+         */
+        boolean tryAdvanceNow(Consumer<? super T> action);
+
+        /**
+         * the non-pausing equivalent of {@link Spliterator#forEachRemaining(Consumer)}
+         * @param action The action
+         */
+        void forEachRemainingNow(Consumer<? super T> action);
+
+        /**
+         * A NonPausing specialized for {@code int} values, which adapts the
+         * {@code Consumer} methods the same way as {@link Spliterator.OfInt}.
+         */
+        public interface OfInt extends NonPausing<Integer> {
+
+            // a lambda could match either overload, as for Spliterator.OfPrimitive, so callers
+            // cast to the primitive consumer, and the Consumer versions below adapt to it
+            @SuppressWarnings("overloads")
+            boolean tryAdvanceNow(IntConsumer action);
+
+            @SuppressWarnings("overloads")
+            void forEachRemainingNow(IntConsumer action);
+
+            @Override
+            default boolean tryAdvanceNow(Consumer<? super Integer> action) {
+                if (action instanceof IntConsumer)
+                    return tryAdvanceNow((IntConsumer) action);
+                if (Tripwire.ENABLED)
+                    Tripwire.trip(getClass(),
+                                  "{0} calling NonPausing.OfInt.tryAdvanceNow((IntConsumer) action::accept)");
+                return tryAdvanceNow((IntConsumer) action::accept);
+            }
+
+            @Override
+            default void forEachRemainingNow(Consumer<? super Integer> action) {
+                if (action instanceof IntConsumer) {
+                    forEachRemainingNow((IntConsumer) action);
+                    return;
+                }
+                if (Tripwire.ENABLED)
+                    Tripwire.trip(getClass(),
+                                  "{0} calling NonPausing.OfInt.forEachRemainingNow((IntConsumer) action::accept)");
+                forEachRemainingNow((IntConsumer) action::accept);
+            }
+        }
+
+        /**
+         * A NonPausing specialized for {@code long} values, which adapts the
+         * {@code Consumer} methods the same way as {@link Spliterator.OfLong}.
+         */
+        public interface OfLong extends NonPausing<Long> {
+
+            @SuppressWarnings("overloads")
+            boolean tryAdvanceNow(LongConsumer action);
+
+            @SuppressWarnings("overloads")
+            void forEachRemainingNow(LongConsumer action);
+
+            @Override
+            default boolean tryAdvanceNow(Consumer<? super Long> action) {
+                if (action instanceof LongConsumer)
+                    return tryAdvanceNow((LongConsumer) action);
+                if (Tripwire.ENABLED)
+                    Tripwire.trip(getClass(),
+                                  "{0} calling NonPausing.OfLong.tryAdvanceNow((LongConsumer) action::accept)");
+                return tryAdvanceNow((LongConsumer) action::accept);
+            }
+
+            @Override
+            default void forEachRemainingNow(Consumer<? super Long> action) {
+                if (action instanceof LongConsumer) {
+                    forEachRemainingNow((LongConsumer) action);
+                    return;
+                }
+                if (Tripwire.ENABLED)
+                    Tripwire.trip(getClass(),
+                                  "{0} calling NonPausing.OfLong.forEachRemainingNow((LongConsumer) action::accept)");
+                forEachRemainingNow((LongConsumer) action::accept);
+            }
+        }
+
+        /**
+         * A NonPausing specialized for {@code double} values, which adapts the
+         * {@code Consumer} methods the same way as {@link Spliterator.OfDouble}.
+         */
+        public interface OfDouble extends NonPausing<Double> {
+
+            @SuppressWarnings("overloads")
+            boolean tryAdvanceNow(DoubleConsumer action);
+
+            @SuppressWarnings("overloads")
+            void forEachRemainingNow(DoubleConsumer action);
+
+            @Override
+            default boolean tryAdvanceNow(Consumer<? super Double> action) {
+                if (action instanceof DoubleConsumer)
+                    return tryAdvanceNow((DoubleConsumer) action);
+                if (Tripwire.ENABLED)
+                    Tripwire.trip(getClass(),
+                                  "{0} calling NonPausing.OfDouble.tryAdvanceNow((DoubleConsumer) action::accept)");
+                return tryAdvanceNow((DoubleConsumer) action::accept);
+            }
+
+            @Override
+            default void forEachRemainingNow(Consumer<? super Double> action) {
+                if (action instanceof DoubleConsumer) {
+                    forEachRemainingNow((DoubleConsumer) action);
+                    return;
+                }
+                if (Tripwire.ENABLED)
+                    Tripwire.trip(getClass(),
+                                  "{0} calling NonPausing.OfDouble.forEachRemainingNow((DoubleConsumer) action::accept)");
+                forEachRemainingNow((DoubleConsumer) action::accept);
+            }
+        }
+    }
 }
@@ -895,7 +895,7 @@ public final class Spliterators {
      * A Spliterator designed for use by sources that traverse and split
      * elements maintained in an unmodifiable {@code Object[]} array.
      */
-    static final class ArraySpliterator<T> implements Spliterator<T> {
+    static final class ArraySpliterator<T> implements Spliterator<T>, Spliterator.NonPausing<T> {
         /**
          * The array, explicitly typed as Object[]. Unlike in some other
          * classes (see for example CR 6260652), we do not need to
@@ -943,9 +943,14 @@ public final class Spliterators {
                    : new ArraySpliterator<>(array, lo, index = mid, characteristics);
         }
 
-        @SuppressWarnings("unchecked")
         @Override
         public void forEachRemaining(Consumer<? super T> action) throws Pausable {
+            forEachRemainingNow(action);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEachRemainingNow(Consumer<? super T> action) {
             Object[] a; int i, hi; // hoist accesses and checks from loop
             if (action == null)
                 throw new NullPointerException();
@@ -957,6 +962,11 @@ public final class Spliterators {
 
         @Override
         public boolean tryAdvance(Consumer<? super T> action) throws Pausable {
+            return tryAdvanceNow(action);
+        }
+
+        @Override
+        public boolean tryAdvanceNow(Consumer<? super T> action) {
             if (action == null)
                 throw new NullPointerException();
             if (index >= 0 && index < fence) {
@@ -987,7 +997,7 @@ public final class Spliterators {
      * A Spliterator.OfInt designed for use by sources that traverse and split
      * elements maintained in an unmodifiable {@code int[]} array.
      */
-    static final class IntArraySpliterator implements Spliterator.OfInt {
+    static final class IntArraySpliterator implements Spliterator.OfInt, Spliterator.NonPausing.OfInt {
         private final int[] array;
         private int index;        // current index, modified on advance/split
         private final int fence;  // one past last index
@@ -1021,7 +1031,7 @@ public final class Spliterators {
         }
 
         @Override
-        public OfInt trySplit() throws Pausable {
+        public Spliterator.OfInt trySplit() throws Pausable {
             int lo = index, mid = (lo + fence) >>> 1;
             return (lo >= mid)
                    ? null
@@ -1030,6 +1040,11 @@ public final class Spliterators {
 
         @Override
         public void forEachRemaining(IntConsumer action) throws Pausable {
+            forEachRemainingNow(action);
+        }
+
+        @Override
+        public void forEachRemainingNow(IntConsumer action) {
             int[] a; int i, hi; // hoist accesses and checks from loop
             if (action == null)
                 throw new NullPointerException();
@@ -1041,6 +1056,11 @@ public final class Spliterators {
 
         @Override
         public boolean tryAdvance(IntConsumer action) throws Pausable {
+            return tryAdvanceNow(action);
+        }
+
+        @Override
+        public boolean tryAdvanceNow(IntConsumer action) {
             if (action == null)
                 throw new NullPointerException();
             if (index >= 0 && index < fence) {
@@ -1070,7 +1090,7 @@ public final class Spliterators {
      * A Spliterator.OfLong designed for use by sources that traverse and split
      * elements maintained in an unmodifiable {@code int[]} array.
      */
-    static final class LongArraySpliterator implements Spliterator.OfLong {
+    static final class LongArraySpliterator implements Spliterator.OfLong, Spliterator.NonPausing.OfLong {
         private final long[] array;
         private int index;        // current index, modified on advance/split
         private final int fence;  // one past last index
@@ -1104,7 +1124,7 @@ public final class Spliterators {
         }
 
         @Override
-        public OfLong trySplit() throws Pausable {
+        public Spliterator.OfLong trySplit() throws Pausable {
             int lo = index, mid = (lo + fence) >>> 1;
             return (lo >= mid)
                    ? null
@@ -1113,6 +1133,11 @@ public final class Spliterators {
 
         @Override
         public void forEachRemaining(LongConsumer action) throws Pausable {
+            forEachRemainingNow(action);
+        }
+
+        @Override
+        public void forEachRemainingNow(LongConsumer action) {
             long[] a; int i, hi; // hoist accesses and checks from loop
             if (action == null)
                 throw new NullPointerException();
@@ -1124,6 +1149,11 @@ public final class Spliterators {
 
         @Override
         public boolean tryAdvance(LongConsumer action) throws Pausable {
+            return tryAdvanceNow(action);
+        }
+
+        @Override
+        public boolean tryAdvanceNow(LongConsumer action) {
             if (action == null)
                 throw new NullPointerException();
             if (index >= 0 && index < fence) {
@@ -1153,7 +1183,7 @@ public final class Spliterators {
      * A Spliterator.OfDouble designed for use by sources that traverse and split
      * elements maintained in an unmodifiable {@code int[]} array.
      */
-    static final class DoubleArraySpliterator implements Spliterator.OfDouble {
+    static final class DoubleArraySpliterator implements Spliterator.OfDouble, Spliterator.NonPausing.OfDouble {
         private final double[] array;
         private int index;        // current index, modified on advance/split
         private final int fence;  // one past last index
@@ -1187,7 +1217,7 @@ public final class Spliterators {
         }
 
         @Override
-        public OfDouble trySplit() throws Pausable {
+        public Spliterator.OfDouble trySplit() throws Pausable {
             int lo = index, mid = (lo + fence) >>> 1;
             return (lo >= mid)
                    ? null
@@ -1196,6 +1226,11 @@ public final class Spliterators {
 
         @Override
         public void forEachRemaining(DoubleConsumer action) throws Pausable {
+            forEachRemainingNow(action);
+        }
+
+        @Override
+        public void forEachRemainingNow(DoubleConsumer action) {
             double[] a; int i, hi; // hoist accesses and checks from loop
             if (action == null)
                 throw new NullPointerException();
@@ -1207,6 +1242,11 @@ public final class Spliterators {
 
         @Override
         public boolean tryAdvance(DoubleConsumer action) throws Pausable {
+            return tryAdvanceNow(action);
+        }
+
+        @Override
+        public boolean tryAdvanceNow(DoubleConsumer action) {
             if (action == null)
                 throw new NullPointerException();
             if (index >= 0 && index < fence) {
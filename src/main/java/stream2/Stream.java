@@ -24,12 +24,14 @@
  */
 package stream2;
 
+import kilim.Mailbox;
 import kilim.Pausable;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
@@ -266,6 +268,115 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     <R> Stream<R> flatMap(Function<? super T, ? extends java.util.stream.Stream<? extends R>> mapper);
 
+    /**
+     * Returns a stream consisting of the results of applying the given
+     * pausable function to the elements of this stream.
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>, but since a sink can't pause it ends this pipeline: the
+     * function is applied as the {@link #spliterator() spliterator} of this
+     * stream is traversed, and the returned stream is built on top of that.
+     * Splitting passes through to this stream, so a parallel stream stays
+     * parallel, and closing the returned stream closes this one.
+     *
+     * @param <R> The element type of the new stream
+     * @param mapper a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *               <a href="package-summary.html#Statelessness">stateless</a>
+     *               function to apply to each element, which may pause
+     * @return the new stream
+     * @see #map(Function)
+     */
+    <R> Stream<R> mapP(PausableFunction<? super T, ? extends R> mapper);
+
+    /**
+     * Returns a stream consisting of the elements of this stream that match
+     * the given pausable predicate.
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>, which ends this pipeline as described for
+     * {@link #mapP(PausableFunction)}.
+     *
+     * @param predicate a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *                  <a href="package-summary.html#Statelessness">stateless</a>
+     *                  predicate to apply to each element to determine if it
+     *                  should be included, which may pause
+     * @return the new stream
+     * @see #filter(Predicate)
+     */
+    Stream<T> filterP(PausablePredicate<? super T> predicate);
+
+    /**
+     * Returns a stream consisting of the results of replacing each element of
+     * this stream with the contents of a mapped stream produced by applying
+     * the provided pausable mapping function to each element.  Each mapped
+     * stream is {@link BaseStream#close() closed} after its contents have
+     * been consumed.  (If a mapped stream is {@code null} an empty stream is
+     * used, instead.)
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>, which ends this pipeline as described for
+     * {@link #mapP(PausableFunction)}.
+     *
+     * @param <R> The element type of the new stream
+     * @param mapper a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *               <a href="package-summary.html#Statelessness">stateless</a>
+     *               function to apply to each element which produces a stream
+     *               of new values, which may pause
+     * @return the new stream
+     * @see #flatMap(Function)
+     */
+    <R> Stream<R> flatMapP(PausableFunction<? super T, ? extends Stream<? extends R>> mapper);
+
+    /**
+     * Returns a stream consisting of the results of applying the given
+     * pausable function to the elements of this stream, with up to
+     * {@code maxInFlight} applications running concurrently, each on its own
+     * kilim task.  The results are in the encounter order of this stream:
+     * a result that completes early is held until the results of the
+     * preceding elements have been delivered.
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>, which ends this pipeline as described for
+     * {@link #mapP(PausableFunction)}.  If the function throws an exception
+     * it is rethrown when that element would have been delivered.  Calls
+     * that are in flight when traversal stops, eg for a short-circuiting
+     * operation, run to completion and their results are discarded.  For a
+     * parallel stream the bound applies to the stream as a whole, not to
+     * each split.
+     *
+     * <p>If the classes haven't been woven, the function is applied inline.
+     *
+     * @param <R> The element type of the new stream
+     * @param maxInFlight the maximum number of concurrent applications
+     * @param mapper a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *               <a href="package-summary.html#Statelessness">stateless</a>
+     *               function to apply to each element, which may pause
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code maxInFlight} is not positive
+     * @see #mapAsyncUnordered(int, PausableFunction)
+     */
+    <R> Stream<R> mapAsync(int maxInFlight, PausableFunction<? super T, ? extends R> mapper);
+
+    /**
+     * Returns an unordered stream consisting of the results of applying the
+     * given pausable function to the elements of this stream, with up to
+     * {@code maxInFlight} applications running concurrently, each on its own
+     * kilim task.  The results are delivered in the order that they complete.
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>, which otherwise behaves as
+     * {@link #mapAsync(int, PausableFunction)}.
+     *
+     * @param <R> The element type of the new stream
+     * @param maxInFlight the maximum number of concurrent applications
+     * @param mapper a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *               <a href="package-summary.html#Statelessness">stateless</a>
+     *               function to apply to each element, which may pause
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code maxInFlight} is not positive
+     */
+    <R> Stream<R> mapAsyncUnordered(int maxInFlight, PausableFunction<? super T, ? extends R> mapper);
+
     /**
      * Returns an {@code IntStream} consisting of the results of replacing each
      * element of this stream with the contents of a mapped stream produced by
@@ -388,6 +499,37 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> sorted(Comparator<? super T> comparator);
 
+    /**
+     * Returns a stream consisting of the elements of this stream, sorted
+     * according to the provided {@code Comparator}, holding at most
+     * {@code budget} elements in memory.  Whenever the budget is reached the
+     * buffered elements are sorted and spilled as a run to a temporary file,
+     * and the runs are merged lazily as the new stream is traversed.
+     *
+     * <p>The sort is stable.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>, which ends this pipeline as described for
+     * {@link #mapP(PausableFunction)}.  The file is read and written
+     * asynchronously, and the traversing task pauses until each operation
+     * completes.  The merge is sequential.
+     *
+     * <p>The file is deleted when the new stream is exhausted.  A pipeline
+     * that doesn't traverse every element, eg one that is short-circuited by
+     * {@code limit}, holds the file open until the stream is closed, so it
+     * should be declared in a try-with-resources statement.
+     *
+     * @param comparator a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *                   <a href="package-summary.html#Statelessness">stateless</a>
+     *                   {@code Comparator} to be used to compare stream elements
+     * @param budget the maximum number of elements to hold in memory
+     * @param serializer converts the elements to and from the bytes of a run
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code budget} is not positive
+     * @see Spill
+     */
+    Stream<T> sorted(Comparator<? super T> comparator, long budget, Spill.Serializer<T> serializer);
+
     /**
      * Returns a stream consisting of the elements of this stream, additionally
      * performing the provided action on each element as elements are consumed
@@ -475,6 +617,24 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> skip(long n);
 
+    /**
+     * Returns a stream consisting of the elements of this stream grouped into
+     * consecutive lists of {@code n} elements, ie tumbling windows.  The last
+     * list holds whatever elements remain, and may have fewer than {@code n}.
+     * Each list is a new {@code ArrayList}, owned by the receiver.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.  Sequentially, each window is emitted as
+     * soon as it fills.  In parallel, the windows are cut from the collected
+     * elements, so they are the same as the sequential windows for an ordered
+     * stream.
+     *
+     * @param n the number of elements in each window
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code n} is not positive
+     */
+    Stream<List<T>> window(int n);
+
     /**
      * Performs an action for each element of this stream.
      *
@@ -513,6 +673,44 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     void forEachOrdered(Consumer<? super T> action) throws Pausable;
 
+    /**
+     * Puts each element of this stream to a mailbox, in the encounter order
+     * of the stream if the stream has a defined encounter order.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">terminal
+     * operation</a>.
+     *
+     * <p>The calling task pauses while the mailbox is full, so a consumer that
+     * falls behind holds back the pipeline rather than messages being dropped.
+     * The elements are pulled from the {@link #spliterator() spliterator} of
+     * the pipeline, so a parallel pipeline is evaluated as lazily as it would
+     * be for {@link #iterator()}.
+     *
+     * @param mailbox the mailbox to put the elements to
+     * @throws NullPointerException if an element is null
+     * @see #toMailboxBatched(Mailbox, int)
+     */
+    void toMailbox(Mailbox<? super T> mailbox) throws Pausable;
+
+    /**
+     * Puts the elements of this stream to a mailbox as lists of
+     * {@code batchSize} elements, in the encounter order of the stream if the
+     * stream has a defined encounter order.  Once the elements are exhausted,
+     * any remaining elements are put as a final, shorter list.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">terminal
+     * operation</a>.
+     *
+     * <p>The calling task pauses while the mailbox is full, as for
+     * {@link #toMailbox(Mailbox)}, and batching reduces the number of messages
+     * that are handed off to the consumer.
+     *
+     * @param mailbox the mailbox to put the batches to
+     * @param batchSize the number of elements in each full batch
+     * @throws IllegalArgumentException if {@code batchSize} is not positive
+     */
+    void toMailboxBatched(Mailbox<? super List<T>> mailbox, int batchSize) throws Pausable;
+
     /**
      * Returns an array containing the elements of this stream.
      *
@@ -110,15 +110,24 @@ class StreamSpliterators {
          */
         boolean finished;
 
+        /**
+         * True if the stateful operations of a parallel pipeline have yet to
+         * be evaluated.  Evaluation is pausable, so it's deferred to the first
+         * traversal or split, see {@link AbstractPipeline#doLazy}.
+         */
+        boolean lazy;
+
         /**
          * Construct an AbstractWrappingSpliterator from a
          * {@code Supplier<Spliterator>}.
          */
-        AbstractWrappingSpliterator(PipelineHelper<P_OUT> ph, Supplier<Spliterator<P_IN>> spliteratorSupplier, boolean parallel) {
+        AbstractWrappingSpliterator(PipelineHelper<P_OUT> ph, Supplier<Spliterator<P_IN>> spliteratorSupplier,
+                                    boolean parallel, boolean lazy) {
             this.ph = ph;
             this.spliteratorSupplier = spliteratorSupplier;
             this.spliterator = null;
             this.isParallel = parallel;
+            this.lazy = lazy;
         }
 
         /**
@@ -144,6 +153,19 @@ class StreamSpliterators {
             }
         }
 
+        /**
+         * Called before traversing or splitting to set up spliterator, and
+         * evaluate any stateful operations, if needed.
+         */
+        @SuppressWarnings("unchecked")
+        final void initLazy() throws Pausable {
+            init();
+            if (lazy) {
+                lazy = false;
+                spliterator = (Spliterator<P_IN>) ph.doLazy(spliterator);
+            }
+        }
+
         /**
          * Get an element from the source, pushing it into the sink chain,
          * setting up the buffer if needed
@@ -154,7 +176,7 @@ class StreamSpliterators {
                 if (finished)
                     return false;
 
-                init();
+                initLazy();
                 initPartialTraversalState();
                 nextToConsume = 0;
                 bufferSink.begin(spliterator.getExactSizeIfKnown());
@@ -187,7 +209,7 @@ class StreamSpliterators {
         @Override
         public Spliterator<P_OUT> trySplit() throws Pausable {
             if (isParallel && !finished) {
-                init();
+                initLazy();
 
                 Spliterator<P_IN> split = spliterator.trySplit();
                 return (split == null) ? null : wrap(split);
@@ -227,7 +249,8 @@ class StreamSpliterators {
         @Override
         public final long getExactSizeIfKnown() {
             init();
-            return StreamOpFlag.SIZED.isKnown(ph.getStreamAndOpFlags())
+            // the size of the output of the stateful operations isn't known until they're evaluated
+            return !lazy && StreamOpFlag.SIZED.isKnown(ph.getStreamAndOpFlags())
                    ? spliterator.getExactSizeIfKnown()
                    : -1;
         }
@@ -247,7 +270,8 @@ class StreamSpliterators {
             // but for sub-splits only an estimate is known
             if ((c & Spliterator.SIZED) != 0) {
                 c &= ~(Spliterator.SIZED | Spliterator.SUBSIZED);
-                c |= (spliterator.characteristics() & (Spliterator.SIZED | Spliterator.SUBSIZED));
+                if (!lazy)
+                    c |= (spliterator.characteristics() & (Spliterator.SIZED | Spliterator.SUBSIZED));
             }
 
             return c;
@@ -271,8 +295,9 @@ class StreamSpliterators {
 
         WrappingSpliterator(PipelineHelper<P_OUT> ph,
                             Supplier<Spliterator<P_IN>> supplier,
-                            boolean parallel) {
-            super(ph, supplier, parallel);
+                            boolean parallel,
+                            boolean lazy) {
+            super(ph, supplier, parallel, lazy);
         }
 
         WrappingSpliterator(PipelineHelper<P_OUT> ph,
@@ -307,7 +332,7 @@ class StreamSpliterators {
         public void forEachRemaining(Consumer<? super P_OUT> consumer) throws Pausable {
             if (buffer == null && !finished) {
                 Objects.requireNonNull(consumer);
-                init();
+                initLazy();
 
                 ph.wrapAndCopyInto((Sink<P_OUT>) consumer::accept, spliterator);
                 finished = true;
@@ -324,8 +349,9 @@ class StreamSpliterators {
 
         IntWrappingSpliterator(PipelineHelper<Integer> ph,
                                Supplier<Spliterator<P_IN>> supplier,
-                               boolean parallel) {
-            super(ph, supplier, parallel);
+                               boolean parallel,
+                               boolean lazy) {
+            super(ph, supplier, parallel, lazy);
         }
 
         IntWrappingSpliterator(PipelineHelper<Integer> ph,
@@ -365,7 +391,7 @@ class StreamSpliterators {
         public void forEachRemaining(IntConsumer consumer) throws Pausable {
             if (buffer == null && !finished) {
                 Objects.requireNonNull(consumer);
-                init();
+                initLazy();
 
                 ph.wrapAndCopyInto((Sink.OfInt) consumer::accept, spliterator);
                 finished = true;
@@ -382,8 +408,9 @@ class StreamSpliterators {
 
         LongWrappingSpliterator(PipelineHelper<Long> ph,
                                 Supplier<Spliterator<P_IN>> supplier,
-                                boolean parallel) {
-            super(ph, supplier, parallel);
+                                boolean parallel,
+                                boolean lazy) {
+            super(ph, supplier, parallel, lazy);
         }
 
         LongWrappingSpliterator(PipelineHelper<Long> ph,
@@ -423,7 +450,7 @@ class StreamSpliterators {
         public void forEachRemaining(LongConsumer consumer) throws Pausable {
             if (buffer == null && !finished) {
                 Objects.requireNonNull(consumer);
-                init();
+                initLazy();
 
                 ph.wrapAndCopyInto((Sink.OfLong) consumer::accept, spliterator);
                 finished = true;
@@ -440,8 +467,9 @@ class StreamSpliterators {
 
         DoubleWrappingSpliterator(PipelineHelper<Double> ph,
                                   Supplier<Spliterator<P_IN>> supplier,
-                                  boolean parallel) {
-            super(ph, supplier, parallel);
+                                  boolean parallel,
+                                  boolean lazy) {
+            super(ph, supplier, parallel, lazy);
         }
 
         DoubleWrappingSpliterator(PipelineHelper<Double> ph,
@@ -481,7 +509,7 @@ class StreamSpliterators {
         public void forEachRemaining(DoubleConsumer consumer) throws Pausable {
             if (buffer == null && !finished) {
                 Objects.requireNonNull(consumer);
-                init();
+                initLazy();
 
                 ph.wrapAndCopyInto((Sink.OfDouble) consumer::accept, spliterator);
                 finished = true;
@@ -24,7 +24,12 @@
  */
 package stream2;
 
+import kilim.Mailbox;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -314,4 +319,188 @@ public final class StreamSupport {
                                          StreamOpFlag.fromCharacteristics(characteristics),
                                          parallel);
     }
+
+    /**
+     * Creates a new sequential or parallel {@code Stream} of the messages
+     * of a {@code Mailbox}, ending when the sentinel is received.
+     *
+     * <p>The stream pauses only when the mailbox is empty, and a parallel
+     * stream splits off batches of the messages that are already queued.
+     * To end the stream with a close signal instead, use a
+     * {@link MailboxSpliterator} directly.
+     *
+     * @param <T> the type of stream elements
+     * @param mailbox the source of the stream elements
+     * @param eos the end-of-stream sentinel, compared using equals
+     * @param parallel if {@code true} then the returned stream is a parallel
+     *        stream; if {@code false} the returned stream is a sequential
+     *        stream.
+     * @return a new sequential or parallel {@code Stream}
+     * @see MailboxSpliterator
+     */
+    public static <T> Stream<T> stream(Mailbox<T> mailbox, T eos, boolean parallel) {
+        Objects.requireNonNull(eos);
+        return stream(new MailboxSpliterator<>(mailbox, eos), parallel);
+    }
+
+    /**
+     * Creates a new sequential or parallel {@code IntStream} of the messages
+     * of a {@code Mailbox}, ending when the sentinel is received.
+     *
+     * @param mailbox the source of the stream elements
+     * @param eos the end-of-stream sentinel
+     * @param parallel if {@code true} then the returned stream is a parallel
+     *        stream; if {@code false} the returned stream is a sequential
+     *        stream.
+     * @return a new sequential or parallel {@code IntStream}
+     * @see #stream(Mailbox, Object, boolean)
+     */
+    public static IntStream intStream(Mailbox<Integer> mailbox, int eos, boolean parallel) {
+        return intStream(new MailboxSpliterator.OfInt(mailbox, eos), parallel);
+    }
+
+    /**
+     * Creates a new sequential or parallel {@code LongStream} of the messages
+     * of a {@code Mailbox}, ending when the sentinel is received.
+     *
+     * @param mailbox the source of the stream elements
+     * @param eos the end-of-stream sentinel
+     * @param parallel if {@code true} then the returned stream is a parallel
+     *        stream; if {@code false} the returned stream is a sequential
+     *        stream.
+     * @return a new sequential or parallel {@code LongStream}
+     * @see #stream(Mailbox, Object, boolean)
+     */
+    public static LongStream longStream(Mailbox<Long> mailbox, long eos, boolean parallel) {
+        return longStream(new MailboxSpliterator.OfLong(mailbox, eos), parallel);
+    }
+
+    /**
+     * Creates a new sequential or parallel {@code DoubleStream} of the messages
+     * of a {@code Mailbox}, ending when the sentinel is received.
+     *
+     * @param mailbox the source of the stream elements
+     * @param eos the end-of-stream sentinel, compared using {@link Double#equals}
+     * @param parallel if {@code true} then the returned stream is a parallel
+     *        stream; if {@code false} the returned stream is a sequential
+     *        stream.
+     * @return a new sequential or parallel {@code DoubleStream}
+     * @see #stream(Mailbox, Object, boolean)
+     */
+    public static DoubleStream doubleStream(Mailbox<Double> mailbox, double eos, boolean parallel) {
+        return doubleStream(new MailboxSpliterator.OfDouble(mailbox, eos), parallel);
+    }
+
+    /**
+     * Creates a new sequential {@code Stream} of windows of the messages of
+     * a {@code Mailbox}, ending when the sentinel is received. Each window
+     * holds the messages that arrive within a span of time from its first
+     * message.
+     *
+     * @param <T> the type of the messages
+     * @param mailbox the source of the messages
+     * @param eos the end-of-stream sentinel, compared using equals
+     * @param span the maximum time that a window is open
+     * @return a new sequential {@code Stream} of windows
+     * @see MailboxSpliterator#windowByTime
+     */
+    public static <T> Stream<List<T>> windowByTime(Mailbox<T> mailbox, T eos, Duration span) {
+        return windowBySizeOrTime(mailbox, eos, Integer.MAX_VALUE, span);
+    }
+
+    /**
+     * Creates a new sequential {@code Stream} of windows of the messages of
+     * a {@code Mailbox}, ending when the sentinel is received. A window is
+     * emitted once it holds {@code n} messages, or once the span has elapsed
+     * from its first message, whichever comes first, even if no further
+     * messages arrive.
+     *
+     * @param <T> the type of the messages
+     * @param mailbox the source of the messages
+     * @param eos the end-of-stream sentinel, compared using equals
+     * @param n the maximum number of messages in a window
+     * @param span the maximum time that a window is open
+     * @return a new sequential {@code Stream} of windows
+     * @throws IllegalArgumentException if n or the span is not positive
+     * @see MailboxSpliterator#windowBySizeOrTime
+     */
+    public static <T> Stream<List<T>> windowBySizeOrTime(Mailbox<T> mailbox, T eos, int n, Duration span) {
+        Objects.requireNonNull(eos);
+        return stream(new MailboxSpliterator<>(mailbox, eos).windowBySizeOrTime(n, span), false);
+    }
+
+    /**
+     * Creates a new sequential {@code Stream} of the sessions of the
+     * messages of a {@code Mailbox}, ending when the sentinel is received.
+     * The messages are grouped per key, and a session is emitted once no
+     * message for its key has arrived for the gap, even if the mailbox is
+     * quiet. The open sessions are emitted when the stream ends. The state
+     * is bounded by {@code maxKeys} and {@code maxMessages}, which close
+     * sessions early.
+     *
+     * @param <T> the type of the messages
+     * @param <K> the type of the keys
+     * @param mailbox the source of the messages
+     * @param eos the end-of-stream sentinel, compared using equals
+     * @param classifier the function that maps a message to its key
+     * @param gap the period of inactivity after which a session closes
+     * @param maxKeys the maximum number of open sessions, beyond which the
+     *        longest idle session is closed early
+     * @param maxMessages the maximum number of messages in a session, at
+     *        which it is closed early
+     * @return a new sequential {@code Stream} of sessions
+     * @throws IllegalArgumentException if the gap, maxKeys or maxMessages is
+     *         not positive
+     * @see MailboxSpliterator#sessionize
+     */
+    public static <T, K> Stream<MailboxSpliterator.Session<K,T>> sessionize(Mailbox<T> mailbox, T eos,
+                                                                            Function<? super T, ? extends K> classifier,
+                                                                            Duration gap, int maxKeys, int maxMessages) {
+        Objects.requireNonNull(eos);
+        return stream(new MailboxSpliterator<>(mailbox, eos).sessionize(classifier, gap, maxKeys, maxMessages), false);
+    }
+
+    /**
+     * Creates a new sequential {@code Stream} of the updates to a running
+     * aggregate per key of the messages of a {@code Mailbox}, ending when the
+     * sentinel is received. The messages of each key are accumulated into a
+     * container from the collector, and the current value of each changed key
+     * is emitted once {@code n} messages have arrived or the period has elapsed,
+     * whichever comes first. At most {@code maxKeys} aggregates are kept, and
+     * beyond that the least recently updated is dropped. Each value must be
+     * independent of the container, since the container keeps changing, so
+     * an {@code IDENTITY_FINISH} collector such as {@code toList()} is
+     * rejected.  Wrap it with {@code collectingAndThen} and a copying
+     * finisher, eg {@code ArrayList::new}.
+     *
+     * <pre>{@code
+     *     StreamSupport.aggregate(orders, END, Order::customer, Collectors.counting(), 1000, Duration.ofSeconds(1), 100_000)
+     *         .forEach(update -> dashboard.set(update.getKey(), update.getValue()));
+     * }</pre>
+     *
+     * @param <T> the type of the messages
+     * @param <K> the type of the keys
+     * @param <A> the intermediate accumulation type of the collector
+     * @param <D> the result type of the collector
+     * @param mailbox the source of the messages
+     * @param eos the end-of-stream sentinel, compared using equals
+     * @param classifier the function that maps a message to its key
+     * @param collector the collector that aggregates the messages of a key
+     * @param n the maximum number of messages per batch of updates, 1 to
+     *        emit every change
+     * @param period the maximum time that an update is pending
+     * @param maxKeys the maximum number of keys with an aggregate
+     * @return a new sequential {@code Stream} of updates
+     * @throws IllegalArgumentException if n, the period or maxKeys is not
+     *         positive, or the collector has the {@code IDENTITY_FINISH}
+     *         characteristic
+     * @see MailboxSpliterator#aggregate
+     */
+    public static <T, K, A, D> Stream<Map.Entry<K,D>> aggregate(Mailbox<T> mailbox, T eos,
+                                                                Function<? super T, ? extends K> classifier,
+                                                                Collector<? super T, A, D> collector,
+                                                                int n, Duration period, int maxKeys) {
+        Objects.requireNonNull(eos);
+        return stream(new MailboxSpliterator<>(mailbox, eos).aggregate(classifier, collector, n, period, maxKeys), false);
+    }
 }
@@ -58,7 +58,7 @@ final class Streams {
     /**
      * An {@code int} range spliterator.
      */
-    static final class RangeIntSpliterator implements Spliterator.OfInt {
+    static final class RangeIntSpliterator implements Spliterator.OfInt, Spliterator.NonPausing.OfInt {
         // Can never be greater that upTo, this avoids overflow if upper bound
         // is Integer.MAX_VALUE
         // All elements are traversed if from == upTo & last == 0
@@ -81,6 +81,11 @@ final class Streams {
 
         @Override
         public boolean tryAdvance(IntConsumer consumer) throws Pausable {
+            return tryAdvanceNow(consumer);
+        }
+
+        @Override
+        public boolean tryAdvanceNow(IntConsumer consumer) {
             Objects.requireNonNull(consumer);
 
             final int i = from;
@@ -99,6 +104,11 @@ final class Streams {
 
         @Override
         public void forEachRemaining(IntConsumer consumer) throws Pausable {
+            forEachRemainingNow(consumer);
+        }
+
+        @Override
+        public void forEachRemainingNow(IntConsumer consumer) {
             Objects.requireNonNull(consumer);
 
             int i = from;
@@ -182,7 +192,7 @@ final class Streams {
      * This implementation cannot be used for ranges whose size is greater
      * than Long.MAX_VALUE
      */
-    static final class RangeLongSpliterator implements Spliterator.OfLong {
+    static final class RangeLongSpliterator implements Spliterator.OfLong, Spliterator.NonPausing.OfLong {
         // Can never be greater that upTo, this avoids overflow if upper bound
         // is Long.MAX_VALUE
         // All elements are traversed if from == upTo & last == 0
@@ -206,6 +216,11 @@ final class Streams {
 
         @Override
         public boolean tryAdvance(LongConsumer consumer) throws Pausable {
+            return tryAdvanceNow(consumer);
+        }
+
+        @Override
+        public boolean tryAdvanceNow(LongConsumer consumer) {
             Objects.requireNonNull(consumer);
 
             final long i = from;
@@ -224,6 +239,11 @@ final class Streams {
 
         @Override
         public void forEachRemaining(LongConsumer consumer) throws Pausable {
+            forEachRemainingNow(consumer);
+        }
+
+        @Override
+        public void forEachRemainingNow(LongConsumer consumer) {
             Objects.requireNonNull(consumer);
 
             long i = from;
@@ -26,6 +26,13 @@ package stream2;
 
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
 
 
 /**
@@ -33,7 +40,18 @@ import java.security.PrivilegedAction;
  * {@code java.util.stream} classes.  The detection is turned on or off based on
  * whether the system property {@code org.openjdk.java.util.stream.tripwire} is
  * considered {@code true} according to {@link Boolean#getBoolean(String)}.
- * This should normally be turned off for production use.
+ * When turned off, the checks are guarded by a constant and cost nothing.
+ * When turned on, each trip costs two hash lookups and a {@link LongAdder}
+ * increment, plus a thread-local random draw if sampling, which is cheap enough to leave enabled in production to find the
+ * boxing call sites of a real workload, as long as stack sampling is off or rare.
+ *
+ * <p>While enabled, each trip is counted per call site, ie per message, and per
+ * tripping class, and the first trip of each is logged as a warning.  A trip
+ * also captures its stack with probability 1/N, where N is the value of the
+ * system property {@code org.openjdk.java.util.stream.tripwire.sample}, or
+ * never if it isn't set.  The sample is drawn from a thread-local random, so
+ * it doesn't read the count or contend with other threads.  The counts are
+ * available from {@link #snapshot}.
  *
  * @apiNote
  * Typical usage would be for boxing code to do:
@@ -44,27 +62,97 @@ import java.security.PrivilegedAction;
  *
  * @since 1.8
  */
-final class Tripwire {
+public final class Tripwire {
     private static final String TRIPWIRE_PROPERTY = "org.openjdk.java.util.stream.tripwire";
+    private static final String SAMPLE_PROPERTY = TRIPWIRE_PROPERTY + ".sample";
 
     /** Should debugging checks be enabled? */
     static final boolean ENABLED = AccessController.doPrivileged(
             (PrivilegedAction<Boolean>) () -> Boolean.getBoolean(TRIPWIRE_PROPERTY));
 
+    /** The mean number of trips per stack sample, or 0 for none */
+    static final int SAMPLE = AccessController.doPrivileged(
+            (PrivilegedAction<Integer>) () -> Integer.getInteger(SAMPLE_PROPERTY, 0));
+
+    private static final ConcurrentHashMap<String, ConcurrentHashMap<Class<?>, Site>> sites
+            = new ConcurrentHashMap<>();
+
     private Tripwire() { }
 
+    /** the trips of a single call site by a single class */
+    public static final class Site {
+        private final String message;
+        private final Class<?> trippingClass;
+        private final LongAdder count = new LongAdder();
+        private volatile StackTraceElement [] sample;
+
+        Site(String message, Class<?> trippingClass) {
+            this.message = message;
+            this.trippingClass = trippingClass;
+        }
+
+        /** @return the message of the call site, with the class name substituted */
+        public String getMessage() { return MessageFormat.format(message, trippingClass.getName()); }
+        /** @return the class that tripped */
+        public Class<?> getTrippingClass() { return trippingClass; }
+        /** @return the number of trips */
+        public long getCount() { return count.sum(); }
+        /** @return the stack of the latest sampled trip, or null if none has been sampled */
+        public StackTraceElement [] getSample() { return sample; }
+
+        public String toString() {
+            return getMessage() + ": " + getCount();
+        }
+    }
+
     /**
-     * Produces a log warning, using {@code PlatformLogger.getLogger(className)},
+     * Counts the trip, and for the first trip of the call site by the class
+     * produces a log warning, using {@code Logger.getLogger(className)},
      * using the supplied message.  The class name of {@code trippingClass} will
      * be used as the first parameter to the message.
      *
      * @param trippingClass Name of the class generating the message
      * @param msg A message format string of the type expected by
-     * {@link PlatformLogger}
+     * {@link MessageFormat}
      */
     static void trip(Class<?> trippingClass, String msg) {
-        /*
-        PlatformLogger.getLogger(trippingClass.getName()).warning(msg, trippingClass.getName());
-        */
+        ConcurrentHashMap<Class<?>, Site> bySite = sites.get(msg);
+        if (bySite==null)
+            bySite = sites.computeIfAbsent(msg, key -> new ConcurrentHashMap<>());
+        Site site = bySite.get(trippingClass);
+        if (site==null) {
+            Site fresh = new Site(msg, trippingClass);
+            site = bySite.putIfAbsent(trippingClass, fresh);
+            if (site==null) {
+                site = fresh;
+                Logger.getLogger(trippingClass.getName()).warning(site.getMessage());
+            }
+        }
+        site.count.increment();
+        if (SAMPLE > 0 && ThreadLocalRandom.current().nextInt(SAMPLE)==0)
+            site.sample = new Throwable().getStackTrace();
+    }
+
+    /**
+     * @return the counts of the trips so far, one per call site and tripping class
+     */
+    public static List<Site> snapshot() {
+        List<Site> list = new ArrayList<>();
+        for (ConcurrentHashMap<Class<?>, Site> bySite : sites.values())
+            list.addAll(bySite.values());
+        return list;
+    }
+
+    /** @return the total number of trips so far */
+    public static long total() {
+        long total = 0;
+        for (Site site : snapshot())
+            total += site.getCount();
+        return total;
+    }
+
+    /** forget the trips so far */
+    public static void reset() {
+        sites.clear();
     }
 }
@@ -0,0 +1,294 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import kilim.Pausable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Factory for stateful intermediate operations that group their input into
+ * consecutive, non-overlapping windows of a fixed number of elements, ie
+ * tumbling windows. The final window holds whatever remains, and may be short.
+ *
+ * <p>Sequentially, each window is emitted as soon as it fills, and the partial
+ * window when the upstream ends. In parallel, the windows depend on the position
+ * of each element, so the upstream is collected (in encounter order, if ordered)
+ * before being cut into windows.
+ */
+final class WindowOps {
+
+    private WindowOps() { }
+
+    private static final int FLAGS = StreamOpFlag.NOT_SIZED | StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT;
+
+    private static void check(int n) {
+        if (n < 1)
+            throw new IllegalArgumentException(Integer.toString(n));
+    }
+
+    /** the number of windows for an upstream of the given size, or -1 if unknown */
+    private static long windows(long size, int n) {
+        return size < 0 ? -1 : (size + n - 1) / n;
+    }
+
+    /** the end of the ii'th window of an upstream of the given length */
+    private static int hi(int ii, int n, int length) {
+        return (int) Math.min(length, (long) ii * n + n);
+    }
+
+    /** the initial capacity of a window, which grows to n */
+    private static int initial(int n) {
+        return Math.min(n, 1 << 10);
+    }
+
+    /** the collected upstream, for the parallel evaluation of a stage whose output type differs */
+    @SuppressWarnings("unchecked")
+    private static <T, P_IN> Node<T> upstream(PipelineHelper<?> helper, Spliterator<P_IN> spliterator) throws Pausable {
+        return ((PipelineHelper<T>) helper).evaluate(spliterator, true, size -> (T[]) new Object[size]);
+    }
+
+    /**
+     * Appends a "window" operation to the provided stream.
+     *
+     * @param <T> the type of the input elements
+     * @param upstream a reference stream with element type T
+     * @param n the number of elements in each window, must be positive
+     * @return the new stream
+     */
+    static <T> Stream<List<T>> makeRef(AbstractPipeline<?, T, ?> upstream, int n) {
+        check(n);
+        return new ReferencePipeline.StatefulOp<T, List<T>>(upstream, StreamShape.REFERENCE, FLAGS) {
+            @Override
+            @SuppressWarnings("unchecked")
+            <P_IN> Node<List<T>> opEvaluateParallel(PipelineHelper<List<T>> helper,
+                                                    Spliterator<P_IN> spliterator,
+                                                    IntFunction<List<T>[]> generator) throws Pausable {
+                Object[] elems = WindowOps.<Object, P_IN>upstream(helper, spliterator).asArray(Object[]::new);
+                List<T>[] windows = (List<T>[]) new List<?>[(int) windows(elems.length, n)];
+                Arrays2.parallelSetAll(windows, ii -> {
+                    int lo = ii * n, hi = hi(ii, n, elems.length);
+                    ArrayList<T> window = new ArrayList<>(hi - lo);
+                    for (int jj = lo; jj < hi; jj++)
+                        window.add((T) elems[jj]);
+                    return window;
+                });
+                return Nodes.node(windows);
+            }
+
+            @Override
+            Sink<T> opWrapSink(int flags, Sink<List<T>> sink) {
+                return new Sink.ChainedReference<T, List<T>>(sink) {
+                    ArrayList<T> window;
+
+                    @Override
+                    public void begin(long size) {
+                        window = null;
+                        downstream.begin(windows(size, n));
+                    }
+
+                    @Override
+                    public void accept(T t) {
+                        if (window == null)
+                            window = new ArrayList<>(initial(n));
+                        window.add(t);
+                        if (window.size() == n) {
+                            downstream.accept(window);
+                            window = null;
+                        }
+                    }
+
+                    @Override
+                    public void end() {
+                        if (window != null)
+                            downstream.accept(window);
+                        window = null;
+                        downstream.end();
+                    }
+                };
+            }
+        }.named("window");
+    }
+
+    /**
+     * Appends a "window" operation to the provided stream.
+     *
+     * @param upstream an int stream
+     * @param n the number of elements in each window, must be positive
+     * @return the new stream
+     */
+    static Stream<int[]> makeInt(AbstractPipeline<?, Integer, ?> upstream, int n) {
+        check(n);
+        return new ReferencePipeline.StatefulOp<Integer, int[]>(upstream, StreamShape.INT_VALUE, FLAGS) {
+            @Override
+            <P_IN> Node<int[]> opEvaluateParallel(PipelineHelper<int[]> helper,
+                                                  Spliterator<P_IN> spliterator,
+                                                  IntFunction<int[][]> generator) throws Pausable {
+                int[] elems = ((Node.OfInt) WindowOps.<Integer, P_IN>upstream(helper, spliterator)).asPrimitiveArray();
+                int[][] windows = new int[(int) windows(elems.length, n)][];
+                Arrays2.parallelSetAll(windows, ii -> Arrays.copyOfRange(elems, ii * n, hi(ii, n, elems.length)));
+                return Nodes.node(windows);
+            }
+
+            @Override
+            Sink<Integer> opWrapSink(int flags, Sink<int[]> sink) {
+                return new Sink.ChainedInt<int[]>(sink) {
+                    int[] window;
+                    int count;
+
+                    @Override
+                    public void begin(long size) {
+                        window = null;
+                        count = 0;
+                        downstream.begin(windows(size, n));
+                    }
+
+                    @Override
+                    public void accept(int t) {
+                        if (window == null)
+                            window = new int[initial(n)];
+                        else if (count == window.length)
+                            window = Arrays.copyOf(window, (int) Math.min(n, 2L * count));
+                        window[count++] = t;
+                        if (count == n) {
+                            downstream.accept(window);
+                            window = null;
+                            count = 0;
+                        }
+                    }
+
+                    @Override
+                    public void end() {
+                        if (window != null)
+                            downstream.accept(Arrays.copyOf(window, count));
+                        window = null;
+                        downstream.end();
+                    }
+                };
+            }
+        }.named("window");
+    }
+
+    /**
+     * Appends a "window" operation to the provided stream.
+     *
+     * @param upstream a long stream
+     * @param n the number of elements in each window, must be positive
+     * @return the new stream
+     */
+    static Stream<long[]> makeLong(AbstractPipeline<?, Long, ?> upstream, int n) {
+        check(n);
+        return new ReferencePipeline.StatefulOp<Long, long[]>(upstream, StreamShape.LONG_VALUE, FLAGS) {
+            @Override
+            <P_IN> Node<long[]> opEvaluateParallel(PipelineHelper<long[]> helper,
+                                                   Spliterator<P_IN> spliterator,
+                                                   IntFunction<long[][]> generator) throws Pausable {
+                long[] elems = ((Node.OfLong) WindowOps.<Long, P_IN>upstream(helper, spliterator)).asPrimitiveArray();
+                long[][] windows = new long[(int) windows(elems.length, n)][];
+                Arrays2.parallelSetAll(windows, ii -> Arrays.copyOfRange(elems, ii * n, hi(ii, n, elems.length)));
+                return Nodes.node(windows);
+            }
+
+            @Override
+            Sink<Long> opWrapSink(int flags, Sink<long[]> sink) {
+                return new Sink.ChainedLong<long[]>(sink) {
+                    long[] window;
+                    int count;
+
+                    @Override
+                    public void begin(long size) {
+                        window = null;
+                        count = 0;
+                        downstream.begin(windows(size, n));
+                    }
+
+                    @Override
+                    public void accept(long t) {
+                        if (window == null)
+                            window = new long[initial(n)];
+                        else if (count == window.length)
+                            window = Arrays.copyOf(window, (int) Math.min(n, 2L * count));
+                        window[count++] = t;
+                        if (count == n) {
+                            downstream.accept(window);
+                            window = null;
+                            count = 0;
+                        }
+                    }
+
+                    @Override
+                    public void end() {
+                        if (window != null)
+                            downstream.accept(Arrays.copyOf(window, count));
+                        window = null;
+                        downstream.end();
+                    }
+                };
+            }
+        }.named("window");
+    }
+
+    /**
+     * Appends a "window" operation to the provided stream.
+     *
+     * @param upstream a double stream
+     * @param n the number of elements in each window, must be positive
+     * @return the new stream
+     */
+    static Stream<double[]> makeDouble(AbstractPipeline<?, Double, ?> upstream, int n) {
+        check(n);
+        return new ReferencePipeline.StatefulOp<Double, double[]>(upstream, StreamShape.DOUBLE_VALUE, FLAGS) {
+            @Override
+            <P_IN> Node<double[]> opEvaluateParallel(PipelineHelper<double[]> helper,
+                                                     Spliterator<P_IN> spliterator,
+                                                     IntFunction<double[][]> generator) throws Pausable {
+                double[] elems = ((Node.OfDouble) WindowOps.<Double, P_IN>upstream(helper, spliterator)).asPrimitiveArray();
+                double[][] windows = new double[(int) windows(elems.length, n)][];
+                Arrays2.parallelSetAll(windows, ii -> Arrays.copyOfRange(elems, ii * n, hi(ii, n, elems.length)));
+                return Nodes.node(windows);
+            }
+
+            @Override
+            Sink<Double> opWrapSink(int flags, Sink<double[]> sink) {
+                return new Sink.ChainedDouble<double[]>(sink) {
+                    double[] window;
+                    int count;
+
+                    @Override
+                    public void begin(long size) {
+                        window = null;
+                        count = 0;
+                        downstream.begin(windows(size, n));
+                    }
+
+                    @Override
+                    public void accept(double t) {
+                        if (window == null)
+                            window = new double[initial(n)];
+                        else if (count == window.length)
+                            window = Arrays.copyOf(window, (int) Math.min(n, 2L * count));
+                        window[count++] = t;
+                        if (count == n) {
+                            downstream.accept(window);
+                            window = null;
+                            count = 0;
+                        }
+                    }
+
+                    @Override
+                    public void end() {
+                        if (window != null)
+                            downstream.accept(Arrays.copyOf(window, count));
+                        window = null;
+                        downstream.end();
+                    }
+                };
+            }
+        }.named("window");
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * the sorters and mergers of the parallel sort, run with a small granularity so that the quartile
+ * splits and the parallel merges are exercised. unwoven, forks run inline
+ */
+@Test
+public class ArraysParallelSortTest {
+    static final int [] sizes = { 0, 1, 2, 7, 64, 100, 1000, 4099 };
+    static final int [] grans = { 1, 3, 16 };
+
+    static final class Item {
+        final int key, index;
+        Item(int key, int index) { this.key = key; this.index = index; }
+    }
+
+    public void testInt() {
+        Random random = new Random(17);
+        for (int n : sizes)
+            for (int g : grans) {
+                int [] a = random.ints(n, 0, 1 + n/4).toArray();
+                int [] expected = a.clone();
+                Arrays.sort(expected);
+                new ArraysParallelSortHelpers.FJInt.Sorter(null, a, new int[n], 0, n, 0, g).invoke();
+                assertTrue(Arrays.equals(a, expected), "n=" + n + ", gran=" + g);
+            }
+    }
+
+    public void testLong() {
+        Random random = new Random(19);
+        for (int n : sizes)
+            for (int g : grans) {
+                long [] a = random.longs(n, -n, n + 1).toArray();
+                long [] expected = a.clone();
+                Arrays.sort(expected);
+                new ArraysParallelSortHelpers.FJLong.Sorter(null, a, new long[n], 0, n, 0, g).invoke();
+                assertTrue(Arrays.equals(a, expected), "n=" + n + ", gran=" + g);
+            }
+    }
+
+    public void testDouble() {
+        Random random = new Random(23);
+        double [] specials = { Double.NaN, -0.0, 0.0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY };
+        for (int n : sizes)
+            for (int g : grans) {
+                double [] a = new double[n];
+                for (int ii = 0; ii < n; ii++)
+                    a[ii] = random.nextInt(4)==0 ? specials[random.nextInt(specials.length)] : random.nextInt(n);
+                double [] expected = a.clone();
+                Arrays.sort(expected);
+                new ArraysParallelSortHelpers.FJDouble.Sorter(null, a, new double[n], 0, n, 0, g).invoke();
+                assertTrue(Arrays.equals(a, expected), "n=" + n + ", gran=" + g);
+            }
+    }
+
+    public void testStable() {
+        Random random = new Random(29);
+        Comparator<Item> byKey = Comparator.comparingInt(item -> item.key);
+        for (int n : sizes)
+            for (int g : grans) {
+                Item [] a = new Item[n];
+                for (int ii = 0; ii < n; ii++)
+                    a[ii] = new Item(random.nextInt(1 + n/8), ii);
+                new ArraysParallelSortHelpers.FJObject.Sorter<>(null, a, new Item[n], 0, n, 0, g, byKey).invoke();
+                for (int ii = 1; ii < n; ii++) {
+                    assertTrue(a[ii-1].key <= a[ii].key, "n=" + n + ", gran=" + g);
+                    if (a[ii-1].key==a[ii].key)
+                        assertTrue(a[ii-1].index < a[ii].index, "n=" + n + ", gran=" + g);
+                }
+            }
+    }
+
+    public void testArrays2() {
+        Random random = new Random(31);
+        int n = 20000;
+        Integer [] boxed = random.ints(n).boxed().toArray(Integer[]::new);
+        Integer [] expected = boxed.clone();
+        Arrays.sort(expected);
+        Arrays2.parallelSort(boxed);
+        assertEquals(boxed, expected);
+
+        String [] strings = random.ints(n, 0, 100).mapToObj(Integer::toString).toArray(String[]::new);
+        String [] reversed = strings.clone();
+        Arrays.sort(reversed, Comparator.reverseOrder());
+        Arrays2.parallelSort(strings, Comparator.reverseOrder());
+        assertEquals(strings, reversed);
+    }
+}
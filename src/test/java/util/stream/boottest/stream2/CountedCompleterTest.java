@@ -0,0 +1,129 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * the pending count and status must be safe when subtasks complete on different threads
+ */
+@Test
+public class CountedCompleterTest {
+
+    static class Counting extends CountedCompleter<Void> {
+        final AtomicInteger completions;
+
+        Counting(CountedCompleter<?> completer, AtomicInteger completions) {
+            super(completer);
+            this.completions = completions;
+        }
+
+        public void compute() { }
+
+        public void onCompletion(CountedCompleter<?> caller) {
+            completions.incrementAndGet();
+        }
+    }
+
+    private void complete(int nthreads, int perThread, boolean propagate) throws Exception {
+        AtomicInteger rootCompletions = new AtomicInteger();
+        AtomicInteger leafCompletions = new AtomicInteger();
+        Counting root = new Counting(null, rootCompletions);
+        root.setPendingCount(nthreads * perThread - 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int ii = 0; ii < nthreads; ii++) {
+            Thread thread = new Thread(() -> {
+                try { start.await(); }
+                catch (InterruptedException ex) { throw new RuntimeException(ex); }
+                for (int jj = 0; jj < perThread; jj++) {
+                    Counting leaf = new Counting(root, leafCompletions);
+                    if (propagate) leaf.propagateCompletion();
+                    else leaf.tryComplete();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(root.getPendingCount(), 0);
+        assertEquals(rootCompletions.get(), propagate ? 0 : 1);
+        assertEquals(leafCompletions.get(), propagate ? 0 : nthreads * perThread);
+        assertTrue(root.status < 0);
+    }
+
+    public void testTryComplete() throws Exception {
+        complete(8, 10000, false);
+    }
+
+    public void testPropagateCompletion() throws Exception {
+        complete(8, 10000, true);
+    }
+
+    public void testAddToPendingCount() throws Exception {
+        Counting root = new Counting(null, new AtomicInteger());
+        List<Thread> threads = new ArrayList<>();
+        for (int ii = 0; ii < 8; ii++) {
+            Thread thread = new Thread(() -> {
+                for (int jj = 0; jj < 10000; jj++) {
+                    root.addToPendingCount(1);
+                    root.addToPendingCount(1);
+                    root.addToPendingCount(-1);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(root.getPendingCount(), 8 * 10000);
+    }
+
+    public void testInvokeInline() throws Exception {
+        // unwoven, fork runs the subtask inline so invoke returns a completed computation
+        assertTrue(!ForkPool.REAL);
+        AtomicInteger completions = new AtomicInteger();
+        Counting root = new Counting(null, completions) {
+            public void compute() {
+                setPendingCount(1);
+                new Counting(this, completions) {
+                    public void compute() { tryComplete(); }
+                }.fork();
+                tryComplete();
+            }
+        };
+        root.invoke();
+        assertEquals(completions.get(), 2);
+        assertTrue(root.status < 0);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testInvokeThrows() throws Exception {
+        // the invoking task fails after forking, and its exception reaches the caller
+        AtomicInteger completions = new AtomicInteger();
+        Counting root = new Counting(null, completions) {
+            public void compute() {
+                setPendingCount(1);
+                new Counting(this, completions) {
+                    public void compute() { tryComplete(); }
+                }.fork();
+                throw new IllegalStateException();
+            }
+        };
+        root.invoke();
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * the stealing policy of the work-stealing pool, and a forked computation, checked without starting the workers
+ */
+@Test
+public class ForkPoolTest {
+
+    static class Sized extends CountedCompleter<Void> {
+        final long size;
+
+        Sized(long size) {
+            this.size = size;
+        }
+
+        public void compute() { }
+
+        long forkSize() {
+            return size;
+        }
+    }
+
+    public void testStealLargest() {
+        ForkPool pool = new ForkPool(null, 3);
+        Sized a = new Sized(100), b = new Sized(10), c = new Sized(400), d = new Sized(50), e = new Sized(200);
+        // oldest first, so the head of each deque is the candidate
+        pool.workers[0].deque.addLast(a);
+        pool.workers[0].deque.addLast(b);
+        pool.workers[1].deque.addLast(c);
+        pool.workers[1].deque.addLast(d);
+        pool.submissions.addLast(e);
+
+        assertSame(pool.steal(pool.workers[2]), c);
+        assertSame(pool.steal(pool.workers[2]), e);
+        assertSame(pool.steal(pool.workers[2]), a);
+        assertSame(pool.steal(pool.workers[2]), d);
+        assertSame(pool.steal(pool.workers[2]), b);
+        assertNull(pool.steal(pool.workers[2]));
+    }
+
+    public void testStealSkipsThief() {
+        ForkPool pool = new ForkPool(null, 2);
+        Sized a = new Sized(100), b = new Sized(10);
+        pool.workers[0].deque.addLast(a);
+        pool.workers[1].deque.addLast(b);
+
+        assertSame(pool.steal(pool.workers[0]), b);
+        assertNull(pool.steal(pool.workers[0]));
+        assertSame(pool.steal(pool.workers[1]), a);
+    }
+
+    public void testInheritWorker() {
+        ForkPool pool = new ForkPool(null, 1);
+        Sized root = new Sized(0);
+        root.pool = pool;
+        root.worker = pool.workers[0];
+        CountedCompleter<Void> child = new CountedCompleter<Void>(root) {
+            public void compute() { }
+        };
+        assertSame(child.pool, pool);
+        assertSame(child.worker, pool.workers[0]);
+    }
+
+    /** splits a range in half, forking the right half, and records the worker that ran each leaf */
+    static class Splitting extends CountedCompleter<Void> {
+        final int lo, hi;
+        final ForkPool.Worker[] ran;
+        final AtomicInteger completions;
+
+        Splitting(CountedCompleter<?> completer, int lo, int hi, ForkPool.Worker[] ran, AtomicInteger completions) {
+            super(completer);
+            this.lo = lo;
+            this.hi = hi;
+            this.ran = ran;
+            this.completions = completions;
+        }
+
+        public void compute() {
+            if (hi - lo==1) {
+                assertNull(ran[lo]);
+                ran[lo] = worker;
+            }
+            else {
+                int mid = (lo + hi) >>> 1;
+                setPendingCount(2);
+                new Splitting(this, mid, hi, ran, completions).fork();
+                new Splitting(this, lo, mid, ran, completions).fork();
+            }
+            tryComplete();
+        }
+
+        public void onCompletion(CountedCompleter<?> caller) {
+            completions.incrementAndGet();
+        }
+
+        long forkSize() {
+            return hi - lo;
+        }
+    }
+
+    public void testForkedTree() {
+        // the test thread stands in for the workers, stepping each in turn, so that nothing is woven
+        int parallelism = 3, size = 64;
+        AtomicInteger completions = new AtomicInteger();
+        ForkPool.Worker[] ran = new ForkPool.Worker[size];
+        Splitting root = new Splitting(null, 0, size, ran, completions);
+        ForkPool pool = new ForkPool(root, parallelism);
+        pool.started.set(true);
+        root.pool = pool;
+        root.compute();
+
+        int idle = 0;
+        for (int ii = 0; idle < parallelism; ii = (ii + 1) % parallelism) {
+            ForkPool.Worker worker = pool.workers[ii];
+            CountedCompleter<?> task = worker.deque.pollLast();
+            if (task==null)
+                task = pool.steal(worker);
+            if (task==null)
+                idle++;
+            else {
+                idle = 0;
+                worker.run(task);
+            }
+        }
+
+        Set<ForkPool.Worker> workers = new HashSet<>();
+        for (ForkPool.Worker worker : ran) {
+            assertNotNull(worker);
+            workers.add(worker);
+        }
+        assertEquals(workers.size(), parallelism);
+        // every task completes once, each split only after both its halves, ending with the root
+        assertEquals(completions.get(), 2*size - 1);
+        assertTrue(root.status < 0);
+        assertEquals(root.getPendingCount(), 0);
+    }
+}
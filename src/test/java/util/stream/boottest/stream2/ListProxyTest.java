@@ -0,0 +1,79 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * random access lists and arrays are proxied by index, everything else by the collection's spliterator
+ */
+@Test
+public class ListProxyTest {
+
+    static List<Integer> list(int size) {
+        List<Integer> list = new ArrayList<>();
+        for (int ii = 0; ii < size; ii++)
+            list.add(ii);
+        return list;
+    }
+
+    public void testSelection() {
+        assertTrue(Arrays2.proxy(list(3)) instanceof Arrays2.ListProxy);
+        assertTrue(Arrays2.proxy(Arrays.asList(1, 2, 3)) instanceof Arrays2.ListProxy);
+        assertTrue(Arrays2.proxy(new Integer[] { 1, 2, 3 }) instanceof Arrays2.ListProxy);
+        assertFalse(Arrays2.proxy(new LinkedList<>(list(3))) instanceof Arrays2.ListProxy);
+        assertFalse(Arrays2.proxy(new CopyOnWriteArrayList<>(list(3))) instanceof Arrays2.ListProxy);
+    }
+
+    public void testStream() {
+        List<Integer> list = list(1000);
+        long sum = 999L * 1000 / 2;
+        assertEquals(Arrays2.proxy(list).stream().mapToLong(x -> x).sum(), sum);
+        assertEquals(Arrays2.proxy(list).parallelStream().mapToLong(x -> x).sum(), sum);
+        assertEquals(Arrays2.proxy(list).parallelStream().collect(Collectors.toList()), list);
+        assertEquals(Arrays2.proxy(list.toArray(new Integer[0])).parallelStream().skip(10).count(), 990);
+    }
+
+    public void testSplit() {
+        Spliterator<Integer> all = Arrays2.proxy(list(10));
+        assertTrue(all.hasCharacteristics(Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED));
+        assertEquals(all.getExactSizeIfKnown(), 10);
+        Spliterator<Integer> prefix = all.trySplit();
+        assertEquals(prefix.estimateSize(), 5);
+        assertEquals(all.estimateSize(), 5);
+        Integer [] first = new Integer[1];
+        assertTrue(all.tryAdvance(x -> first[0] = x));
+        assertEquals(first[0].intValue(), 5);
+
+        Spliterator<Integer> one = Arrays2.proxy(list(1));
+        assertNull(one.trySplit());
+    }
+
+    public void testLateBinding() {
+        List<Integer> list = list(5);
+        Stream<Integer> stream = Arrays2.proxy(list).stream();
+        list.add(5);
+        assertEquals(stream.count(), 6);
+    }
+
+    @Test(expectedExceptions = ConcurrentModificationException.class)
+    public void testModified() {
+        List<Integer> list = list(5);
+        Arrays2.proxy(list).stream().forEach(x -> { if (x==0) list.add(5); });
+    }
+}
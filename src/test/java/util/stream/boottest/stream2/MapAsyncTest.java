@@ -0,0 +1,135 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * the reorder buffer of mapAsync. the calls are deferred and then completed newest first,
+ * which is the worst case for ordered delivery
+ */
+@Test
+public class MapAsyncTest {
+
+    /** holds each batch of calls until it's full, then completes them in reverse */
+    static class Reversing<T, R> extends PausableOps.MapAsyncSpliterator<T, R> {
+        final PausableFunction<? super T, ? extends R> mapper;
+        final int batch;
+        final List<Slot<T, R>> deferred = new ArrayList<>();
+        int maxDeferred;
+
+        Reversing(Spliterator<T> upstream, int batch, PausableFunction<? super T, ? extends R> mapper,
+                  boolean ordered) {
+            super(upstream, batch, mapper, ordered);
+            this.mapper = mapper;
+            this.batch = batch;
+        }
+
+        void launch(Slot<T, R> slot) {
+            deferred.add(slot);
+            maxDeferred = Math.max(maxDeferred, deferred.size());
+            if (deferred.size()==batch)
+                for (int ii = batch - 1; ii >= 0; ii--)
+                    deferred.remove(ii).compute(mapper, completions);
+        }
+    }
+
+    private static List<Integer> run(boolean ordered) {
+        Spliterator<Integer> source = Arrays2.spliterator(new Integer[] { 0, 1, 2, 3, 4, 5, 6, 7 });
+        Reversing<Integer, Integer> spliterator = new Reversing<>(source, 4, x -> x * 10, ordered);
+        List<Integer> result = new ArrayList<>();
+        spliterator.forEachRemaining(result::add);
+        assertEquals(spliterator.maxDeferred, 4);
+        assertFalse(spliterator.completions.hasMessage());
+        return result;
+    }
+
+    public void testOrdered() {
+        assertEquals(run(true), Arrays.asList(0, 10, 20, 30, 40, 50, 60, 70));
+    }
+
+    public void testUnordered() {
+        assertEquals(run(false), Arrays.asList(30, 20, 10, 0, 70, 60, 50, 40));
+    }
+
+    public void testStream() {
+        List<Integer> result = IntStream.range(0, 100).boxed()
+                .mapAsync(8, x -> x + 1)
+                .collect(Collectors.toList());
+        assertEquals(result.size(), 100);
+        for (int ii = 0; ii < 100; ii++)
+            assertEquals(result.get(ii).intValue(), ii + 1);
+
+        long sum = IntStream.range(0, 100).parallel().boxed()
+                .mapAsyncUnordered(3, x -> (long) x)
+                .mapToLong(x -> x)
+                .sum();
+        assertEquals(sum, 99L * 100 / 2);
+    }
+
+    public void testPermits() throws Exception {
+        PausableOps.MapAsyncSpliterator.Permits permits = new PausableOps.MapAsyncSpliterator.Permits(2);
+        assertTrue(permits.tryAcquire());
+        assertTrue(permits.tryAcquire());
+        assertFalse(permits.tryAcquire());
+        Thread releaser = new Thread(() -> {
+            try { Thread.sleep(50); }
+            catch (InterruptedException ex) { }
+            permits.release();
+        });
+        releaser.start();
+        // blocks until the release, since the classes aren't woven
+        permits.acquire();
+        releaser.join();
+        assertEquals(permits.available(), 0);
+        permits.release();
+        permits.release();
+        assertEquals(permits.available(), 2);
+    }
+
+    public void testSplitPermits() {
+        // the splits share maxInFlight, and every permit is returned once both are drained
+        Integer [] vals = new Integer[1000];
+        for (int ii = 0; ii < vals.length; ii++)
+            vals[ii] = ii;
+        PausableOps.MapAsyncSpliterator<Integer, Integer> left =
+                new PausableOps.MapAsyncSpliterator<>(Arrays2.spliterator(vals), 4, x -> x * 10, true);
+        PausableOps.MapAsyncSpliterator<?, Integer> right =
+                (PausableOps.MapAsyncSpliterator<?, Integer>) left.trySplit();
+        assertTrue(right.permits==left.permits);
+        List<Integer> result = new ArrayList<>();
+        right.forEachRemaining(result::add);
+        left.forEachRemaining(result::add);
+        assertEquals(result.size(), vals.length);
+        assertEquals(left.permits.available(), 4);
+    }
+
+    public void testUnorderedFlag() {
+        Spliterator<Integer> ordered = Stream.of(1, 2, 3).mapAsync(2, x -> x).spliterator();
+        Spliterator<Integer> unordered = Stream.of(1, 2, 3).mapAsyncUnordered(2, x -> x).spliterator();
+        assertTrue(ordered.hasCharacteristics(Spliterator.ORDERED));
+        assertFalse(unordered.hasCharacteristics(Spliterator.ORDERED));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testException() {
+        Stream.of(1, 2, 3).mapAsync(2, x -> { if (x==2) throw new IllegalStateException(); return x; })
+                .forEachOrdered(x -> { });
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMaxInFlight() {
+        Stream.of(1).mapAsync(0, x -> x);
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * a source that never pauses is traversed by the unwoven methods, with or without cancellation
+ */
+@Test
+public class NonPausingTest {
+
+    /** an int array source whose pausable traversal fails */
+    static class Strict implements Spliterator.OfInt, Spliterator.NonPausing.OfInt {
+        final Spliterators.IntArraySpliterator array;
+        Strict(Spliterators.IntArraySpliterator array) { this.array = array; }
+
+        public Spliterator.OfInt trySplit() {
+            Spliterators.IntArraySpliterator split = (Spliterators.IntArraySpliterator) array.trySplit();
+            return split==null ? null : new Strict(split);
+        }
+        public boolean tryAdvance(IntConsumer action) { throw new AssertionError("paused"); }
+        public void forEachRemaining(IntConsumer action) { throw new AssertionError("paused"); }
+        public boolean tryAdvanceNow(IntConsumer action) { return array.tryAdvanceNow(action); }
+        public void forEachRemainingNow(IntConsumer action) { array.forEachRemainingNow(action); }
+        public long estimateSize() { return array.estimateSize(); }
+        public int characteristics() { return array.characteristics(); }
+    }
+
+    static IntStream stream(int size, boolean parallel) {
+        int [] values = new int[size];
+        Arrays.setAll(values, ii -> ii);
+        return StreamSupport.intStream(new Strict(new Spliterators.IntArraySpliterator(
+                values, Spliterator.ORDERED | Spliterator.IMMUTABLE)), parallel);
+    }
+
+    public void testCopyInto() {
+        assertEquals(stream(1000, false).asLongStream().sum(), 999L * 1000 / 2);
+        assertEquals(stream(1000, true).asLongStream().sum(), 999L * 1000 / 2);
+        assertEquals(stream(1000, true).map(x -> x * 2).toArray().length, 1000);
+    }
+
+    public void testCancel() {
+        assertEquals(stream(1000, false).filter(x -> x > 10).findFirst().getAsInt(), 11);
+        assertTrue(stream(1000, true).anyMatch(x -> x==500));
+        assertEquals(stream(1000, false).limit(3).boxed().collect(Collectors.toList()), Arrays.asList(0, 1, 2));
+    }
+
+    public void testSources() {
+        assertTrue(IntStream.range(0, 10).spliterator() instanceof Spliterator.NonPausing);
+        assertTrue(Arrays2.spliterator(new int[3]) instanceof Spliterator.NonPausing);
+        assertTrue(Arrays2.spliterator(new Integer[3]) instanceof Spliterator.NonPausing);
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * the counting sinks interposed by wrapSink while metrics are enabled
+ */
+@Test
+public class PipelineMetricsTest {
+    final List<PipelineMetrics> completed = new ArrayList<>();
+    final PipelineMetrics.Listener listener = completed::add;
+
+    @BeforeMethod
+    public void enable() {
+        completed.clear();
+        PipelineMetrics.addListener(listener);
+        PipelineMetrics.setEnabled(true);
+    }
+
+    @AfterMethod
+    public void disable() {
+        PipelineMetrics.setEnabled(false);
+        PipelineMetrics.removeListener(listener);
+    }
+
+    private PipelineMetrics.Stage stage(int index) {
+        assertEquals(completed.size(), 1);
+        return completed.get(0).getStages().get(index);
+    }
+
+    public void testStages() {
+        long sum = IntStream.range(0, 100).map(x -> x * 2).filter(x -> x % 3==0).asLongStream().sum();
+        assertEquals(sum, 3366);
+        assertEquals(completed.get(0).getSignature(), "source -> map -> filter -> asLongStream -> terminal");
+        assertEquals(stage(1).getElementsIn(), 100);
+        assertEquals(stage(1).getElementsOut(), 100);
+        assertEquals(stage(2).getElementsOut(), 34);
+        assertEquals(stage(4).getElementsIn(), 34);
+        assertEquals(stage(1).getBegins(), 1);
+        assertEquals(stage(1).getBeginSizes(), 100);
+        assertTrue(stage(1).getNanos() >= 0);
+        assertEquals(completed.get(0).getPauses(), -1);
+    }
+
+    public void testNames() {
+        // the stateful ops are named for the stream method, not the factory or class that built them
+        assertEquals(Stream.of(5, 3, 3, 1).distinct().sorted().limit(2).skip(1).count(), 1);
+        assertEquals(completed.get(0).getSignature(),
+                     "source -> distinct -> sorted -> limit -> skip -> mapToLong -> terminal");
+        completed.clear();
+        IntStream.range(0, 10).boxed().map(x -> x).window(3).count();
+        assertEquals(completed.get(0).getSignature(), "source -> boxed -> map -> window -> mapToLong -> terminal");
+        completed.clear();
+        LongStream.range(0, 10).slidingMax(2).sum();
+        assertEquals(completed.get(0).getSignature(), "source -> slidingMax -> terminal");
+    }
+
+    public void testCancellation() {
+        Stream.of(1, 2, 3, 4, 5).filter(x -> x > 2).findFirst();
+        assertEquals(stage(1).getElementsIn(), 3);
+        assertEquals(stage(2).getElementsIn(), 1);
+        assertTrue(stage(1).getCancellations() > 0);
+    }
+
+    public void testToArray() {
+        assertEquals(Stream.of("a", "b").map(String::length).toArray().length, 2);
+        assertEquals(stage(1).getElementsOut(), 2);
+    }
+
+    public void testRegistry() {
+        IntStream.range(0, 10).boxed().count();
+        IntStream.range(0, 10).boxed().count();
+        long in = 0;
+        for (PipelineMetrics.Totals totals : PipelineMetrics.Registry.get().getStages())
+            if (totals.getSignature().equals("source -> boxed -> mapToLong -> terminal") && totals.getIndex()==1)
+                in = totals.getElementsIn();
+        assertTrue(in >= 20);
+    }
+
+    public void testDisabled() {
+        PipelineMetrics.setEnabled(false);
+        IntStream.range(0, 10).sum();
+        assertEquals(completed.size(), 0);
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * the primitive distinct ops dedupe in a LongSet rather than boxing into a HashSet,
+ * and must agree with java.util.stream on contents and, when ordered, on encounter order
+ */
+@Test
+public class PrimitiveDistinctTest {
+
+    static final int SIZE = 20000;
+
+    static long [] longs() {
+        Random random = new Random(31);
+        long [] vals = new long[SIZE];
+        for (int ii = 0; ii < SIZE; ii++)
+            vals[ii] = (random.nextInt(SIZE/3) - SIZE/6) * 0x100000001L;
+        return vals;
+    }
+
+    public void testLong() {
+        long [] vals = longs();
+        long [] expected = java.util.stream.LongStream.of(vals).distinct().toArray();
+        assertEquals(LongStream.of(vals).distinct().toArray(), expected);
+        assertEquals(LongStream.of(vals).parallel().distinct().toArray(), expected);
+        assertEquals(LongStream.of(vals).parallel().unordered().distinct().sorted().toArray(),
+                     java.util.Arrays.stream(expected).sorted().toArray());
+        assertEquals(LongStream.of(vals).sorted().distinct().toArray(),
+                     java.util.Arrays.stream(expected).sorted().toArray());
+    }
+
+    public void testInt() {
+        int [] vals = LongStream.of(longs()).mapToInt(x -> (int) x).toArray();
+        int [] expected = java.util.stream.IntStream.of(vals).distinct().toArray();
+        assertEquals(IntStream.of(vals).distinct().toArray(), expected);
+        assertEquals(IntStream.of(vals).parallel().distinct().toArray(), expected);
+        assertEquals(IntStream.of(vals).sorted().distinct().count(), expected.length);
+        assertEquals(IntStream.range(0, 100).distinct().count(), 100);
+    }
+
+    public void testDouble() {
+        double [] vals = { 1.0, Double.NaN, -0.0, 0.0, 1.0, 0.0 / 0.0, -0.0, Double.POSITIVE_INFINITY, 0.0 };
+        double [] expected = java.util.stream.DoubleStream.of(vals).distinct().toArray();
+        double [][] results = {
+            DoubleStream.of(vals).distinct().toArray(),
+            DoubleStream.of(vals).parallel().distinct().toArray(),
+            DoubleStream.of(vals).sorted().distinct().toArray()
+        };
+        java.util.Arrays.sort(expected);
+        for (double [] result : results) {
+            java.util.Arrays.sort(result);
+            assertEquals(result.length, expected.length);
+            for (int ii = 0; ii < expected.length; ii++)
+                assertEquals(Double.doubleToLongBits(result[ii]), Double.doubleToLongBits(expected[ii]));
+        }
+    }
+
+    public void testSet() {
+        DistinctOps.LongSet set = new DistinctOps.LongSet();
+        for (long ii = -5000; ii < 5000; ii++)
+            assertTrue(set.add(ii << 32));
+        for (long ii = -5000; ii < 5000; ii++)
+            assertFalse(set.add(ii << 32));
+        assertEquals(set.size(), 10000);
+        assertEquals(set.longArray()[0], -5000L << 32);
+        assertTrue(set.add(0x7));
+        assertEquals(set.size(), 10001);
+    }
+}
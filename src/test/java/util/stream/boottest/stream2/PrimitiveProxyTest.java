@@ -0,0 +1,145 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import org.testng.annotations.Test;
+
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * the primitive proxies of Arrays2 bridge the java.util spliterators without boxing.
+ * the hosts fail on the boxed Consumer overloads, and the proxies fail if the pipeline
+ * calls them with a consumer that would need to be boxed
+ */
+@Test
+public class PrimitiveProxyTest {
+
+    static final int SIZE = 1000;
+
+    static class IntHost extends java.util.Spliterators.AbstractIntSpliterator {
+        final java.util.Spliterator.OfInt host;
+        IntHost(java.util.Spliterator.OfInt host) {
+            super(host.estimateSize(), host.characteristics());
+            this.host = host;
+        }
+        public java.util.Spliterator.OfInt trySplit() {
+            java.util.Spliterator.OfInt h2 = host.trySplit();
+            return h2==null ? null : new IntHost(h2);
+        }
+        public long estimateSize() { return host.estimateSize(); }
+        public java.util.Comparator<? super Integer> getComparator() { return host.getComparator(); }
+        public boolean tryAdvance(IntConsumer action) { return host.tryAdvance(action); }
+        public void forEachRemaining(IntConsumer action) { host.forEachRemaining(action); }
+        public boolean tryAdvance(Consumer<? super Integer> action) { throw new AssertionError("boxed"); }
+        public void forEachRemaining(Consumer<? super Integer> action) { throw new AssertionError("boxed"); }
+    }
+    static class LongHost extends java.util.Spliterators.AbstractLongSpliterator {
+        final java.util.Spliterator.OfLong host;
+        LongHost(java.util.Spliterator.OfLong host) {
+            super(host.estimateSize(), host.characteristics());
+            this.host = host;
+        }
+        public java.util.Spliterator.OfLong trySplit() {
+            java.util.Spliterator.OfLong h2 = host.trySplit();
+            return h2==null ? null : new LongHost(h2);
+        }
+        public long estimateSize() { return host.estimateSize(); }
+        public java.util.Comparator<? super Long> getComparator() { return host.getComparator(); }
+        public boolean tryAdvance(LongConsumer action) { return host.tryAdvance(action); }
+        public void forEachRemaining(LongConsumer action) { host.forEachRemaining(action); }
+        public boolean tryAdvance(Consumer<? super Long> action) { throw new AssertionError("boxed"); }
+        public void forEachRemaining(Consumer<? super Long> action) { throw new AssertionError("boxed"); }
+    }
+    static class DoubleHost extends java.util.Spliterators.AbstractDoubleSpliterator {
+        final java.util.Spliterator.OfDouble host;
+        DoubleHost(java.util.Spliterator.OfDouble host) {
+            super(host.estimateSize(), host.characteristics());
+            this.host = host;
+        }
+        public java.util.Spliterator.OfDouble trySplit() {
+            java.util.Spliterator.OfDouble h2 = host.trySplit();
+            return h2==null ? null : new DoubleHost(h2);
+        }
+        public long estimateSize() { return host.estimateSize(); }
+        public java.util.Comparator<? super Double> getComparator() { return host.getComparator(); }
+        public boolean tryAdvance(DoubleConsumer action) { return host.tryAdvance(action); }
+        public void forEachRemaining(DoubleConsumer action) { host.forEachRemaining(action); }
+        public boolean tryAdvance(Consumer<? super Double> action) { throw new AssertionError("boxed"); }
+        public void forEachRemaining(Consumer<? super Double> action) { throw new AssertionError("boxed"); }
+    }
+
+    /** fails if the pipeline hands the proxy a consumer that isn't an IntConsumer */
+    static class StrictInt extends Arrays2.OfPrimitive2.OfInt {
+        StrictInt(java.util.Spliterator.OfInt host) { super(host); }
+        public Spliterator.OfInt trySplit() throws kilim.Pausable {
+            java.util.Spliterator.OfInt h2 = host.trySplit();
+            return h2==null ? null : new StrictInt(h2);
+        }
+        public boolean tryAdvance(Consumer<? super Integer> action) throws kilim.Pausable {
+            if (!(action instanceof IntConsumer)) fail("boxed");
+            return super.tryAdvance(action);
+        }
+        public void forEachRemaining(Consumer<? super Integer> action) throws kilim.Pausable {
+            if (!(action instanceof IntConsumer)) fail("boxed");
+            super.forEachRemaining(action);
+        }
+        public boolean tryAdvanceNow(Consumer<? super Integer> action) {
+            if (!(action instanceof IntConsumer)) fail("boxed");
+            return super.tryAdvanceNow(action);
+        }
+        public void forEachRemainingNow(Consumer<? super Integer> action) {
+            if (!(action instanceof IntConsumer)) fail("boxed");
+            super.forEachRemainingNow(action);
+        }
+    }
+
+    static java.util.Spliterator.OfInt ints() {
+        return new IntHost(java.util.Arrays.spliterator(java.util.stream.IntStream.range(0, SIZE).toArray()));
+    }
+
+    public void testInt() {
+        long expected = (long) SIZE * (SIZE - 1) / 2;
+        assertEquals(StreamSupport.intStream(Arrays2.proxy(ints()), false).asLongStream().sum(), expected);
+        assertEquals(StreamSupport.intStream(Arrays2.proxy(ints()), true).asLongStream().sum(), expected);
+        assertEquals(StreamSupport.intStream(new StrictInt(ints()), false).filter(x -> x < 10).count(), 10);
+        assertEquals(StreamSupport.intStream(new StrictInt(ints()), true).map(x -> x * 2).max().getAsInt(),
+                     2 * (SIZE - 1));
+        assertEquals(StreamSupport.intStream(new StrictInt(ints()), false).limit(5).toArray(),
+                     new int[] { 0, 1, 2, 3, 4 });
+        assertEquals(StreamSupport.intStream(new StrictInt(ints()), true).toArray().length, SIZE);
+        PrimitiveIterator.OfInt iterator = StreamSupport.intStream(new StrictInt(ints()), false).iterator();
+        int count = 0;
+        while (iterator.hasNext())
+            assertEquals(iterator.nextInt(), count++);
+        assertEquals(count, SIZE);
+    }
+
+    public void testLong() {
+        java.util.Spliterator.OfLong host = new LongHost(java.util.stream.LongStream.range(0, SIZE).spliterator());
+        assertEquals(StreamSupport.longStream(Arrays2.proxy(host), true).sum(), (long) SIZE * (SIZE - 1) / 2);
+    }
+
+    public void testDouble() {
+        java.util.Spliterator.OfDouble host = new DoubleHost(java.util.Arrays.spliterator(new double[SIZE]));
+        assertEquals(StreamSupport.doubleStream(Arrays2.proxy(host), true).map(x -> x + 1).sum(), (double) SIZE);
+    }
+
+    public void testSplit() throws kilim.Pausable {
+        Spliterator.OfInt proxy = Arrays2.proxy(new IntHost(java.util.Arrays.spliterator(new int[] { 7 })));
+        assertNull(proxy.trySplit());
+        int [] seen = new int[1];
+        assertTrue(proxy.tryAdvance((IntConsumer) x -> seen[0] = x));
+        assertEquals(seen[0], 7);
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * the radix sorts must produce exactly the order of Arrays.sort, including for the
+ * negative, -0.0 and NaN values, for sub-ranges, and for the parallel passes
+ */
+@Test
+public class RadixSortTest {
+
+    static final int SIZE = 3 * RadixSort.THRESHOLD;
+
+    public void testInt() throws kilim.Pausable {
+        Random random = new Random(7);
+        int [] vals = new int[SIZE];
+        for (int ii = 0; ii < SIZE; ii++)
+            vals[ii] = ii % 5==0 ? random.nextInt(100) - 50 : random.nextInt();
+        vals[1] = Integer.MIN_VALUE;
+        vals[2] = Integer.MAX_VALUE;
+        int [] expected = vals.clone();
+        java.util.Arrays.sort(expected);
+
+        int [] seq = vals.clone();
+        RadixSort.sort(seq, 0, SIZE);
+        assertEquals(seq, expected);
+        int [] par = vals.clone();
+        RadixSort.parallelSort(par);
+        assertEquals(par, expected);
+
+        int [] sub = vals.clone();
+        int [] subExpected = vals.clone();
+        RadixSort.sort(sub, 10, SIZE - 10);
+        java.util.Arrays.sort(subExpected, 10, SIZE - 10);
+        assertEquals(sub, subExpected);
+    }
+
+    public void testLong() throws kilim.Pausable {
+        // timestamps, which share their high bytes, so most passes are skipped
+        long base = 1478000000000L;
+        Random random = new Random(11);
+        long [] vals = new long[SIZE];
+        for (int ii = 0; ii < SIZE; ii++)
+            vals[ii] = base + random.nextInt(1 << 20);
+        long [] expected = vals.clone();
+        java.util.Arrays.sort(expected);
+        long [] seq = vals.clone();
+        RadixSort.sort(seq, 0, SIZE);
+        assertEquals(seq, expected);
+        long [] par = vals.clone();
+        RadixSort.parallelSort(par);
+        assertEquals(par, expected);
+
+        for (int ii = 0; ii < SIZE; ii++)
+            vals[ii] = random.nextLong();
+        expected = vals.clone();
+        java.util.Arrays.sort(expected);
+        RadixSort.parallelSort(vals);
+        assertEquals(vals, expected);
+    }
+
+    public void testDouble() throws kilim.Pausable {
+        double [] special = { Double.NaN, -0.0, 0.0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                              Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE };
+        Random random = new Random(13);
+        double [] vals = new double[SIZE];
+        for (int ii = 0; ii < SIZE; ii++)
+            vals[ii] = ii < special.length ? special[ii] : random.nextGaussian() * 1e6;
+        double [] expected = vals.clone();
+        java.util.Arrays.sort(expected);
+        double [] seq = vals.clone();
+        RadixSort.sort(seq, 0, SIZE);
+        double [] par = vals.clone();
+        RadixSort.parallelSort(par);
+        for (int ii = 0; ii < SIZE; ii++) {
+            assertEquals(Double.doubleToLongBits(seq[ii]), Double.doubleToLongBits(expected[ii]));
+            assertEquals(Double.doubleToLongBits(par[ii]), Double.doubleToLongBits(expected[ii]));
+        }
+    }
+
+    public void testPipeline() {
+        long [] vals = new Random(17).longs(SIZE).toArray();
+        long [] expected = vals.clone();
+        java.util.Arrays.sort(expected);
+        assertEquals(LongStream.of(vals).sorted().toArray(), expected);
+        assertEquals(LongStream.of(vals).parallel().sorted().toArray(), expected);
+        assertEquals(LongStream.of(vals).filter(x -> true).sorted().toArray(), expected);
+    }
+}
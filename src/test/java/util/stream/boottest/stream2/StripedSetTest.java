@@ -0,0 +1,80 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * the leaves of an unordered parallel distinct, combined without merging and then merged stripe by stripe
+ */
+@Test
+public class StripedSetTest {
+
+    private static <T> List<T> elements(Node<T> node) {
+        List<T> list = new ArrayList<>();
+        node.forEach2(list::add);
+        return list;
+    }
+
+    public void testMergeLeaves() {
+        HashSet<Integer> expected = new HashSet<>();
+        DistinctOps.StripedSet<Integer> root = new DistinctOps.StripedSet<>();
+        for (int leaf = 0; leaf < 8; leaf++) {
+            DistinctOps.StripedSet<Integer> set = new DistinctOps.StripedSet<>();
+            for (int ii = 0; ii < 1000; ii++) {
+                int t = (leaf * 311 + ii * 7) % 2000;
+                set.add(t);
+                expected.add(t);
+            }
+            if (leaf==0) root = set;
+            else root.combine(set);
+        }
+        assertEquals(root.leaves.size(), 8);
+
+        Node<Integer> node = root.node();
+        List<Integer> list = elements(node);
+        assertEquals(node.count(), expected.size());
+        assertEquals(list.size(), expected.size());
+        assertEquals(new HashSet<>(list), expected);
+    }
+
+    public void testNull() {
+        DistinctOps.StripedSet<String> left = new DistinctOps.StripedSet<>();
+        DistinctOps.StripedSet<String> right = new DistinctOps.StripedSet<>();
+        for (String t : Arrays.asList("a", null, "b", "a"))
+            left.add(t);
+        for (String t : Arrays.asList(null, "c", "b", null))
+            right.add(t);
+        left.combine(right);
+
+        List<String> list = elements(left.node());
+        assertEquals(list.size(), 4);
+        assertEquals(new HashSet<>(list), new HashSet<>(Arrays.asList("a", "b", "c", null)));
+    }
+
+    public void testStripe() {
+        assertTrue(DistinctOps.StripedSet.BITS >= 1);
+        assertEquals(DistinctOps.StripedSet.stripe(null), 0);
+        for (int ii = -1000; ii < 1000; ii++) {
+            int stripe = DistinctOps.StripedSet.stripe(ii);
+            assertTrue(stripe >= 0 && stripe < 1 << DistinctOps.StripedSet.BITS);
+        }
+    }
+
+    public void testEmpty() {
+        DistinctOps.StripedSet<String> set = new DistinctOps.StripedSet<>();
+        set.combine(new DistinctOps.StripedSet<>());
+        assertEquals(set.node().count(), 0);
+    }
+}
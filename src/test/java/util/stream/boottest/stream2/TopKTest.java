@@ -0,0 +1,122 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * sorted().limit(k) and sorted().findFirst() retain only the k least elements in a bounded heap,
+ * and must agree with the full sort, including the encounter order of equal elements
+ */
+@Test
+public class TopKTest {
+
+    static final int SIZE = 10000;
+
+    static int [] ints() {
+        Random random = new Random(17);
+        int [] vals = new int[SIZE];
+        for (int ii = 0; ii < SIZE; ii++)
+            vals[ii] = random.nextInt(SIZE/4) - SIZE/8;
+        return vals;
+    }
+
+    static List<int []> pairs() {
+        List<int []> list = new ArrayList<>();
+        int [] vals = ints();
+        for (int ii = 0; ii < SIZE; ii++)
+            list.add(new int[] { vals[ii], ii });
+        return list;
+    }
+
+    public void testRef() {
+        List<int []> list = pairs();
+        Comparator<int []> cmp = Comparator.comparingInt(x -> x[0]);
+        for (int k : new int[] { 0, 1, 7, 100, SIZE, 2*SIZE }) {
+            for (boolean parallel : new boolean[] { false, true }) {
+                List<Integer> full = StreamSupport.stream(Arrays2.proxy(list), false)
+                        .sorted(cmp).map(x -> x[1]).collect(Collectors.toList()).subList(0, Math.min(k, SIZE));
+                List<Integer> top = StreamSupport.stream(Arrays2.proxy(list), parallel)
+                        .sorted(cmp).limit(k).map(x -> x[1]).collect(Collectors.toList());
+                assertEquals(top, full);
+            }
+        }
+    }
+
+    public void testFindFirst() {
+        List<int []> list = pairs();
+        Comparator<int []> cmp = Comparator.comparingInt(x -> x[0]);
+        int [] first = StreamSupport.stream(Arrays2.proxy(list), false).sorted(cmp).limit(1).toArray(int[][]::new)[0];
+        assertEquals(StreamSupport.stream(Arrays2.proxy(list), false).sorted(cmp).findFirst().get(), first);
+        assertEquals(StreamSupport.stream(Arrays2.proxy(list), true).sorted(cmp).findFirst().get(), first);
+        assertEquals(Arrays2.proxy(list).stream().map(x -> x[0]).sorted().findFirst().get(),
+                     (Integer) java.util.Arrays.stream(ints()).min().getAsInt());
+        assertFalse(Stream.<Integer>empty().sorted().findFirst().isPresent());
+    }
+
+    public void testPrimitive() {
+        int [] vals = ints();
+        int [] sorted = vals.clone();
+        java.util.Arrays.sort(sorted);
+        for (IntStream stream : new IntStream[] { IntStream.of(vals), IntStream.of(vals).parallel() })
+            assertEquals(stream.sorted().limit(50).toArray(), java.util.Arrays.copyOf(sorted, 50));
+        for (LongStream stream : new LongStream[] { LongStream.of(1L, 4L), LongStream.of(1L, 4L).parallel() })
+            assertEquals(stream.map(x -> -x).sorted().limit(1).toArray(), new long[] { -4L });
+        assertEquals(IntStream.of(vals).asLongStream().sorted().limit(50).toArray(),
+                     IntStream.of(sorted).limit(50).asLongStream().toArray());
+        assertEquals(IntStream.of(vals).sorted().findFirst().getAsInt(), sorted[0]);
+        assertEquals(IntStream.of(vals).parallel().sorted().findFirst().getAsInt(), sorted[0]);
+    }
+
+    public void testDouble() {
+        double [] vals = { 3.0, Double.NaN, -0.0, 0.0, -1.5, Double.NEGATIVE_INFINITY, 0.0, -0.0, 2.0 };
+        double [] sorted = vals.clone();
+        java.util.Arrays.sort(sorted);
+        for (int k = 0; k <= vals.length; k++) {
+            double [] top = DoubleStream.of(vals).sorted().limit(k).toArray();
+            assertEquals(top.length, k);
+            for (int ii = 0; ii < k; ii++)
+                assertEquals(Double.doubleToLongBits(top[ii]), Double.doubleToLongBits(sorted[ii]));
+        }
+        double [] all = DoubleStream.of(vals).parallel().sorted().limit(vals.length).toArray();
+        for (int ii = 0; ii < vals.length; ii++)
+            assertEquals(Double.doubleToLongBits(all[ii]), Double.doubleToLongBits(sorted[ii]));
+    }
+
+    public void testBounded() {
+        assertFalse(SortedOps.isBounded(-1, -1));
+        assertFalse(SortedOps.isBounded(-1, 5));
+        assertFalse(SortedOps.isBounded(5, 5));
+        assertFalse(SortedOps.isBounded(5, 0));
+        assertTrue(SortedOps.isBounded(5, 6));
+        assertTrue(SortedOps.isBounded(5, -1));
+        assertTrue(SortedOps.isBounded(0, -1));
+    }
+
+    public void testMerge() {
+        Comparator<int []> cmp = Comparator.comparingInt(x -> x[0]);
+        SortedOps.RefTopK<int []> left = new SortedOps.RefTopK<>(cmp, 3);
+        SortedOps.RefTopK<int []> right = new SortedOps.RefTopK<>(cmp, 3);
+        for (int ii = 0; ii < 4; ii++) {
+            left.add(new int[] { 1, ii });
+            right.add(new int[] { ii==0 ? 0 : 1, 4+ii });
+        }
+        int [][] top = left.merge(right).sorted(int[][]::new);
+        assertEquals(top.length, 3);
+        assertEquals(top[0][1], 4);
+        assertEquals(top[1][1], 0);
+        assertEquals(top[2][1], 1);
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package stream2;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+/**
+ * the trips are counted per call site and tripping class
+ */
+@Test
+public class TripwireTest {
+
+    private static long count(String message) {
+        long count = 0;
+        for (Tripwire.Site site : Tripwire.snapshot())
+            if (site.getMessage().equals(message))
+                count += site.getCount();
+        return count;
+    }
+
+    public void testCounts() {
+        Tripwire.reset();
+        for (int ii = 0; ii < 5; ii++)
+            Tripwire.trip(Integer.class, "{0} tripping test site A");
+        Tripwire.trip(Long.class, "{0} tripping test site A");
+        Tripwire.trip(Integer.class, "{0} tripping test site B");
+
+        assertEquals(count("java.lang.Integer tripping test site A"), 5);
+        assertEquals(count("java.lang.Long tripping test site A"), 1);
+        assertEquals(count("java.lang.Integer tripping test site B"), 1);
+        List<Tripwire.Site> sites = Tripwire.snapshot();
+        assertEquals(sites.size(), 3);
+        assertEquals(Tripwire.total(), 7);
+        if (Tripwire.SAMPLE==0)
+            for (Tripwire.Site site : sites)
+                assertNull(site.getSample());
+        // a sample rate of 1 captures every trip
+        if (Tripwire.SAMPLE==1)
+            for (Tripwire.Site site : sites)
+                assertNotNull(site.getSample());
+
+        Tripwire.reset();
+        assertEquals(Tripwire.total(), 0);
+    }
+
+    /** run with -Dorg.openjdk.java.util.stream.tripwire=true to exercise the counting */
+    public void testSink() {
+        Tripwire.reset();
+        Sink.OfInt sink = new Sink.OfInt() {
+            public void accept(int value) { }
+        };
+        sink.accept(Integer.valueOf(7));
+        sink.accept(Integer.valueOf(8));
+        sink.accept(9);
+        assertEquals(count(sink.getClass().getName() + " calling Sink.OfInt.accept(Integer)"),
+                     Tripwire.ENABLED ? 2 : 0);
+        Tripwire.reset();
+    }
+}
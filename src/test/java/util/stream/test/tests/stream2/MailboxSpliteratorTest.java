@@ -0,0 +1,276 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package tests.stream2;
+
+import kilim.Mailbox;
+import org.testng.annotations.Test;
+import stream2.Collectors;
+import stream2.MailboxSpliterator;
+import stream2.Spliterator;
+import stream2.StreamSupport;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * mailbox sources, mostly with all the messages queued up front so that traversal never needs to wait.
+ * the timed tests hold back a producer thread until the consumer has seen a flush that only a timeout
+ * could have triggered, so a missing timeout fails the assertions rather than hanging
+ */
+@Test
+public class MailboxSpliteratorTest {
+
+    private static <T> Mailbox<T> mailbox(List<T> msgs) {
+        Mailbox<T> mailbox = new Mailbox<>();
+        for (T msg : msgs)
+            mailbox.putnb(msg);
+        return mailbox;
+    }
+
+    public void testSentinel() {
+        Mailbox<String> mailbox = mailbox(Arrays.asList("a", "b", "c", "eos", "d"));
+        List<String> result = StreamSupport.stream(mailbox, "eos", false).collect(Collectors.toList());
+        assertEquals(result, Arrays.asList("a", "b", "c"));
+        // messages after the sentinel are left in the mailbox
+        assertEquals(mailbox.getnb(), "d");
+    }
+
+    public void testClose() {
+        Mailbox<String> mailbox = mailbox(Arrays.asList("a", "b"));
+        MailboxSpliterator<String> spliterator = new MailboxSpliterator<>(mailbox);
+        spliterator.close();
+        List<String> result = new ArrayList<>();
+        spliterator.forEachRemaining(result::add);
+        assertEquals(result, Arrays.asList("a", "b"));
+        assertFalse(spliterator.tryAdvance(result::add));
+    }
+
+    public void testTryAdvance() {
+        Mailbox<Integer> mailbox = mailbox(Arrays.asList(1, 2, -1));
+        MailboxSpliterator<Integer> spliterator = new MailboxSpliterator<>(mailbox, -1);
+        List<Integer> result = new ArrayList<>();
+        assertTrue(spliterator.tryAdvance(result::add));
+        assertTrue(spliterator.tryAdvance(result::add));
+        assertFalse(spliterator.tryAdvance(result::add));
+        assertFalse(spliterator.tryAdvance(result::add));
+        assertEquals(result, Arrays.asList(1, 2));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.CONCURRENT));
+        assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+    }
+
+    public void testSplit() {
+        List<Integer> msgs = new ArrayList<>();
+        for (int ii = 0; ii < 3000; ii++)
+            msgs.add(ii);
+        msgs.add(-1);
+        MailboxSpliterator<Integer> spliterator = new MailboxSpliterator<>(mailbox(msgs), -1);
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        assertEquals(prefix.getExactSizeIfKnown(), 1 << 10);
+        List<Integer> result = new ArrayList<>();
+        prefix.forEachRemaining(result::add);
+        for (Spliterator<Integer> split; (split = spliterator.trySplit()) != null;)
+            split.forEachRemaining(result::add);
+        assertFalse(spliterator.tryAdvance(result::add));
+        assertEquals(result, msgs.subList(0, 3000));
+    }
+
+    public void testParallel() {
+        List<Integer> msgs = new ArrayList<>();
+        for (int ii = 0; ii < 5000; ii++)
+            msgs.add(ii);
+        msgs.add(-1);
+        long sum = StreamSupport.intStream(mailbox(msgs), -1, true).asLongStream().sum();
+        assertEquals(sum, 4999L * 5000 / 2);
+    }
+
+    public void testPrimitive() {
+        assertEquals(StreamSupport.intStream(mailbox(Arrays.asList(3, 4, 0, 5)), 0, false).sum(), 7);
+        assertEquals(StreamSupport.longStream(mailbox(Arrays.asList(3L, 4L, 0L)), 0L, false).sum(), 7L);
+        assertEquals(StreamSupport.doubleStream(mailbox(Arrays.asList(1.5, 2.0, -1.0)), -1.0, false).sum(), 3.5);
+
+        MailboxSpliterator.OfInt spliterator = new MailboxSpliterator.OfInt(mailbox(Arrays.asList(7, 8)));
+        spliterator.close();
+        Spliterator.OfInt split = spliterator.trySplit();
+        assertEquals(split.getExactSizeIfKnown(), 2);
+        assertNull(spliterator.trySplit());
+        assertFalse(spliterator.tryAdvance((int value) -> { }));
+    }
+
+    public void testWindows() {
+        Duration hour = Duration.ofHours(1);
+        Mailbox<Integer> mailbox = mailbox(Arrays.asList(1, 2, 3, 4, 5, 6, 7, -1, 8));
+        List<List<Integer>> windows = StreamSupport.windowBySizeOrTime(mailbox, -1, 3, hour).collect(Collectors.toList());
+        // the final window is flushed by the sentinel
+        assertEquals(windows, Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5, 6), Arrays.asList(7)));
+        assertEquals(mailbox.getnb(), (Integer) 8);
+
+        assertEquals(StreamSupport.windowByTime(mailbox(Arrays.asList("a", "b", "eos")), "eos", hour)
+                .collect(Collectors.toList()), Arrays.asList(Arrays.asList("a", "b")));
+        assertEquals(StreamSupport.windowByTime(mailbox(Arrays.asList("eos")), "eos", hour).count(), 0);
+
+        MailboxSpliterator<Integer> spliterator = new MailboxSpliterator<>(mailbox(Arrays.asList(1, 2)));
+        spliterator.close();
+        Spliterator<List<Integer>> split = spliterator.windowBySizeOrTime(1, hour);
+        List<List<Integer>> result = new ArrayList<>();
+        split.forEachRemaining(result::add);
+        assertEquals(result, Arrays.asList(Arrays.asList(1), Arrays.asList(2)));
+        assertNull(split.trySplit());
+    }
+
+    /**
+     * start a producer that puts the first messages, waits until released or for 10 seconds, and then
+     * puts the rest
+     */
+    static <T> Thread producer(Mailbox<T> mailbox, List<T> first, CountDownLatch release, List<T> rest) {
+        Thread thread = new Thread(() -> {
+            first.forEach(mailbox::putnb);
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            rest.forEach(mailbox::putnb);
+        });
+        thread.start();
+        return thread;
+    }
+
+    public void testWindowTimeout() throws InterruptedException {
+        Mailbox<Integer> mailbox = new Mailbox<>();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread thread = producer(mailbox, Arrays.asList(1, 2), release, Arrays.asList(3, -1));
+        List<List<Integer>> windows = new ArrayList<>();
+        StreamSupport.windowBySizeOrTime(mailbox, -1, 10, Duration.ofMillis(200)).forEach(window -> {
+            windows.add(window);
+            release.countDown();
+        });
+        thread.join();
+        // the partial window is flushed by the span, before the producer resumes
+        assertEquals(windows, Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3)));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWindowSpan() {
+        new MailboxSpliterator<>(new Mailbox<String>()).windowByTime(Duration.ZERO);
+    }
+
+    public void testSessions() {
+        Duration hour = Duration.ofHours(1);
+        Mailbox<String> mailbox = mailbox(Arrays.asList("a1", "b1", "a2", "c1", "b2", "eos"));
+        List<String> sessions = new ArrayList<>();
+        StreamSupport.sessionize(mailbox, "eos", x -> x.charAt(0), hour, 10, 100).forEach(s -> sessions.add(s.toString()));
+        // open sessions are flushed at the end, the least recently active first
+        assertEquals(sessions, Arrays.asList("a=[a1, a2]", "c=[c1]", "b=[b1, b2]"));
+
+        // beyond maxKeys, the longest idle session is closed early
+        mailbox = mailbox(Arrays.asList("a1", "b1", "a2", "c1", "a3", "eos"));
+        sessions.clear();
+        StreamSupport.sessionize(mailbox, "eos", x -> x.charAt(0), hour, 2, 100).forEach(s -> sessions.add(s.toString()));
+        assertEquals(sessions, Arrays.asList("b=[b1]", "c=[c1]", "a=[a1, a2, a3]"));
+
+        assertEquals(StreamSupport.sessionize(mailbox(Arrays.asList("eos")), "eos", x -> x, hour, 1, 1).count(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testSessionKeys() {
+        new MailboxSpliterator<>(new Mailbox<String>()).sessionize(x -> x, Duration.ofSeconds(1), 0, 1);
+    }
+
+    public void testSessionSize() {
+        // a key that never goes quiet is still emitted, in sessions of maxMessages
+        List<String> msgs = Arrays.asList("a1", "a2", "b1", "a3", "a4", "a5", "eos");
+        List<String> sessions = new ArrayList<>();
+        StreamSupport.sessionize(mailbox(msgs), "eos", x -> x.charAt(0), Duration.ofHours(1), 10, 2)
+                .forEach(s -> sessions.add(s.toString()));
+        assertEquals(sessions, Arrays.asList("a=[a1, a2]", "a=[a3, a4]", "b=[b1]", "a=[a5]"));
+    }
+
+    public void testSessionTimeout() throws InterruptedException {
+        Mailbox<String> mailbox = new Mailbox<>();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread thread = producer(mailbox, Arrays.asList("a1", "a2"), release, Arrays.asList("a3", "eos"));
+        List<String> sessions = new ArrayList<>();
+        StreamSupport.sessionize(mailbox, "eos", x -> x.charAt(0), Duration.ofMillis(200), 10, 100).forEach(s -> {
+            sessions.add(s.toString());
+            release.countDown();
+        });
+        thread.join();
+        // the first session closes after the gap, before the producer resumes
+        assertEquals(sessions, Arrays.asList("a=[a1, a2]", "a=[a3]"));
+    }
+
+    public void testAggregate() {
+        Duration hour = Duration.ofHours(1);
+        List<String> msgs = Arrays.asList("a", "b", "a", "c", "a", "b", "eos");
+        List<String> updates = new ArrayList<>();
+        StreamSupport.aggregate(mailbox(msgs), "eos", x -> x, Collectors.counting(), 1, hour, 10)
+                .forEach(e -> updates.add(e.getKey() + e.getValue()));
+        assertEquals(updates, Arrays.asList("a1", "b1", "a2", "c1", "a3", "b2"));
+
+        // batches emit each changed key once, and the final partial batch at the end
+        updates.clear();
+        StreamSupport.aggregate(mailbox(msgs), "eos", x -> x, Collectors.counting(), 4, hour, 10)
+                .forEach(e -> updates.add(e.getKey() + e.getValue()));
+        assertEquals(updates, Arrays.asList("a2", "b1", "c1", "a3", "b2"));
+
+        Map<String, Long> totals = StreamSupport.aggregate(mailbox(msgs), "eos", x -> x, Collectors.counting(), 2, hour, 10)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (x, y) -> y));
+        assertEquals(totals.get("a"), (Long) 3L);
+        assertEquals(totals.get("b"), (Long) 2L);
+        assertEquals(totals.get("c"), (Long) 1L);
+    }
+
+    public void testAggregateKeys() {
+        // beyond maxKeys the least recently updated aggregate is dropped, after its pending update
+        List<String> msgs = Arrays.asList("a", "b", "a", "c", "b", "eos");
+        List<String> updates = new ArrayList<>();
+        StreamSupport.aggregate(mailbox(msgs), "eos", x -> x, Collectors.counting(), 10, Duration.ofHours(1), 2)
+                .forEach(e -> updates.add(e.getKey() + e.getValue()));
+        assertEquals(updates, Arrays.asList("b1", "a2", "c1", "b1"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testAggregateIdentity() {
+        StreamSupport.aggregate(new Mailbox<String>(), "eos", x -> x, Collectors.toList(), 1, Duration.ofHours(1), 10);
+    }
+
+    public void testAggregateSnapshot() {
+        // a copying finisher, so an update that's held isn't changed by the later messages
+        List<String> msgs = Arrays.asList("a1", "a2", "a3", "eos");
+        List<List<String>> values = StreamSupport.aggregate(mailbox(msgs), "eos", x -> x.substring(0, 1),
+                        Collectors.collectingAndThen(Collectors.<String>toList(), ArrayList::new),
+                        1, Duration.ofHours(1), 10)
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+        assertEquals(values, Arrays.asList(Arrays.asList("a1"), Arrays.asList("a1", "a2"), Arrays.asList("a1", "a2", "a3")));
+    }
+
+    public void testAggregateTimer() throws InterruptedException {
+        Mailbox<String> mailbox = new Mailbox<>();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread thread = producer(mailbox, Arrays.asList("a", "b", "a"), release, Arrays.asList("a", "eos"));
+        List<String> updates = new ArrayList<>();
+        StreamSupport.aggregate(mailbox, "eos", x -> x, Collectors.counting(), Integer.MAX_VALUE, Duration.ofMillis(200), 10)
+                .forEach(e -> {
+                    updates.add(e.getKey() + e.getValue());
+                    release.countDown();
+                });
+        thread.join();
+        // the first batch is flushed by the period, before the producer resumes
+        assertEquals(updates, Arrays.asList("a2", "b1", "a3"));
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package tests.stream2;
+
+import kilim.Mailbox;
+import org.testng.annotations.Test;
+import stream2.Collectors;
+import stream2.IntStream;
+import stream2.Spliterator;
+import stream2.Stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * the pausable intermediate ops. the tests run unwoven, where a pausable kilim call isn't
+ * available, so the functions take their replies with getnb from a primed mailbox
+ */
+@Test
+public class PausableOpsTest {
+
+    /** a lookup through the pausable function contract, answered by a mailbox that's been primed with the replies */
+    static Integer lookup(Mailbox<Integer> replies, Integer x) throws kilim.Pausable {
+        return x + replies.getnb();
+    }
+
+    public void testMapP() {
+        Mailbox<Integer> replies = new Mailbox<>();
+        for (int ii = 0; ii < 5; ii++)
+            replies.putnb(100);
+        List<Integer> result = IntStream.range(0, 5).boxed()
+                .mapP(x -> lookup(replies, x))
+                .collect(Collectors.toList());
+        assertEquals(result, Arrays.asList(100, 101, 102, 103, 104));
+        assertFalse(replies.hasMessage());
+    }
+
+    public void testFilterP() {
+        List<Integer> result = IntStream.range(0, 10).boxed()
+                .filterP(x -> x % 3 == 0)
+                .map(x -> x * 10)
+                .collect(Collectors.toList());
+        assertEquals(result, Arrays.asList(0, 30, 60, 90));
+    }
+
+    public void testFlatMapP() {
+        AtomicInteger closed = new AtomicInteger();
+        List<Integer> result = IntStream.range(0, 4).boxed()
+                .flatMapP(x -> x == 2 ? null : Stream.of(x, -x).onClose(closed::incrementAndGet))
+                .collect(Collectors.toList());
+        assertEquals(result, Arrays.asList(0, 0, 1, -1, 3, -3));
+        assertEquals(closed.get(), 3);
+
+        List<Integer> first = new ArrayList<>();
+        Stream.of(1, 2).flatMapP(x -> Stream.of(x, x)).limit(3).forEachOrdered(first::add);
+        assertEquals(first, Arrays.asList(1, 1, 2));
+    }
+
+    public void testParallel() {
+        List<Integer> expected = new ArrayList<>();
+        for (int ii = 0; ii < 1000; ii++)
+            if (ii % 7 != 0) expected.add(ii * 2);
+        List<Integer> result = IntStream.range(0, 1000).parallel().boxed()
+                .filterP(x -> x % 7 != 0)
+                .mapP(x -> x * 2)
+                .collect(Collectors.toList());
+        assertEquals(result, expected);
+
+        long sum = IntStream.range(0, 1000).parallel().boxed().sorted()
+                .flatMapP(x -> Stream.of(x, x))
+                .mapToLong(x -> x)
+                .sum();
+        assertEquals(sum, 999L * 1000);
+    }
+
+    public void testCharacteristics() {
+        Spliterator<Integer> mapped = IntStream.range(0, 10).boxed().mapP(x -> x).spliterator();
+        assertTrue(mapped.hasCharacteristics(Spliterator.SIZED));
+        assertEquals(mapped.getExactSizeIfKnown(), 10);
+        Spliterator<Integer> filtered = IntStream.range(0, 10).boxed().filterP(x -> true).spliterator();
+        assertFalse(filtered.hasCharacteristics(Spliterator.SIZED));
+        assertEquals(Stream.of(1, 2, 3).mapP(x -> x).count(), 3);
+    }
+
+    public void testClose() {
+        AtomicInteger closed = new AtomicInteger();
+        Stream<Integer> stream = Stream.of(1, 2).onClose(closed::incrementAndGet).mapP(x -> x);
+        stream.close();
+        assertEquals(closed.get(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testLinked() {
+        Stream<Integer> stream = Stream.of(1, 2);
+        stream.mapP(x -> x);
+        stream.map(x -> x);
+    }
+}
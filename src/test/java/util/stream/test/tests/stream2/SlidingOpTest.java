@@ -0,0 +1,112 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package tests.stream2;
+
+import org.testng.annotations.Test;
+import stream2.DoubleStream;
+import stream2.IntStream;
+import stream2.LongStream;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * sliding sums, minimums, maximums and averages, checked against recomputing each window,
+ * sequentially and in parallel chunks
+ */
+@Test
+public class SlidingOpTest {
+
+    static final int SIZE = 20011;
+
+    static int [] ints(int size, int bound) {
+        return new Random(size + bound).ints(size, -bound, bound).toArray();
+    }
+
+    public void testInt() {
+        int [] vals = ints(SIZE, 1000);
+        for (int n : new int[] { 1, 2, 7, 1000, 9000 }) {
+            int m = SIZE - n + 1;
+            int [] sum = new int[m], min = new int[m], max = new int[m];
+            double [] avg = new double[m];
+            for (int ii = 0; ii < m; ii++) {
+                int [] window = Arrays.copyOfRange(vals, ii, ii + n);
+                sum[ii] = IntStream.of(window).sum();
+                min[ii] = IntStream.of(window).min().getAsInt();
+                max[ii] = IntStream.of(window).max().getAsInt();
+                avg[ii] = (double) sum[ii] / n;
+            }
+            assertEquals(IntStream.of(vals).slidingSum(n).toArray(), sum);
+            assertEquals(IntStream.of(vals).slidingMin(n).toArray(), min);
+            assertEquals(IntStream.of(vals).slidingMax(n).toArray(), max);
+            assertEquals(IntStream.of(vals).slidingAverage(n).toArray(), avg);
+            assertEquals(IntStream.of(vals).parallel().slidingSum(n).toArray(), sum);
+            assertEquals(IntStream.of(vals).parallel().filter(x -> true).slidingMin(n).toArray(), min);
+            assertEquals(IntStream.of(vals).parallel().slidingMax(n).toArray(), max);
+            assertEquals(IntStream.of(vals).parallel().slidingAverage(n).toArray(), avg);
+        }
+    }
+
+    public void testLong() {
+        long [] vals = new Random(5).longs(SIZE).toArray();
+        int n = 33, m = SIZE - n + 1;
+        long [] sum = new long[m], min = new long[m], max = new long[m];
+        for (int ii = 0; ii < m; ii++) {
+            long [] window = Arrays.copyOfRange(vals, ii, ii + n);
+            sum[ii] = LongStream.of(window).sum();
+            min[ii] = LongStream.of(window).min().getAsLong();
+            max[ii] = LongStream.of(window).max().getAsLong();
+        }
+        assertEquals(LongStream.of(vals).slidingSum(n).toArray(), sum);
+        assertEquals(LongStream.of(vals).slidingMin(n).toArray(), min);
+        assertEquals(LongStream.of(vals).parallel().slidingMax(n).toArray(), max);
+        assertEquals(LongStream.range(0, 10).slidingAverage(4).toArray(), new double[] { 1.5, 2.5, 3.5, 4.5, 5.5, 6.5, 7.5 });
+    }
+
+    public void testDouble() {
+        double [] vals = new Random(6).doubles(SIZE).map(x -> x * 100 - 50).toArray();
+        int n = 100, m = SIZE - n + 1;
+        double [] sum = DoubleStream.of(vals).slidingSum(n).toArray();
+        double [] avg = DoubleStream.of(vals).parallel().slidingAverage(n).toArray();
+        double [] min = DoubleStream.of(vals).slidingMin(n).toArray();
+        double [] max = DoubleStream.of(vals).parallel().slidingMax(n).toArray();
+        assertEquals(sum.length, m);
+        for (int ii = 0; ii < m; ii++) {
+            double [] window = Arrays.copyOfRange(vals, ii, ii + n);
+            assertEquals(sum[ii], DoubleStream.of(window).sum(), 1e-9);
+            assertEquals(avg[ii], DoubleStream.of(window).average().getAsDouble(), 1e-11);
+            assertEquals(min[ii], DoubleStream.of(window).min().getAsDouble());
+            assertEquals(max[ii], DoubleStream.of(window).max().getAsDouble());
+        }
+    }
+
+    public void testSpecial() {
+        double inf = Double.POSITIVE_INFINITY, nan = Double.NaN;
+        double [] vals = { 1, inf, 2, 3, nan, 4, 5, -inf, 6, 7, 8 };
+        assertEquals(DoubleStream.of(vals).slidingSum(2).toArray(),
+                     new double[] { inf, inf, 5, nan, nan, 9, -inf, -inf, 13, 15 });
+        assertEquals(DoubleStream.of(vals).slidingMin(3).toArray(),
+                     new double[] { 1, 2, nan, nan, nan, -inf, -inf, -inf, 6 });
+        assertEquals(DoubleStream.of(vals).slidingMax(3).toArray(),
+                     new double[] { inf, inf, nan, nan, nan, 5, 6, 7, 8 });
+        assertEquals(DoubleStream.of(-0.0, 0.0).slidingMin(2).toArray(), new double[] { -0.0 });
+        assertEquals(DoubleStream.of(-0.0, 0.0).slidingMax(2).toArray(), new double[] { 0.0 });
+    }
+
+    public void testShort() {
+        assertEquals(IntStream.range(0, 5).slidingSum(6).count(), 0);
+        assertEquals(IntStream.range(0, 5).parallel().slidingMax(6).count(), 0);
+        assertEquals(IntStream.range(0, 5).slidingSum(5).toArray(), new int[] { 10 });
+        assertEquals(IntStream.iterate(0, x -> x + 1).slidingMax(3).limit(3).toArray(), new int[] { 2, 3, 4 });
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testSize() {
+        DoubleStream.of(1, 2).slidingAverage(0);
+    }
+}
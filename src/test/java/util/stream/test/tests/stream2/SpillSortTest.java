@@ -0,0 +1,83 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package tests.stream2;
+
+import org.testng.annotations.Test;
+import stream2.Collectors;
+import stream2.DoubleStream;
+import stream2.IntStream;
+import stream2.LongStream;
+import stream2.Spill;
+import stream2.Stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * sorts with a memory budget smaller than the input, so that runs are spilled to disk and merged
+ */
+@Test
+public class SpillSortTest {
+
+    static final int SIZE = 20000;
+
+    public void testLong() {
+        long [] vals = new Random(1).longs(SIZE).toArray();
+        long [] expected = vals.clone();
+        Arrays.sort(expected);
+        for (long budget : new long[] { 1, 100, 4096, SIZE, 2*SIZE })
+            assertEquals(LongStream.of(vals).sorted(budget).toArray(), expected);
+        assertEquals(LongStream.of(vals).parallel().sorted(1000).toArray(), expected);
+    }
+
+    public void testInt() {
+        int [] vals = new Random(2).ints(SIZE, -1000, 1000).toArray();
+        int [] expected = vals.clone();
+        Arrays.sort(expected);
+        assertEquals(IntStream.of(vals).sorted(777).toArray(), expected);
+        try (IntStream top = IntStream.of(vals).map(x -> -x).sorted(777)) {
+            assertEquals(top.limit(3).toArray(),
+                         new int[] { -expected[SIZE-1], -expected[SIZE-2], -expected[SIZE-3] });
+        }
+    }
+
+    public void testDouble() {
+        double [] vals = new Random(3).doubles(SIZE).map(x -> x - 0.5).toArray();
+        vals[0] = Double.NaN;
+        vals[1] = -0.0;
+        vals[2] = 0.0;
+        double [] expected = vals.clone();
+        Arrays.sort(expected);
+        double [] sorted = DoubleStream.of(vals).sorted(1000).toArray();
+        for (int ii = 0; ii < SIZE; ii++)
+            assertEquals(Double.doubleToLongBits(sorted[ii]), Double.doubleToLongBits(expected[ii]));
+    }
+
+    public void testRef() {
+        Random random = new Random(4);
+        List<String> vals = new ArrayList<>();
+        for (int ii = 0; ii < SIZE; ii++)
+            vals.add(random.nextInt(100) + ":" + ii);
+        Comparator<String> byPrefix = Comparator.comparing(x -> Integer.parseInt(x.substring(0, x.indexOf(':'))));
+        List<String> expected = new ArrayList<>(vals);
+        // stable, so equal prefixes keep their encounter order
+        expected.sort(byPrefix);
+        List<String> sorted = Stream.of(vals.toArray(new String[0]))
+                .sorted(byPrefix, 999, Spill.STRINGS).collect(Collectors.toList());
+        assertEquals(sorted, expected);
+        assertEquals(Stream.<String>empty().sorted(byPrefix, 1, Spill.STRINGS).count(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBudget() {
+        LongStream.of(1, 2, 3).sorted(0);
+    }
+}
@@ -22,6 +22,7 @@
  */
 package tests.stream2;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
@@ -283,6 +284,39 @@ public class StreamSpliteratorTest extends OpTestCase {
         }
     }
 
+    public void testStatefulParSpliterator() {
+        List<Integer> l = countTo(1000);
+        Stream<Integer> s = proxy(l).parallelStream().map(mDoubler).sorted(Comparator.reverseOrder());
+        Spliterator<Integer> sp = s.spliterator();
+        // the sort is evaluated by the first traversal or split, so until then the size is unknown
+        Assert.assertTrue(s.isParallel());
+        Assert.assertEquals(sp.getExactSizeIfKnown(), -1L);
+
+        Spliterator<Integer> prefix = sp.trySplit();
+        Assert.assertNotNull(prefix);
+        List<Integer> result = new ArrayList<>();
+        prefix.forEachRemaining(result::add);
+        sp.forEachRemaining(result::add);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = l.size(); i > 0; i--)
+            expected.add(2 * i);
+        Assert.assertEquals(result, expected);
+    }
+
+    public void testStatefulIntParSpliterator() {
+        IntStream s = IntStream.range(0, 1000).parallel().map(i -> 999 - i).sorted().map(i -> 2 * i);
+        Spliterator.OfInt sp = s.spliterator();
+        Assert.assertTrue(s.isParallel());
+
+        Spliterator.OfInt prefix = sp.trySplit();
+        Assert.assertNotNull(prefix);
+        int[] next = { 0 };
+        prefix.forEachRemaining((IntConsumer) i -> Assert.assertEquals(i, 2 * next[0]++));
+        sp.forEachRemaining((IntConsumer) i -> Assert.assertEquals(i, 2 * next[0]++));
+        Assert.assertEquals(next[0], 1000);
+    }
+
     @Test(dataProvider = "StreamTestData<Integer>",
           dataProviderClass = StreamTestDataProvider.class,
           groups = { "serialization-hostile" })
@@ -0,0 +1,100 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package tests.stream2;
+
+import kilim.Mailbox;
+import org.testng.annotations.Test;
+import stream2.IntStream;
+import stream2.Stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * the mailbox terminal ops, run unwoven so that a put blocks rather than pauses.
+ * the mailboxes have room for every message, so the puts never wait
+ */
+@Test
+public class ToMailboxTest {
+
+    private static <T> List<T> drain(Mailbox<T> mailbox) {
+        List<T> list = new ArrayList<>();
+        for (T msg; (msg = mailbox.getnb()) != null;)
+            list.add(msg);
+        return list;
+    }
+
+    public void testToMailbox() {
+        Mailbox<Integer> mailbox = new Mailbox<>();
+        IntStream.range(0, 10).boxed().filter(x -> x % 3 != 0).toMailbox(mailbox);
+        assertEquals(drain(mailbox), Arrays.asList(1, 2, 4, 5, 7, 8));
+    }
+
+    public void testParallelOrder() {
+        Mailbox<Object> mailbox = new Mailbox<>();
+        IntStream.range(0, 1000).parallel().boxed().map(x -> x * 2).sorted().toMailbox(mailbox);
+        List<Object> result = drain(mailbox);
+        assertEquals(result.size(), 1000);
+        for (int ii = 0; ii < 1000; ii++)
+            assertEquals(result.get(ii), ii * 2);
+    }
+
+    public void testBatched() {
+        Mailbox<List<Integer>> mailbox = new Mailbox<>();
+        IntStream.range(0, 10).boxed().toMailboxBatched(mailbox, 4);
+        List<List<Integer>> batches = drain(mailbox);
+        assertEquals(batches, Arrays.asList(Arrays.asList(0, 1, 2, 3), Arrays.asList(4, 5, 6, 7), Arrays.asList(8, 9)));
+    }
+
+    public void testBatchedExact() {
+        Mailbox<List<Integer>> mailbox = new Mailbox<>();
+        IntStream.range(0, 6).boxed().flatMap(x -> java.util.stream.Stream.of(x, x)).toMailboxBatched(mailbox, 4);
+        assertEquals(drain(mailbox), Arrays.asList(Arrays.asList(0, 0, 1, 1), Arrays.asList(2, 2, 3, 3),
+                                                   Arrays.asList(4, 4, 5, 5)));
+    }
+
+    public void testLargeBatch() {
+        // the batch grows as needed rather than being allocated at the full batch size
+        Mailbox<List<Integer>> mailbox = new Mailbox<>();
+        IntStream.range(0, 3000).boxed().toMailboxBatched(mailbox, Integer.MAX_VALUE);
+        List<List<Integer>> batches = drain(mailbox);
+        assertEquals(batches.size(), 1);
+        assertEquals(batches.get(0).size(), 3000);
+    }
+
+    public void testEmpty() {
+        Mailbox<List<Integer>> mailbox = new Mailbox<>();
+        Stream.<Integer>empty().toMailboxBatched(mailbox, 4);
+        assertNull(mailbox.getnb());
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void testNull() {
+        Stream.of("a", null).toMailbox(new Mailbox<>());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBatchSize() {
+        Stream.of("a").toMailboxBatched(new Mailbox<>(), 0);
+    }
+
+    public void testBatchSizeUnlinked() {
+        // a bad batch size is rejected before the stream is consumed
+        Stream<String> stream = Stream.of("a", "b");
+        try {
+            stream.toMailboxBatched(new Mailbox<>(), -1);
+        }
+        catch (IllegalArgumentException ex) { }
+        Mailbox<String> mailbox = new Mailbox<>();
+        stream.toMailbox(mailbox);
+        assertEquals(mailbox.getnb(), "a");
+        assertEquals(mailbox.getnb(), "b");
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * copyright 2016 lytles/nqzero, all rights reserved. offered under the GPL+classpath exception terms
+ * or the MIT license, at your choice
+ */
+
+package tests.stream2;
+
+import org.testng.annotations.Test;
+import stream2.Collectors;
+import stream2.DoubleStream;
+import stream2.IntStream;
+import stream2.LongStream;
+import stream2.Stream;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * tumbling windows, with a partial final window, sequentially and in parallel
+ */
+@Test
+public class WindowOpTest {
+
+    public void testRef() {
+        List<List<Integer>> expected = Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(3, 4, 5), Arrays.asList(6));
+        assertEquals(IntStream.range(0, 7).boxed().window(3).collect(Collectors.toList()), expected);
+        assertEquals(IntStream.range(0, 7).boxed().parallel().window(3).collect(Collectors.toList()), expected);
+        assertEquals(Stream.<Integer>empty().window(3).count(), 0);
+        assertEquals(IntStream.range(0, 6).boxed().window(3).count(), 2);
+    }
+
+    public void testLarge() {
+        int size = 100003, n = 64;
+        List<int[]> seq = IntStream.range(0, size).window(n).collect(Collectors.toList());
+        List<int[]> par = IntStream.range(0, size).parallel().filter(x -> true).window(n).collect(Collectors.toList());
+        assertEquals(seq.size(), (size + n - 1) / n);
+        assertEquals(par.size(), seq.size());
+        for (int ii = 0; ii < seq.size(); ii++) {
+            assertEquals(par.get(ii), seq.get(ii));
+            assertEquals(seq.get(ii)[0], ii * n);
+        }
+        assertEquals(seq.get(seq.size() - 1).length, size % n);
+        assertEquals(IntStream.range(0, size).parallel().window(n).mapToInt(w -> w.length).sum(), size);
+    }
+
+    public void testPrimitive() {
+        assertEquals(LongStream.range(0, 5).window(2).toArray(long[][]::new),
+                     new long[][] { { 0, 1 }, { 2, 3 }, { 4 } });
+        assertEquals(DoubleStream.of(1, 2, 3).window(5).toArray(double[][]::new), new double[][] { { 1, 2, 3 } });
+        assertEquals(IntStream.range(0, 10).window(3).limit(2).toArray(int[][]::new),
+                     new int[][] { { 0, 1, 2 }, { 3, 4, 5 } });
+        assertEquals(IntStream.range(0, 10).window(Integer.MAX_VALUE).toArray(int[][]::new).length, 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testSize() {
+        IntStream.range(0, 10).window(0);
+    }
+}